@@ -4,21 +4,24 @@
 class AccessLogEntry
 {
     final int containerId;
-    final String resourceId;
+    final int resourceIndex;    // See ResourceRegistry
     final long acquireTime;
     final int processingTime;
     final long totalTime;
+    final long offsetMs;    // When the access was recorded, since the start of the run
 
     public AccessLogEntry(final int containerId,
-                          final String resourceId,
+                          final int resourceIndex,
                           final long acquireTime,
                           final int processingTime,
-                          final long totalTime)
+                          final long totalTime,
+                          final long offsetMs)
     {
         this.containerId    = containerId;
-        this.resourceId     = resourceId;
+        this.resourceIndex  = resourceIndex;
         this.acquireTime    = acquireTime;
         this.processingTime = processingTime;
         this.totalTime      = totalTime;
+        this.offsetMs       = offsetMs;
     }
 }
\ No newline at end of file
@@ -1,70 +1,169 @@
-import javax.swing.*;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class CloudResource
 {
     private final String resourceId;
-    private final DistributedSemaphore semaphore;
-    private static final int timeOutMs        = 1000;
+    private final int resourceIndex;
+    private final ResourceShard[] shards;
+    // Default time to wait for a permit before giving up
+    static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 5000;
+    private final long acquireTimeoutMs;
 
-    private final AtomicInteger currentUsers  = new AtomicInteger(0);
     private final AtomicInteger totalAccesses = new AtomicInteger(0);
     private final AtomicInteger conflictCount = new AtomicInteger(0);
+    private final FaultInjector faults;
+    private final RateLimiter rateLimiter;
+    private final TokenBucket rateBucket;
+    // Print a line per synchronized access; off unless an interactive run asks for it
+    private volatile boolean logAccesses;
 
     public CloudResource(final String id,
                          final int maxConcurrentAccess)
     {
-        this.resourceId = id;
-        this.semaphore  = new DistributedSemaphore(maxConcurrentAccess, "sem_" + id);
+        this(id, maxConcurrentAccess, 1);
+    }
+
+    public CloudResource(final String id,
+                         final int maxConcurrentAccess,
+                         final int shardCount)
+    {
+        this(id, maxConcurrentAccess, shardCount, 0, null, SemaphoreFactory.LOCAL);
+    }
+
+    public CloudResource(final String id,
+                         final int maxConcurrentAccess,
+                         final int shardCount,
+                         final long leaseTimeoutMs,
+                         final FaultInjector faults,
+                         final SemaphoreFactory semaphoreFactory)
+    {
+        this(id, maxConcurrentAccess, shardCount, leaseTimeoutMs, faults, semaphoreFactory, null,
+                DEFAULT_ACQUIRE_TIMEOUT_MS);
+    }
+
+    /**
+     * Create a resource replicated into shardCount shards. The resource's
+     * maxConcurrentAccess permits are split across the shards' pools, the remainder
+     * going to the first shards, so sharding never admits more holders than an
+     * unsharded resource; there are never more shards than permits.
+     * @param leaseTimeoutMs permit lease timeout (0 disables lease expiry)
+     * @param faults fault injector for synchronized access, or null
+     * @param semaphoreFactory creates each shard's semaphore
+     * @param rateLimiter rate limit applied before every access, or null
+     * @param acquireTimeoutMs how long a synchronized access waits for a permit
+     */
+    public CloudResource(final String id,
+                         final int maxConcurrentAccess,
+                         final int shardCount,
+                         final long leaseTimeoutMs,
+                         final FaultInjector faults,
+                         final SemaphoreFactory semaphoreFactory,
+                         final RateLimiter rateLimiter,
+                         final long acquireTimeoutMs)
+    {
+        this.resourceId    = id;
+        this.resourceIndex = ResourceRegistry.intern(id);
+        this.shards     = new ResourceShard[Math.max(1, Math.min(shardCount, maxConcurrentAccess))];
+        this.faults     = faults;
+        this.rateLimiter = rateLimiter;
+        this.rateBucket  = rateLimiter != null ? rateLimiter.newResourceBucket() : null;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+
+        if (shards.length == 1)
+        {
+            shards[0] = new ResourceShard("sem_" + id, maxConcurrentAccess, leaseTimeoutMs,
+                    semaphoreFactory);
+        }
+        else
+        {
+            for (int i = 0; i < shards.length; i++)
+            {
+                int permits = maxConcurrentAccess / shards.length + (i < maxConcurrentAccess % shards.length ? 1 : 0);
+                shards[i] = new ResourceShard("sem_" + id + "_" + i, permits, leaseTimeoutMs,
+                        semaphoreFactory);
+            }
+        }
     }
 
     /**
      * Access the resource with synchronization
      */
-    public void accessWithSync(int containerId, Random random,
-                               int networkLatencyMeanMs, int networkLatencyStdDevMs,
-                               int processingTimeMeanMs, int processingTimeStdDevMs,
-                               MetricsCollector metrics, SimulationVisualizer visualizer) {
-        System.out.println("Container " + containerId + " accessing resource " + resourceId + " WITH sync");
+    public void accessWithSync(int containerId, int shardIndex,
+                               int acquireLatencyMs, int processingTime, int releaseLatencyMs,
+                               MetricsCollector metrics, VisualizerSink visualizer) {
+        if (logAccesses) {
+            System.out.println("Container " + containerId + " accessing resource " + resourceId + " WITH sync");
+        }
+
+        ResourceShard shard = shards[shardIndex];
+        DistributedSemaphore semaphore = shard.semaphore;
 
         long startTime = System.currentTimeMillis();
 
+        if (!passRateLimit(containerId, metrics)) {
+            return;
+        }
+
         // Try to acquire the semaphore with timeout
-        boolean acquired = semaphore.acquire(random, networkLatencyMeanMs,
-                networkLatencyStdDevMs, 5000);
+        int networkDelay = faults != null ? faults.networkDelayMs() : 0;
+        PermitWaitEvent waitEvent = new PermitWaitEvent();
+        waitEvent.begin();
+        int outcome = semaphore.acquireOutcome(containerId, acquireLatencyMs + networkDelay, acquireTimeoutMs);
+        boolean acquired = outcome == DistributedSemaphore.ACQUIRED;
+        waitEvent.end();
+        if (waitEvent.shouldCommit()) {
+            waitEvent.containerId = containerId;
+            waitEvent.resource = resourceId;
+            waitEvent.shard = shardIndex;
+            waitEvent.acquired = acquired;
+            waitEvent.commit();
+        }
 
         long acquireTime = System.currentTimeMillis();
         long acquireDuration = acquireTime - startTime;
 
         if (!acquired) {
-            // Timeout occurred
-            metrics.recordTimeout(containerId, resourceId);
+            // Timed out, or shed by the semaphore's bounded wait queue
+            boolean shed = outcome == DistributedSemaphore.SHED;
+            if (shed) {
+                metrics.recordShed(containerId, resourceIndex);
+            } else {
+                metrics.recordTimeout(containerId, resourceIndex);
+            }
+            TimeoutEvent timeoutEvent = new TimeoutEvent();
+            if (timeoutEvent.shouldCommit()) {
+                timeoutEvent.containerId = containerId;
+                timeoutEvent.resource = resourceId;
+                timeoutEvent.shard = shardIndex;
+                timeoutEvent.timeoutMs = acquireTimeoutMs;
+                timeoutEvent.shed = shed;
+                timeoutEvent.commit();
+            }
             return;
         }
 
+        PermitHoldEvent holdEvent = new PermitHoldEvent();
+        holdEvent.begin();
+
         // Update visualizer - resource acquired
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.accessResource(containerId, resourceId, true));
-        }
+        visualizer.accessResource(containerId, resourceIndex, true);
 
         // Successfully acquired the semaphore
-        int users = currentUsers.incrementAndGet();
+        int users = shard.currentUsers.incrementAndGet();
         totalAccesses.incrementAndGet();
 
-        if (visualizer != null) {
-            System.out.println("Notifying visualizer: container " + containerId + " acquired " + resourceId);
-            SwingUtilities.invokeLater(() ->
-                    visualizer.accessResource(containerId, resourceId, true));
+        // Injected fault: the container dies holding the permit and never releases it
+        if (faults != null && faults.shouldCrash(containerId)) {
+            shard.currentUsers.decrementAndGet();
+            metrics.recordCrash(containerId, resourceIndex);
+            commitHold(holdEvent, containerId, shardIndex, false);
+            throw new ContainerCrashedException(containerId, resourceId);
         }
 
         // Simulate processing time for using the resource
-        int processingTime = Math.max(1, (int)(random.nextGaussian() *
-                processingTimeStdDevMs +
-                processingTimeMeanMs));
         try {
             Thread.sleep(processingTime);
         } catch (InterruptedException e) {
@@ -74,70 +173,66 @@ class CloudResource
         // Check for potential conflicts (should never happen with proper synchronization)
         if (users > semaphore.getMaxValue()) {
             conflictCount.incrementAndGet();
-            metrics.recordConflict(containerId, resourceId);
+            metrics.recordConflict(containerId, resourceIndex);
+            commitConflict(containerId, shardIndex, users, semaphore.getMaxValue());
 
             // Update visualizer with conflict
-            if (visualizer != null) {
-                SwingUtilities.invokeLater(() ->
-                        visualizer.recordConflict(containerId, resourceId));
-            }
+            visualizer.recordConflict(containerId, resourceIndex);
         }
 
-        currentUsers.decrementAndGet();
-
-        // Release the semaphore
-        semaphore.release(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+        shard.currentUsers.decrementAndGet();
+
+        // Release the semaphore, unless fault injection loses the release message
+        if (faults != null && faults.shouldDropRelease(containerId)) {
+            commitHold(holdEvent, containerId, shardIndex, false);
+            metrics.recordDroppedRelease(containerId, resourceIndex);
+            simulateNetworkLatency(releaseLatencyMs);
+        } else {
+            commitHold(holdEvent, containerId, shardIndex, true);
+            networkDelay = faults != null ? faults.networkDelayMs() : 0;
+            semaphore.release(containerId, releaseLatencyMs + networkDelay);
+        }
 
         // Update visualizer - resource released
-        if (visualizer != null) {
-            System.out.println("Notifying visualizer: container " + containerId + " released " + resourceId);
-            SwingUtilities.invokeLater(() ->
-                    visualizer.releaseResource(containerId, resourceId));
-        }
+        visualizer.releaseResource(containerId, resourceIndex);
 
         long endTime = System.currentTimeMillis();
         long totalDuration = endTime - startTime;
 
         // Record metrics
-        metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
-
-        // Update operation count in visualizer
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.recordOperation());
-        }
+        metrics.recordAccess(containerId, resourceIndex, acquireDuration, processingTime, totalDuration);
     }
 
     /**
      * Access the resource without synchronization (for comparison)
      */
-    public void accessWithoutSync(int containerId, Random random,
-                                  int networkLatencyMeanMs, int networkLatencyStdDevMs,
-                                  int processingTimeMeanMs, int processingTimeStdDevMs,
-                                  MetricsCollector metrics, SimulationVisualizer visualizer) {
+    public void accessWithoutSync(int containerId, int shardIndex,
+                                  int acquireLatencyMs, int processingTime, int releaseLatencyMs,
+                                  MetricsCollector metrics, VisualizerSink visualizer) {
+
+        ResourceShard shard = shards[shardIndex];
+        DistributedSemaphore semaphore = shard.semaphore;
 
         long startTime = System.currentTimeMillis();
 
+        if (!passRateLimit(containerId, metrics)) {
+            return;
+        }
+
         // Simulate network latency (but no semaphore acquisition)
-        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+        simulateNetworkLatency(acquireLatencyMs);
 
         long acquireTime = System.currentTimeMillis();
         long acquireDuration = acquireTime - startTime;
 
         // Update visualizer - resource acquired
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.accessResource(containerId, resourceId, false));
-        }
+        visualizer.accessResource(containerId, resourceIndex, false);
 
         // No synchronization, just access the resource
-        int users = currentUsers.incrementAndGet();
+        int users = shard.currentUsers.incrementAndGet();
         totalAccesses.incrementAndGet();
 
         // Simulate processing time
-        int processingTime = Math.max(1, (int)(random.nextGaussian() *
-                processingTimeStdDevMs +
-                processingTimeMeanMs));
         try {
             Thread.sleep(processingTime);
         } catch (InterruptedException e) {
@@ -148,47 +243,99 @@ class CloudResource
         boolean conflict = users > semaphore.getMaxValue();
         if (conflict) {
             conflictCount.incrementAndGet();
-            metrics.recordConflict(containerId, resourceId);
+            metrics.recordConflict(containerId, resourceIndex);
+            commitConflict(containerId, shardIndex, users, semaphore.getMaxValue());
 
             // Update visualizer with conflict
-            if (visualizer != null) {
-                SwingUtilities.invokeLater(() ->
-                        visualizer.recordConflict(containerId, resourceId));
-            }
+            visualizer.recordConflict(containerId, resourceIndex);
         }
 
-        currentUsers.decrementAndGet();
+        shard.currentUsers.decrementAndGet();
 
         // Simulate network latency for completion
-        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+        simulateNetworkLatency(releaseLatencyMs);
 
         // Update visualizer - resource released
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.releaseResource(containerId, resourceId));
-        }
+        visualizer.releaseResource(containerId, resourceIndex);
 
         long endTime = System.currentTimeMillis();
         long totalDuration = endTime - startTime;
 
         // Record metrics
-        metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
+        metrics.recordAccess(containerId, resourceIndex, acquireDuration, processingTime, totalDuration);
+    }
 
-        // Update operation count in visualizer
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.recordOperation());
+    /**
+     * Take a token from the rate limiter, sleeping out any delay it imposes
+     * @return false if the request was turned away
+     */
+    private boolean passRateLimit(final int containerId,
+                                  final MetricsCollector metrics)
+    {
+        if (rateLimiter == null)
+        {
+            return true;
+        }
+
+        long delayNanos = rateLimiter.admit(containerId, rateBucket);
+        if (delayNanos < 0)
+        {
+            metrics.recordRateLimited(containerId, resourceIndex);
+            return false;
         }
+        if (delayNanos > 0)
+        {
+            metrics.recordRateDelay(TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
     }
 
-    private void simulateNetworkLatency(final Random random,
-                                        final int meanMs,
-                                        final int stdDevMs)
+    private void commitHold(final PermitHoldEvent event,
+                            final int containerId,
+                            final int shardIndex,
+                            final boolean released)
+    {
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.containerId = containerId;
+            event.resource    = resourceId;
+            event.shard       = shardIndex;
+            event.released    = released;
+            event.commit();
+        }
+    }
+
+    private void commitConflict(final int containerId,
+                                final int shardIndex,
+                                final int users,
+                                final int permits)
+    {
+        ConflictEvent event = new ConflictEvent();
+        if (event.shouldCommit())
+        {
+            event.containerId = containerId;
+            event.resource    = resourceId;
+            event.shard       = shardIndex;
+            event.users       = users;
+            event.permits     = permits;
+            event.commit();
+        }
+    }
+
+    private void simulateNetworkLatency(final int latencyMs)
     {
-        int latency = Math.max(1, (int)(random.nextGaussian() * stdDevMs + meanMs));
         try
         {
-            Thread.sleep(latency);
+            Thread.sleep(latencyMs);
         }
         catch (final InterruptedException e)
         {
@@ -196,6 +343,14 @@ class CloudResource
         }
     }
 
+    /**
+     * Print a console line for every synchronized access
+     */
+    public void setLogAccesses(final boolean logAccesses)
+    {
+        this.logAccesses = logAccesses;
+    }
+
     // Getters for metrics
     public int getTotalAccesses()
     {
@@ -209,11 +364,91 @@ class CloudResource
 
     public int getCurrentUsers()
     {
-        return currentUsers.get();
+        int users = 0;
+        for (final ResourceShard shard : shards)
+        {
+            users += shard.currentUsers.get();
+        }
+        return users;
+    }
+
+    public int getCurrentUsers(final int shardIndex)
+    {
+        return shards[shardIndex].currentUsers.get();
+    }
+
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    public DistributedSemaphore getSemaphore(final int shardIndex)
+    {
+        return shards[shardIndex].semaphore;
+    }
+
+    /**
+     * Free permits across all shards, from each semaphore's current value
+     */
+    public int getAvailablePermits()
+    {
+        int available = 0;
+        for (final ResourceShard shard : shards)
+        {
+            available += shard.semaphore.getValue();
+        }
+        return available;
+    }
+
+    /**
+     * Total permits across all shards
+     */
+    public int getMaxPermits()
+    {
+        int max = 0;
+        for (final ResourceShard shard : shards)
+        {
+            max += shard.semaphore.getMaxValue();
+        }
+        return max;
+    }
+
+    /**
+     * Permits reclaimed through lease expiry across all shards
+     */
+    public int getExpiredLeases()
+    {
+        int expired = 0;
+        for (final ResourceShard shard : shards)
+        {
+            expired += shard.semaphore.getExpiredLeases();
+        }
+        return expired;
+    }
+
+    /**
+     * Permits held longer than thresholdMs across all shards, which are likely leaked
+     */
+    public int countLongHeldPermits(final long thresholdMs)
+    {
+        int held = 0;
+        for (final ResourceShard shard : shards)
+        {
+            held += shard.semaphore.countLongHeldPermits(thresholdMs);
+        }
+        return held;
     }
 
     public String getId()
     {
         return resourceId;
     }
+
+    /**
+     * Dense index of this resource in the {@link ResourceRegistry}
+     */
+    public int getIndex()
+    {
+        return resourceIndex;
+    }
 }
\ No newline at end of file
@@ -1,75 +1,172 @@
-import javax.swing.SwingUtilities;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.text.ParseException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 public class CloudSyncSimulation
 {
-    // Add a visualizer field
-    private SimulationVisualizer visualizer;
+    // Permits held longer than this at the end of a faulty run are reported as leaked
+    private static final long LEAK_THRESHOLD_MS = 5000;
+
+    // Swing visualizer, or a no-op sink in headless runs
+    private VisualizerSink visualizer;
     private SimulationConfig config;
     private List<CloudResource> resources;
     private List<Container> containers;
     private MetricsCollector metrics;
+    private TraceRecorder traceRecorder;
+    private MetricsLog metricsLog;
+    private FaultInjector faultInjector;
+    private CoordinationClient coordinationClient;
+    private ReplicaCluster replicaCluster;
+    private MetricsEndpoint metricsEndpoint;
+    private Recording recording;
 
     public CloudSyncSimulation(SimulationConfig config) {
         this.config = config;
 
-        // Create visualizer
-        SwingUtilities.invokeLater(() -> {
-            visualizer = new SimulationVisualizer();
-            visualizer.setSyncEnabled(config.enableSynchronization);
-            visualizer.setStatus("Simulation initialized");
-            visualizer.runUITest();
-        });
+        // Create visualizer on the EDT, unless running headless
+        if (config.headless || GraphicsEnvironment.isHeadless()) {
+            visualizer = VisualizerSink.NONE;
+        } else {
+            visualizer = new EventThreadSink(SimulationVisualizer::new);
+        }
+        visualizer.setSyncEnabled(config.enableSynchronization);
+        visualizer.setStatus("Simulation initialized");
     }
 
     public void setup() {
         System.out.println("Setting up simulation with " + config.numContainers
                 + " containers and " + config.numResources + " resources...");
 
-        // Create metrics collector
+        // Create metrics collector, logging events to a mapped file if requested
         metrics = new MetricsCollector();
+        if (config.metricsLogFile != null) {
+            try {
+                metricsLog = new MetricsLog(Paths.get(config.metricsLogFile), MetricsCollector.configSection(config));
+                metrics = new MetricsCollector(metricsLog);
+            } catch (IOException e) {
+                System.err.println("Error creating metrics log: " + e.getMessage());
+            }
+        }
+        visualizer.attachMetrics(metrics);
+
+        faultInjector = FaultInjector.fromConfig(config);
+
+        // Keep permits in a coordination server, shared memory or replicas if configured,
+        // else in this JVM behind the configured wait queue policy
+        SemaphoreFactory semaphoreFactory = WaitQueuePolicy.fromConfig(config).localFactory();
+        boolean remotePermits = config.coordinatorAddress != null || config.sharedMemoryDirectory != null
+                || config.replicaNodes > 0;
+        if (remotePermits && config.maxQueueDepth > 0) {
+            System.err.println("Wait queue limits apply to in-JVM semaphores only; ignoring maxQueueDepth");
+        }
+        if (config.coordinatorAddress != null) {
+            coordinationClient = new CoordinationClient(config.coordinatorAddress, config.pipelineCoordinator);
+            semaphoreFactory = coordinationClient;
+        } else if (config.sharedMemoryDirectory != null) {
+            semaphoreFactory = new MappedSemaphoreFactory(Paths.get(config.sharedMemoryDirectory));
+        } else if (config.replicaNodes > 0) {
+            replicaCluster = new ReplicaCluster(config.replicaNodes, config.replicaMessageDelayMs);
+            semaphoreFactory = replicaCluster;
+        }
+
+        // Admit each tenant against its quota before the shared pool
+        TenantQuotas tenants = null;
+        if (config.tenants != null) {
+            tenants = TenantQuotas.parse(config.tenants);
+            semaphoreFactory = TenantSemaphore.factory(semaphoreFactory, tenants);
+            metrics.setTenants(tenants);
+        }
+
+        int numContainers = tenants != null ? tenants.getTotalContainers() : config.numContainers;
+        RateLimiter rateLimiter = RateLimiter.fromConfig(config, numContainers);
 
         // Create resources
         resources = new ArrayList<>();
         for (int i = 0; i < config.numResources; i++) {
-            String resourceId = "resource_" + i;
-            CloudResource resource = new CloudResource(resourceId, config.maxConcurrentAccess);
+            CloudResource resource = createResource(config, i, faultInjector, semaphoreFactory, rateLimiter);
+            // Console output per access would dominate headless runs
+            resource.setLogAccesses(config.enableLogging && !config.headless);
             resources.add(resource);
+            for (int shard = 0; shard < resource.getShardCount(); shard++) {
+                metrics.addSemaphore(resource.getSemaphore(shard));
+            }
 
             // Register with visualizer
-            final String resId = resourceId;
-            SwingUtilities.invokeLater(() -> {
-                if (visualizer != null) {
-                    visualizer.registerResource(resId);
-                }
-            });
+            visualizer.registerResource(resource.getIndex(), resource.getMaxPermits());
         }
 
-        // Create containers
+        // Record a replayable trace if requested
+        if (config.traceOutputFile != null) {
+            try {
+                traceRecorder = new TraceRecorder(config.traceOutputFile, config);
+            } catch (IOException e) {
+                System.err.println("Error creating trace file: " + e.getMessage());
+            }
+        }
+
+        // Create containers, each with its own stream split from the run seed
         containers = new ArrayList<>();
-        for (int i = 0; i < config.numContainers; i++) {
+        SplittableRandom runRandom = new SplittableRandom(config.randomSeed);
+        LatencyDistribution networkLatency = config.networkLatency();
+        LatencyDistribution processingTime = config.processingTime();
+        for (int i = 0; i < numContainers; i++) {
+            // A tenant's own rate may be faster than the floor, so the floor gives way to it
+            int tenantRateMs = tenants != null ? tenants.getRequestRateMeanMs(tenants.tenantOf(i), 0) : 0;
+            int requestRateMeanMs = tenantRateMs > 0 ? tenantRateMs : config.requestRateMeanMs;
+            int minRequestIntervalMs = tenantRateMs > 0
+                    ? Math.min(config.minRequestIntervalMs, tenantRateMs)
+                    : config.minRequestIntervalMs;
             Container container = new Container(
                     i, resources, config.enableSynchronization,
-                    config.networkLatencyMeanMs, config.networkLatencyStdDevMs,
-                    config.processingTimeMeanMs, config.processingTimeStdDevMs,
-                    config.requestRateMeanMs, config.requestRateStdDevMs,
-                    metrics, visualizer
+                    networkLatency, processingTime,
+                    requestRateMeanMs, config.requestRateStdDevMs, minRequestIntervalMs,
+                    metrics, visualizer, traceRecorder, runRandom.split()
             );
             containers.add(container);
         }
     }
 
     public void run() {
-        SwingUtilities.invokeLater(() -> {
-            if (visualizer != null) {
-                visualizer.setStatus("Starting simulation " +
-                        (config.enableSynchronization ? "with" : "without") +
-                        " synchronization...");
+        visualizer.setStatus("Starting simulation " +
+                (config.enableSynchronization ? "with" : "without") +
+                " synchronization...");
+
+        // Record the cloudsync.* JFR events alongside GC and thread activity
+        if (config.jfrOutputFile != null) {
+            try {
+                recording = new Recording(Configuration.getConfiguration("default"));
+                recording.setName("CloudSyncSimulation");
+                recording.setDestination(Paths.get(config.jfrOutputFile));
+                recording.start();
+            } catch (IOException | ParseException e) {
+                System.err.println("Error starting flight recording: " + e.getMessage());
+                recording = null;
+            }
+        }
+
+        if (faultInjector != null) {
+            faultInjector.start();
+        }
+
+        // Serve live metrics while the containers run
+        if (config.metricsPort > 0) {
+            try {
+                metricsEndpoint = new MetricsEndpoint(config.metricsPort, metrics, resources);
+                System.out.println("Live metrics at http://localhost:" + metricsEndpoint.getPort() + "/metrics");
+            } catch (IOException e) {
+                System.err.println("Error starting metrics endpoint: " + e.getMessage());
             }
-        });
+        }
 
         // Start all containers
+        metrics.markStarted();
         for (Container container : containers) {
             container.start();
         }
@@ -81,29 +178,96 @@ public class CloudSyncSimulation
             Thread.currentThread().interrupt();
         }
 
-        // Stop all containers
-        for (Container container : containers) {
-            container.stop();
+        shutdown();
+
+        if (metricsEndpoint != null) {
+            metricsEndpoint.close();
         }
 
-        SwingUtilities.invokeLater(() -> {
-            if (visualizer != null) {
-                visualizer.setStatus("Simulation completed");
-            }
-        });
+        if (recording != null) {
+            // Stopping writes the recording to its destination
+            recording.stop();
+            recording.close();
+            System.out.println("Flight recording written to " + config.jfrOutputFile);
+        }
+
+        visualizer.setStatus("Simulation completed");
+
+        if (traceRecorder != null) {
+            traceRecorder.close();
+        }
 
         // Print and save results
         printResults();
         metrics.saveToFile(config.metricsOutputFile, config);
+        if (config.timeSeriesOutputFile != null) {
+            metrics.saveTimeSeries(config.timeSeriesOutputFile);
+        }
+        if (config.columnarOutputFile != null) {
+            metrics.saveToColumnar(config.columnarOutputFile);
+        }
+        if (metricsLog != null) {
+            metricsLog.close();
+        }
+
+        if (coordinationClient != null) {
+            coordinationClient.close();
+        }
+        if (replicaCluster != null) {
+            replicaCluster.close();
+        }
+    }
+
+    /**
+     * Resource with the configured shards, lease, acquire timeout and rate limit
+     */
+    static CloudResource createResource(SimulationConfig config, int index, FaultInjector faults,
+                                        SemaphoreFactory semaphoreFactory, RateLimiter rateLimiter) {
+        return new CloudResource("resource_" + index, config.maxConcurrentAccess, config.shardsPerResource,
+                config.leaseTimeoutMs, faults, semaphoreFactory, rateLimiter, config.acquireTimeoutMs);
+    }
+
+    /**
+     * Stop issuing requests, let in-flight accesses finish until the drain deadline,
+     * then interrupt any stragglers, so the metrics cover every request that started
+     */
+    private void shutdown() {
+        int inFlight = 0;
+        for (Container container : containers) {
+            if (container.isInFlight()) {
+                inFlight++;
+            }
+        }
+        System.out.println("Stopping: draining " + inFlight + " in-flight requests...");
+
+        long start = System.nanoTime();
+        int interrupted = Container.stopAll(containers, config.drainTimeoutMs);
+        metrics.markFinished();
+
+        System.out.println("Drained in " + (System.nanoTime() - start) / 1_000_000 + " ms"
+                + (interrupted > 0 ? ", " + interrupted + " containers interrupted at the deadline" : ""));
+    }
+
+    public MetricsCollector getMetrics() {
+        return metrics;
     }
 
     private void printResults() {
         System.out.println("\n==== Simulation Results ====");
         System.out.println("Configuration:");
-        System.out.println("- Containers: " + config.numContainers);
+        System.out.println("- Containers: " + containers.size());
+        if (config.tenants != null) {
+            System.out.println("- Tenants: " + config.tenants);
+        }
         System.out.println("- Resources: " + config.numResources);
+        System.out.println("- Shards per resource: " + config.shardsPerResource);
+        if (replicaCluster != null) {
+            System.out.println("- Replica nodes: " + replicaCluster.getLiveNodes() + "/" + config.replicaNodes
+                    + " live (quorum " + replicaCluster.quorum() + ")");
+        }
         System.out.println("- Synchronization: " + (config.enableSynchronization ? "Enabled" : "Disabled"));
         System.out.println("- Duration: " + config.simulationTimeSeconds + " seconds");
+        System.out.println("- Random seed: " + config.randomSeed);
 
         // Print resource statistics
         System.out.println("\nResource Statistics:");
@@ -112,6 +276,12 @@ public class CloudSyncSimulation
             System.out.println("- Resource " + i + " (ID: " + resource.getId() + "):");
             System.out.println("  - Total accesses: " + resource.getTotalAccesses());
             System.out.println("  - Conflicts: " + resource.getConflictCount());
+            if (config.leaseTimeoutMs > 0) {
+                System.out.println("  - Expired leases: " + resource.getExpiredLeases());
+            }
+            if (faultInjector != null) {
+                System.out.println("  - Leaked permits: " + resource.countLongHeldPermits(LEAK_THRESHOLD_MS));
+            }
         }
 
         // Print overall metrics
@@ -0,0 +1,52 @@
+/**
+ * Columnar result file layout shared by {@link ColumnarResultWriter} and
+ * {@link ColumnarResultReader}.
+ *
+ * Header: int magic "CSCL", byte version, varint row count, varint dictionary
+ * size and each resource name as UTF, then varint column count and for each
+ * column its UTF name, byte encoding and varint compressed length. The column
+ * blocks follow in the same order, each deflated on its own so a reader can
+ * skip straight to the columns it needs.
+ *
+ * Values inside a block are varints (see {@link TraceFormat}); DELTA columns
+ * store the zigzag-encoded difference from the previous row, and DICTIONARY
+ * columns store an index into the resource dictionary.
+ */
+final class ColumnarFormat
+{
+    static final int MAGIC   = 0x4353434C;
+    static final int VERSION = 1;
+
+    static final byte ENCODING_VARINT     = 0;
+    static final byte ENCODING_DELTA      = 1;
+    static final byte ENCODING_DICTIONARY = 2;
+
+    static final String CONTAINER_ID    = "ContainerId";
+    static final String RESOURCE_ID     = "ResourceId";
+    static final String OFFSET_MS       = "OffsetMs";
+    static final String ACQUIRE_TIME    = "AcquireTimeMs";
+    static final String PROCESSING_TIME = "ProcessingTimeMs";
+    static final String TOTAL_TIME      = "TotalTimeMs";
+
+    // Columns of an access log file, in file order
+    static final String[] ACCESS_COLUMNS = {
+            CONTAINER_ID, RESOURCE_ID, OFFSET_MS, ACQUIRE_TIME, PROCESSING_TIME, TOTAL_TIME
+    };
+    static final byte[] ACCESS_ENCODINGS = {
+            ENCODING_VARINT, ENCODING_DICTIONARY, ENCODING_DELTA, ENCODING_VARINT, ENCODING_VARINT, ENCODING_VARINT
+    };
+
+    private ColumnarFormat()
+    {
+    }
+
+    static long zigzag(final long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(final long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a columnar result file (see {@link ColumnarFormat}). Aggregates only
+ * decompress and decode the columns they use, so a mean of one timing column
+ * reads a sixth of the data a CSV scan would.
+ *
+ * Usage: ColumnarResultReader results.col
+ */
+public class ColumnarResultReader implements AutoCloseable
+{
+    private final RandomAccessFile file;
+    private final long rowCount;
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Byte> encodings = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> lengths = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: ColumnarResultReader <results.col>");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        try (ColumnarResultReader reader = new ColumnarResultReader(args[0]))
+        {
+            System.out.println("Rows: " + reader.getRowCount());
+            System.out.println("Resources: " + reader.getDictionary().size());
+            System.out.println("Average acquire time: " + reader.mean(ColumnarFormat.ACQUIRE_TIME) + " ms");
+            System.out.println("Total time p50/p95/p99: "
+                    + reader.percentile(ColumnarFormat.TOTAL_TIME, 50) + " / "
+                    + reader.percentile(ColumnarFormat.TOTAL_TIME, 95) + " / "
+                    + reader.percentile(ColumnarFormat.TOTAL_TIME, 99) + " ms");
+            for (final Map.Entry<String, Double> entry : reader.meanByResource(ColumnarFormat.ACQUIRE_TIME).entrySet())
+            {
+                System.out.println("  " + entry.getKey() + " average acquire: " + entry.getValue() + " ms");
+            }
+        }
+        System.out.println("Analysis time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public ColumnarResultReader(final String filename) throws IOException
+    {
+        file = new RandomAccessFile(filename, "r");
+        try
+        {
+            if (file.readInt() != ColumnarFormat.MAGIC || file.readByte() != ColumnarFormat.VERSION)
+            {
+                throw new IOException(filename + " is not a columnar result file");
+            }
+            rowCount = TraceFormat.readVarLong(file);
+
+            int dictionarySize = TraceFormat.readVarInt(file);
+            for (int i = 0; i < dictionarySize; i++)
+            {
+                dictionary.add(file.readUTF());
+            }
+
+            int columnCount = TraceFormat.readVarInt(file);
+            for (int i = 0; i < columnCount; i++)
+            {
+                columnNames.add(file.readUTF());
+                encodings.add(file.readByte());
+                lengths.add(TraceFormat.readVarInt(file));
+            }
+
+            long offset = file.getFilePointer();
+            for (final int length : lengths)
+            {
+                offsets.add(offset);
+                offset += length;
+            }
+        }
+        catch (final IOException e)
+        {
+            file.close();
+            throw e;
+        }
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Resource names, indexed by the values of the ResourceId column
+     */
+    public List<String> getDictionary()
+    {
+        return Collections.unmodifiableList(dictionary);
+    }
+
+    public List<String> getColumnNames()
+    {
+        return Collections.unmodifiableList(columnNames);
+    }
+
+    /**
+     * Decode one column. Dictionary columns return resource indexes.
+     */
+    public long[] readColumn(final String name) throws IOException
+    {
+        int column = columnNames.indexOf(name);
+        if (column < 0)
+        {
+            throw new IllegalArgumentException("No column " + name);
+        }
+
+        byte[] block = new byte[lengths.get(column)];
+        file.seek(offsets.get(column));
+        file.readFully(block);
+
+        long[] values = new long[(int) rowCount];
+        boolean delta = encodings.get(column) == ColumnarFormat.ENCODING_DELTA;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(block)), 64 * 1024)))
+        {
+            long previous = 0;
+            for (int i = 0; i < values.length; i++)
+            {
+                long value = TraceFormat.readVarLong(in);
+                if (delta)
+                {
+                    value = previous + ColumnarFormat.unzigzag(value);
+                    previous = value;
+                }
+                values[i] = value;
+            }
+        }
+        return values;
+    }
+
+    public double mean(final String name) throws IOException
+    {
+        long[] values = readColumn(name);
+        long sum = 0;
+        for (final long value : values)
+        {
+            sum += value;
+        }
+        return values.length == 0 ? 0 : (double) sum / values.length;
+    }
+
+    /**
+     * Nearest-rank percentile of a column
+     */
+    public long percentile(final String name,
+                           final double percent) throws IOException
+    {
+        long[] values = readColumn(name);
+        Arrays.sort(values);
+        return MetricsCollector.percentile(values, percent);
+    }
+
+    /**
+     * Mean of a column per resource, reading only that column and ResourceId
+     */
+    public Map<String, Double> meanByResource(final String name) throws IOException
+    {
+        long[] resources = readColumn(ColumnarFormat.RESOURCE_ID);
+        long[] values = readColumn(name);
+        long[] sums = new long[dictionary.size()];
+        long[] counts = new long[dictionary.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            sums[(int) resources[i]] += values[i];
+            counts[(int) resources[i]]++;
+        }
+
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (int i = 0; i < sums.length; i++)
+        {
+            means.put(dictionary.get(i), counts[i] == 0 ? 0 : (double) sums[i] / counts[i]);
+        }
+        return means;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        file.close();
+    }
+}
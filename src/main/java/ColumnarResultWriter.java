@@ -0,0 +1,118 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes access rows to a columnar result file (see {@link ColumnarFormat}).
+ * Each column is encoded and compressed in memory as rows arrive, so only the
+ * compressed bytes are held until the file is written on close.
+ */
+class ColumnarResultWriter implements AutoCloseable
+{
+    private final String filename;
+    private final ByteArrayOutputStream[] blocks = new ByteArrayOutputStream[ColumnarFormat.ACCESS_COLUMNS.length];
+    private final DataOutputStream[] columns     = new DataOutputStream[ColumnarFormat.ACCESS_COLUMNS.length];
+    private final IntFunction<String> resourceNames;
+
+    // Resource index -> dictionary position (-1 until first seen), and the reverse
+    private int[] dictionaryPositions = new int[0];
+    private final List<Integer> dictionary = new ArrayList<>();
+    private long rowCount;
+    private long previousOffsetMs;
+
+    /**
+     * @param resourceNames resolves the resource indexes passed to addRow for the dictionary
+     */
+    public ColumnarResultWriter(final String filename,
+                                final IntFunction<String> resourceNames)
+    {
+        this.filename      = filename;
+        this.resourceNames = resourceNames;
+        for (int i = 0; i < columns.length; i++)
+        {
+            blocks[i]  = new ByteArrayOutputStream();
+            columns[i] = new DataOutputStream(
+                    new BufferedOutputStream(new DeflaterOutputStream(blocks[i]), 64 * 1024));
+        }
+    }
+
+    /**
+     * Append one access
+     * @param offsetMs time of the access since the start of the run
+     */
+    public void addRow(final int containerId,
+                       final int resourceIndex,
+                       final long offsetMs,
+                       final long acquireTime,
+                       final int processingTime,
+                       final long totalTime) throws IOException
+    {
+        if (resourceIndex >= dictionaryPositions.length)
+        {
+            int oldLength = dictionaryPositions.length;
+            dictionaryPositions = Arrays.copyOf(dictionaryPositions, Math.max(resourceIndex + 1, oldLength * 2));
+            Arrays.fill(dictionaryPositions, oldLength, dictionaryPositions.length, -1);
+        }
+        int position = dictionaryPositions[resourceIndex];
+        if (position < 0)
+        {
+            position = dictionary.size();
+            dictionary.add(resourceIndex);
+            dictionaryPositions[resourceIndex] = position;
+        }
+
+        TraceFormat.writeVarLong(columns[0], containerId);
+        TraceFormat.writeVarLong(columns[1], position);
+        TraceFormat.writeVarLong(columns[2], ColumnarFormat.zigzag(offsetMs - previousOffsetMs));
+        TraceFormat.writeVarLong(columns[3], acquireTime);
+        TraceFormat.writeVarLong(columns[4], processingTime);
+        TraceFormat.writeVarLong(columns[5], totalTime);
+        previousOffsetMs = offsetMs;
+        rowCount++;
+    }
+
+    /**
+     * Finish the column blocks and write the file
+     */
+    @Override
+    public void close() throws IOException
+    {
+        for (final DataOutputStream column : columns)
+        {
+            column.close();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename), 64 * 1024)))
+        {
+            out.writeInt(ColumnarFormat.MAGIC);
+            out.writeByte(ColumnarFormat.VERSION);
+            TraceFormat.writeVarLong(out, rowCount);
+
+            TraceFormat.writeVarLong(out, dictionary.size());
+            for (final int resourceIndex : dictionary)
+            {
+                out.writeUTF(resourceNames.apply(resourceIndex));
+            }
+
+            TraceFormat.writeVarLong(out, columns.length);
+            for (int i = 0; i < columns.length; i++)
+            {
+                out.writeUTF(ColumnarFormat.ACCESS_COLUMNS[i]);
+                out.writeByte(ColumnarFormat.ACCESS_ENCODINGS[i]);
+                TraceFormat.writeVarLong(out, blocks[i].size());
+            }
+            for (final ByteArrayOutputStream block : blocks)
+            {
+                block.writeTo(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several variants of one seeded workload, back to back or side by side,
+ * and writes a single report comparing each variant against the first.
+ *
+ * Every variant gets the runner's seed, so all of them see the same request
+ * stream, unless the runner is built without one. Each variant also gets its own
+ * metrics file, and its own event log, columnar and time series files if those are
+ * set, so runs never write into each other's output.
+ * Side-by-side runs share the machine's cores, which can skew throughput.
+ *
+ * Usage: ComparisonRunner [sequential|concurrent] [seconds] [report-file]
+ */
+public class ComparisonRunner
+{
+    // Seed given to every variant, or null to keep each variant's own
+    private final Long seed;
+    private final List<String> names = new ArrayList<>();
+    private final List<SimulationConfig> configs = new ArrayList<>();
+
+    public ComparisonRunner(final long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Runner that keeps each variant's own seed, e.g. for a sweep over seeds
+     */
+    public ComparisonRunner()
+    {
+        this.seed = null;
+    }
+
+    public static void main(String[] args)
+    {
+        boolean concurrent = args.length > 0 && args[0].equals("concurrent");
+        int seconds        = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String reportFile  = args.length > 2 ? args[2] : "comparison_report.csv";
+
+        System.out.println("Starting Synchronization Comparison");
+        System.out.println("===================================");
+
+        ComparisonRunner runner = new ComparisonRunner(42L);
+        for (final boolean sync : new boolean[] {true, false})
+        {
+            SimulationConfig config = new SimulationConfig();
+            config.simulationTimeSeconds = seconds;
+            config.enableSynchronization = sync;
+            config.headless              = true;
+            runner.add(sync ? "sync" : "no_sync", config);
+        }
+
+        List<Result> results = runner.run(concurrent);
+        printReport(results);
+        saveReport(reportFile, results);
+    }
+
+    /**
+     * Output file of one variant: "comparison_<name>_" before the file name, or null if unset
+     */
+    private static String perVariant(final String file,
+                                     final String name)
+    {
+        if (file == null)
+        {
+            return null;
+        }
+        Path path = Paths.get(file);
+        return path.resolveSibling("comparison_" + name + "_" + path.getFileName()).toString();
+    }
+
+    /**
+     * Add a variant; the first one added is the baseline the others are compared to
+     */
+    public ComparisonRunner add(final String name,
+                                final SimulationConfig config)
+    {
+        if (seed != null)
+        {
+            config.randomSeed = seed;
+        }
+        config.metricsOutputFile    = "comparison_" + name + "_metrics.csv";
+        config.metricsLogFile       = perVariant(config.metricsLogFile, name);
+        config.columnarOutputFile   = perVariant(config.columnarOutputFile, name);
+        config.timeSeriesOutputFile = perVariant(config.timeSeriesOutputFile, name);
+        names.add(name);
+        configs.add(config);
+        return this;
+    }
+
+    /**
+     * Run every variant to completion
+     * @param concurrent run all variants at once instead of one after another
+     * @return one result per variant, in the order they were added
+     */
+    public List<Result> run(final boolean concurrent)
+    {
+        List<CloudSyncSimulation> simulations = new ArrayList<>();
+        for (int i = 0; i < configs.size(); i++)
+        {
+            System.out.println("\nSetting up variant " + names.get(i) + "...");
+            CloudSyncSimulation simulation = new CloudSyncSimulation(configs.get(i));
+            simulation.setup();
+            simulations.add(simulation);
+        }
+
+        if (concurrent)
+        {
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < simulations.size(); i++)
+            {
+                Thread thread = new Thread(simulations.get(i)::run, "variant-" + names.get(i));
+                thread.start();
+                threads.add(thread);
+            }
+            for (final Thread thread : threads)
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        else
+        {
+            for (final CloudSyncSimulation simulation : simulations)
+            {
+                simulation.run();
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < simulations.size(); i++)
+        {
+            results.add(new Result(names.get(i), configs.get(i).simulationTimeSeconds,
+                    simulations.get(i).getMetrics()));
+        }
+        return results;
+    }
+
+    /**
+     * Headline numbers of one variant's run
+     */
+    static final class Result
+    {
+        // Report rows, in order
+        static final String[] METRICS = {
+                "Throughput (ops/sec)", "Successful Requests", "Conflicts", "Timeouts", "Shed", "Rate Limited",
+                "Mean Total Time (ms)", "P50 Total Time (ms)", "P95 Total Time (ms)", "P99 Total Time (ms)"
+        };
+
+        final String name;
+        final double[] values;
+
+        Result(final String name,
+               final int seconds,
+               final MetricsCollector metrics)
+        {
+            long[] totalTimes = metrics.sortedTotalTimes();
+            this.name   = name;
+            this.values = new double[] {
+                    (double) metrics.getSuccessfulRequests() / Math.max(1, seconds),
+                    metrics.getSuccessfulRequests(),
+                    metrics.getConflictCount(),
+                    metrics.getTimeoutCount(),
+                    metrics.getShedCount(),
+                    metrics.getRateLimitedCount(),
+                    metrics.getAverageTotalTime(),
+                    MetricsCollector.percentile(totalTimes, 50),
+                    MetricsCollector.percentile(totalTimes, 95),
+                    MetricsCollector.percentile(totalTimes, 99)
+            };
+        }
+    }
+
+    /**
+     * Change from the baseline in percent, or NaN when the baseline is zero
+     */
+    private static double change(final double baseline,
+                                 final double value)
+    {
+        return baseline == 0 ? Double.NaN : 100 * (value - baseline) / baseline;
+    }
+
+    private static String format(final double value)
+    {
+        return Double.isNaN(value) ? "n/a" : String.format("%.2f", value);
+    }
+
+    /**
+     * Print each metric for every variant with its change from the baseline
+     */
+    static void printReport(final List<Result> results)
+    {
+        Result baseline = results.get(0);
+        System.out.println("\n==== Comparison (baseline: " + baseline.name + ") ====");
+        for (int m = 0; m < Result.METRICS.length; m++)
+        {
+            StringBuilder line = new StringBuilder(String.format("%-22s", Result.METRICS[m]));
+            line.append(String.format("%s %s", baseline.name, format(baseline.values[m])));
+            for (int i = 1; i < results.size(); i++)
+            {
+                Result result = results.get(i);
+                double change = change(baseline.values[m], result.values[m]);
+                line.append(String.format(" | %s %s (%s)", result.name, format(result.values[m]),
+                        Double.isNaN(change) ? "n/a" : format(change) + "%"));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Save the comparison as CSV: a column per variant, then a change column per non-baseline variant
+     */
+    static void saveReport(final String filename,
+                           final List<Result> results)
+    {
+        Result baseline = results.get(0);
+        try (FileWriter writer = new FileWriter(filename))
+        {
+            writer.write("Metric");
+            for (final Result result : results)
+            {
+                writer.write("," + result.name);
+            }
+            for (int i = 1; i < results.size(); i++)
+            {
+                writer.write("," + results.get(i).name + " vs " + baseline.name + " (%)");
+            }
+            writer.write("\n");
+
+            for (int m = 0; m < Result.METRICS.length; m++)
+            {
+                writer.write(Result.METRICS[m]);
+                for (final Result result : results)
+                {
+                    writer.write("," + result.values[m]);
+                }
+                for (int i = 1; i < results.size(); i++)
+                {
+                    double change = change(baseline.values[m], results.get(i).values[m]);
+                    writer.write("," + (Double.isNaN(change) ? "" : String.format("%.2f", change)));
+                }
+                writer.write("\n");
+            }
+
+            System.out.println("Comparison saved to " + filename);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving comparison: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for an access that found more users on a shard than it has permits
+ */
+@Name("cloudsync.Conflict")
+@Label("Resource Conflict")
+@Category({"Cloud Sync", "Semaphore"})
+@Description("Access that found more concurrent users than permits")
+@StackTrace(false)
+class ConflictEvent extends Event
+{
+    @Label("Container")
+    int containerId;
+
+    @Label("Resource")
+    String resource;
+
+    @Label("Shard")
+    int shard;
+
+    @Label("Users")
+    int users;
+
+    @Label("Permits")
+    int permits;
+}
@@ -4,12 +4,12 @@
 class ConflictLogEntry
 {
     final int containerId;
-    final String resourceId;
+    final int resourceIndex;    // See ResourceRegistry
 
     public ConflictLogEntry(final int containerId,
-                            final String resourceId)
+                            final int resourceIndex)
     {
         this.containerId = containerId;
-        this.resourceId  = resourceId;
+        this.resourceIndex = resourceIndex;
     }
 }
\ No newline at end of file
@@ -1,52 +1,119 @@
-import javax.swing.SwingUtilities;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class Container implements Runnable {
     private final int containerId;
     private final List<CloudResource> resources;
     private final boolean enableSync;
-    private final Random random = new Random();
+    private final SplittableRandom random;
     private final MetricsCollector metrics;
-    private final SimulationVisualizer visualizer;
+    private final VisualizerSink visualizer;
+    private final TraceRecorder traceRecorder;
     private volatile boolean running = false;
+    private volatile boolean inFlight = false;
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+    private Thread thread;
 
-    // Normal distribution parameters
-    private final int networkLatencyMeanMs;
-    private final int networkLatencyStdDevMs;
-    private final int processingTimeMeanMs;
-    private final int processingTimeStdDevMs;
+    // Sampling distributions
+    private final LatencyDistribution networkLatency;
+    private final LatencyDistribution processingTime;
     private final int requestRateMeanMs;
     private final int requestRateStdDevMs;
+    private final int minRequestIntervalMs;
 
     public Container(int id, List<CloudResource> resources, boolean enableSync,
-                     int networkLatencyMeanMs, int networkLatencyStdDevMs,
-                     int processingTimeMeanMs, int processingTimeStdDevMs,
-                     int requestRateMeanMs, int requestRateStdDevMs,
-                     MetricsCollector metrics, SimulationVisualizer visualizer) {
+                     LatencyDistribution networkLatency, LatencyDistribution processingTime,
+                     int requestRateMeanMs, int requestRateStdDevMs, int minRequestIntervalMs,
+                     MetricsCollector metrics, VisualizerSink visualizer,
+                     TraceRecorder traceRecorder, SplittableRandom random) {
         this.containerId = id;
         this.resources = resources;
         this.enableSync = enableSync;
-        this.networkLatencyMeanMs = networkLatencyMeanMs;
-        this.networkLatencyStdDevMs = networkLatencyStdDevMs;
-        this.processingTimeMeanMs = processingTimeMeanMs;
-        this.processingTimeStdDevMs = processingTimeStdDevMs;
+        this.networkLatency = networkLatency;
+        this.processingTime = processingTime;
         this.requestRateMeanMs = requestRateMeanMs;
         this.requestRateStdDevMs = requestRateStdDevMs;
+        this.minRequestIntervalMs = minRequestIntervalMs;
         this.metrics = metrics;
         this.visualizer = visualizer;
+        this.traceRecorder = traceRecorder;
 
-        // Seed with container ID for more reproducible results
-        random.setSeed(System.currentTimeMillis() + id);
+        // Each container owns a stream split from the run-level generator,
+        // so sampling is reproducible and never contends across threads
+        this.random = random;
     }
 
     public void start() {
         running = true;
-        new Thread(this).start();
+        thread = new Thread(this, "container-" + containerId);
+        thread.start();
     }
 
+    /**
+     * Stop issuing requests. A request in flight runs to completion; a container
+     * waiting between requests exits at once.
+     */
     public void stop() {
         running = false;
+        stopSignal.countDown();
+    }
+
+    /**
+     * True while the container is inside a resource access
+     */
+    public boolean isInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Wait for the container's thread to exit after {@link #stop()}, interrupting
+     * it if it is still running at the deadline
+     * @param deadlineNanos System.nanoTime() by which the thread should have exited
+     * @return true if the thread exited on its own before the deadline
+     */
+    public boolean awaitTermination(long deadlineNanos) throws InterruptedException {
+        if (thread == null) {
+            return true;
+        }
+
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMs > 0) {
+            thread.join(remainingMs);
+        }
+        if (!thread.isAlive()) {
+            return true;
+        }
+
+        // Cuts the access short; the permit is still released on the way out
+        thread.interrupt();
+        thread.join();
+        return false;
+    }
+
+    /**
+     * Stop every container and wait for their in-flight requests, interrupting
+     * any still running timeoutMs from now
+     * @return number of containers interrupted at the deadline
+     */
+    static int stopAll(List<Container> containers, long timeoutMs) {
+        for (Container container : containers) {
+            container.stop();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int interrupted = 0;
+        try {
+            for (Container container : containers) {
+                if (!container.awaitTermination(deadline)) {
+                    interrupted++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return interrupted;
     }
 
     @Override
@@ -55,20 +122,48 @@ public class Container implements Runnable {
             // Select a random resource to access
             int resourceIndex = random.nextInt(resources.size());
             CloudResource resource = resources.get(resourceIndex);
+            int shardIndex = selectShard(resource);
+
+            // Sample the request's timings up front so they can be traced and replayed
+            int acquireLatency = networkLatency.sample(random);
+            int processing = processingTime.sample(random);
+            int releaseLatency = networkLatency.sample(random);
+
+            if (traceRecorder != null) {
+                traceRecorder.record(containerId, resourceIndex, shardIndex,
+                        acquireLatency, processing, releaseLatency);
+            }
 
             // Access the resource with or without synchronization
-            if (enableSync) {
-                accessWithSync(resource);
-            } else {
-                accessWithoutSync(resource);
+            ContainerRequestEvent requestEvent = new ContainerRequestEvent();
+            requestEvent.begin();
+            inFlight = true;
+            try {
+                if (enableSync) {
+                    resource.accessWithSync(containerId, shardIndex,
+                            acquireLatency, processing, releaseLatency, metrics, visualizer);
+                } else {
+                    resource.accessWithoutSync(containerId, shardIndex,
+                            acquireLatency, processing, releaseLatency, metrics, visualizer);
+                }
+            } catch (ContainerCrashedException e) {
+                // Injected crash: this container is gone for the rest of the run
+                commitRequest(requestEvent, resource, shardIndex, true);
+                running = false;
+                break;
+            } finally {
+                inFlight = false;
             }
+            commitRequest(requestEvent, resource, shardIndex, false);
 
-            // Wait before next request
-            int waitTime = Math.max(500, (int)(random.nextGaussian() *
+            // Wait before next request, waking early if stopped
+            int waitTime = Math.max(minRequestIntervalMs, (int)(random.nextGaussian() *
                     requestRateStdDevMs +
                     requestRateMeanMs));
             try {
-                Thread.sleep(waitTime);
+                if (stopSignal.await(waitTime, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -76,43 +171,37 @@ public class Container implements Runnable {
         }
     }
 
-    private void accessWithSync(CloudResource resource)
+    /**
+     * Route a request to one of the resource's shards using power-of-two-choices:
+     * sample two shards at random and pick the one with fewer current users
+     */
+    private int selectShard(CloudResource resource)
     {
-        long startTime = System.currentTimeMillis();
-
-        // Access with synchronization
-        resource.accessWithSync(containerId, random,
-                networkLatencyMeanMs, networkLatencyStdDevMs,
-                processingTimeMeanMs, processingTimeStdDevMs,
-                metrics, visualizer);
-
-        long endTime = System.currentTimeMillis();
-        long responseTime = endTime - startTime;
+        int shardCount = resource.getShardCount();
+        if (shardCount == 1) {
+            return 0;
+        }
 
-        // Update visualizer with response time
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.updateResponseTime(responseTime));
+        int first = random.nextInt(shardCount);
+        int second = random.nextInt(shardCount - 1);
+        if (second >= first) {
+            second++;
         }
+
+        return resource.getCurrentUsers(second) < resource.getCurrentUsers(first) ? second : first;
     }
 
-    private void accessWithoutSync(CloudResource resource)
+    private void commitRequest(ContainerRequestEvent event, CloudResource resource,
+                               int shardIndex, boolean crashed)
     {
-        long startTime = System.currentTimeMillis();
-
-        // Access without synchronization
-        resource.accessWithoutSync(containerId, random,
-                networkLatencyMeanMs, networkLatencyStdDevMs,
-                processingTimeMeanMs, processingTimeStdDevMs,
-                metrics, visualizer);
-
-        long endTime = System.currentTimeMillis();
-        long responseTime = endTime - startTime;
-
-        // Update visualizer with response time
-        if (visualizer != null) {
-            SwingUtilities.invokeLater(() ->
-                    visualizer.updateResponseTime(responseTime));
+        event.end();
+        if (event.shouldCommit()) {
+            event.containerId = containerId;
+            event.resource = resource.getId();
+            event.shard = shardIndex;
+            event.synchronizedAccess = enableSync;
+            event.crashed = crashed;
+            event.commit();
         }
     }
-}
\ No newline at end of file
+}
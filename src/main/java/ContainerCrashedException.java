@@ -0,0 +1,14 @@
+/**
+ * Thrown inside a container's access when fault injection kills the container
+ * while it holds a permit. The permit is intentionally never released.
+ */
+class ContainerCrashedException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public ContainerCrashedException(final int containerId,
+                                     final String resourceId)
+    {
+        super("Container " + containerId + " crashed while holding " + resourceId);
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs a group of containers in their own JVM against resources whose permits
+ * are held by a {@link CoordinationServer}. Started by {@link MultiProcessRunner}.
+ * Prints a final "RESULT successful timeouts avgAcquireMs" line.
+ *
+ * Usage: ContainerProcess host:port process-index containers seconds [resources]
+ */
+public class ContainerProcess
+{
+    public static void main(String[] args)
+    {
+        if (args.length < 4)
+        {
+            System.err.println("Usage: ContainerProcess <host:port> <process-index> <containers> <seconds> [resources]");
+            System.exit(1);
+        }
+
+        SimulationConfig config = new SimulationConfig();
+        config.coordinatorAddress    = args[0];
+        int processIndex             = Integer.parseInt(args[1]);
+        config.numContainers         = Integer.parseInt(args[2]);
+        config.simulationTimeSeconds = Integer.parseInt(args[3]);
+        if (args.length > 4)
+        {
+            config.numResources = Integer.parseInt(args[4]);
+        }
+
+        MetricsCollector metrics = new MetricsCollector();
+        try (CoordinationClient client = new CoordinationClient(config.coordinatorAddress, config.pipelineCoordinator))
+        {
+            List<CloudResource> resources = new ArrayList<>();
+            for (int i = 0; i < config.numResources; i++)
+            {
+                resources.add(new CloudResource("resource_" + i, config.maxConcurrentAccess,
+                        config.shardsPerResource, config.leaseTimeoutMs, null, client));
+            }
+
+            // Distinct seed and container ids per process
+            SplittableRandom runRandom = new SplittableRandom(config.randomSeed + processIndex);
+            LatencyDistribution networkLatency = config.networkLatency();
+            LatencyDistribution processingTime = config.processingTime();
+            List<Container> containers = new ArrayList<>();
+            for (int i = 0; i < config.numContainers; i++)
+            {
+                containers.add(new Container(
+                        processIndex * config.numContainers + i, resources, true,
+                        networkLatency, processingTime,
+                        config.requestRateMeanMs, config.requestRateStdDevMs, config.minRequestIntervalMs,
+                        metrics, VisualizerSink.NONE, null, runRandom.split()));
+            }
+
+            for (final Container container : containers)
+            {
+                container.start();
+            }
+
+            try
+            {
+                Thread.sleep(config.simulationTimeSeconds * 1000L);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            // Let in-flight requests finish, and release, before the connection closes
+            Container.stopAll(containers, config.drainTimeoutMs);
+        }
+
+        // No conflict count: a process only sees its own containers, so it cannot observe
+        // over-admission across processes
+        System.out.println("RESULT " + metrics.getSuccessfulRequests() + " " + metrics.getTimeoutCount()
+                + " " + metrics.getAverageAcquireTime());
+        System.exit(0);
+    }
+}
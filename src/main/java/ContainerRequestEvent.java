@@ -0,0 +1,32 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one container request, from acquire to release
+ */
+@Name("cloudsync.ContainerRequest")
+@Label("Container Request")
+@Category({"Cloud Sync", "Container"})
+@Description("One request from a container to a resource")
+@StackTrace(false)
+class ContainerRequestEvent extends Event
+{
+    @Label("Container")
+    int containerId;
+
+    @Label("Resource")
+    String resource;
+
+    @Label("Shard")
+    int shard;
+
+    @Label("Synchronized")
+    boolean synchronizedAccess;
+
+    @Label("Crashed")
+    boolean crashed;
+}
@@ -0,0 +1,444 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client side of the {@link CoordinationServer}.
+ *
+ * In pipelined mode every thread shares one connection: requests are queued to a
+ * writer thread that sends whatever has accumulated in one write, and a reader
+ * thread matches responses to callers by request id, so hundreds of containers
+ * can have requests in flight over a single socket. Otherwise each calling thread
+ * gets its own blocking connection and waits for the response to every request.
+ */
+class CoordinationClient implements SemaphoreFactory, AutoCloseable
+{
+    // How long past the time the coordinator may hold a request to wait for its response
+    static final long RESPONSE_GRACE_MS = 10_000;
+
+    /**
+     * Writes the op-specific fields of a request
+     */
+    interface BodyWriter
+    {
+        void write(ByteBuffer out);
+    }
+
+    /**
+     * One blocking connection, used by a single thread
+     */
+    private static class BlockingConnection
+    {
+        final Socket socket;
+        final DataInputStream in;
+        final OutputStream out;
+
+        BlockingConnection(final String host,
+                           final int port) throws IOException
+        {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = socket.getOutputStream();
+        }
+    }
+
+    /**
+     * One connection shared by all threads, with any number of requests in flight
+     */
+    private static class PipelinedConnection
+    {
+        final Socket socket;
+        final AtomicInteger nextRequestId;
+        final Map<Integer, CompletableFuture<ByteBuffer>> pending = new ConcurrentHashMap<>();
+        // Request id of an ACQUIRE whose caller gave up -> that ACQUIRE, to release a late grant
+        final Map<Integer, ByteBuffer> abandoned = new ConcurrentHashMap<>();
+        final LinkedBlockingQueue<ByteBuffer> outgoing = new LinkedBlockingQueue<>();
+        final Thread writer;
+        volatile IOException failure;
+
+        PipelinedConnection(final String host,
+                            final int port,
+                            final AtomicInteger nextRequestId) throws IOException
+        {
+            this.nextRequestId = nextRequestId;
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+
+            writer = new Thread(this::writeLoop, "coordination-writer");
+            Thread reader = new Thread(this::readLoop, "coordination-reader");
+            writer.setDaemon(true);
+            reader.setDaemon(true);
+            writer.start();
+            reader.start();
+        }
+
+        /**
+         * Send queued requests, coalescing everything queued since the last write
+         */
+        private void writeLoop()
+        {
+            List<ByteBuffer> batch = new ArrayList<>();
+            try (OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024))
+            {
+                while (failure == null)
+                {
+                    batch.add(outgoing.take());
+                    outgoing.drainTo(batch);
+                    for (final ByteBuffer frame : batch)
+                    {
+                        out.write(frame.array(), 0, frame.limit());
+                    }
+                    out.flush();
+                    batch.clear();
+                }
+            }
+            catch (final IOException e)
+            {
+                fail(e);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Complete each caller's future as its response arrives
+         */
+        private void readLoop()
+        {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024)))
+            {
+                while (true)
+                {
+                    ByteBuffer response = readFrame(in);
+                    int requestId = response.getInt();
+                    CompletableFuture<ByteBuffer> caller = pending.remove(requestId);
+                    if (caller != null)
+                    {
+                        caller.complete(response);
+                    }
+                    else
+                    {
+                        ByteBuffer acquire = abandoned.remove(requestId);
+                        if (acquire != null && response.get(response.position()) == CoordinationProtocol.STATUS_OK)
+                        {
+                            outgoing.add(releaseFor(acquire));
+                        }
+                    }
+                }
+            }
+            catch (final IOException e)
+            {
+                fail(e);
+            }
+        }
+
+        private void fail(final IOException e)
+        {
+            // Set before completing, so a caller registering concurrently either sees it or is completed here
+            failure = e;
+            for (final CompletableFuture<ByteBuffer> caller : pending.values())
+            {
+                caller.completeExceptionally(e);
+            }
+            pending.clear();
+            // The coordinator drops a closed connection's leases, so late grants need no release
+            abandoned.clear();
+            // Nothing more will be sent; wake the writer if it is waiting for a frame
+            writer.interrupt();
+        }
+
+        /**
+         * Close the socket and stop both threads; the reader fails the callers still waiting
+         */
+        void close()
+        {
+            closeQuietly(socket);
+            writer.interrupt();
+        }
+
+        ByteBuffer call(final int requestId,
+                        final ByteBuffer frame) throws IOException
+        {
+            CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+            pending.put(requestId, response);
+            if (failure != null)
+            {
+                pending.remove(requestId);
+                throw new IOException("Coordinator connection failed", failure);
+            }
+            outgoing.add(frame);
+
+            long waitMs = serverWaitMs(frame);
+            try
+            {
+                if (waitMs < 0)
+                {
+                    return response.get();
+                }
+                return response.get(waitMs + RESPONSE_GRACE_MS, TimeUnit.MILLISECONDS);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                abandon(requestId, frame, response);
+                throw new InterruptedIOException("Interrupted waiting for coordinator");
+            }
+            catch (final TimeoutException e)
+            {
+                abandon(requestId, frame, response);
+                throw new IOException("No response from coordinator in " + (waitMs + RESPONSE_GRACE_MS) + "ms");
+            }
+            catch (final ExecutionException e)
+            {
+                throw new IOException("Coordinator connection failed", e.getCause());
+            }
+        }
+
+        /**
+         * Stop waiting for a request. A permit the coordinator grants an abandoned
+         * ACQUIRE, now or later, is released again so it does not leak.
+         */
+        private void abandon(final int requestId,
+                             final ByteBuffer frame,
+                             final CompletableFuture<ByteBuffer> response)
+        {
+            boolean acquire = frame.get(4) == CoordinationProtocol.OP_ACQUIRE;
+            if (acquire)
+            {
+                abandoned.put(requestId, frame);
+            }
+            if (pending.remove(requestId) != null || !acquire)
+            {
+                // The reader will find it abandoned when the response arrives
+                return;
+            }
+
+            // The reader has taken the response and is completing this caller with it
+            abandoned.remove(requestId);
+            ByteBuffer late = response.join();
+            if (late.get(late.position()) == CoordinationProtocol.STATUS_OK)
+            {
+                outgoing.add(releaseFor(frame));
+            }
+        }
+
+        /**
+         * RELEASE frame for the semaphore and holder of an ACQUIRE frame; its response is ignored
+         */
+        private ByteBuffer releaseFor(final ByteBuffer acquire)
+        {
+            int bodyBytes = 5 + 8;
+            ByteBuffer frame = ByteBuffer.allocate(4 + bodyBytes);
+            frame.putInt(bodyBytes)
+                 .put(CoordinationProtocol.OP_RELEASE)
+                 .putInt(nextRequestId.incrementAndGet())
+                 .putInt(acquire.getInt(9))
+                 .putInt(acquire.getInt(13));
+            frame.flip();
+            return frame;
+        }
+
+        /**
+         * How long the coordinator may hold a request before answering: an ACQUIRE's
+         * timeout (negative for indefinitely), otherwise no time
+         */
+        private static long serverWaitMs(final ByteBuffer frame)
+        {
+            return frame.get(4) == CoordinationProtocol.OP_ACQUIRE ? frame.getLong(17) : 0;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final boolean pipelined;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+
+    private final List<BlockingConnection> connections = new ArrayList<>();
+    private final ThreadLocal<BlockingConnection> threadConnection = new ThreadLocal<>();
+    private PipelinedConnection sharedConnection;
+
+    /**
+     * @param address coordinator address as host:port
+     * @param pipelined share one multiplexed connection instead of one per thread
+     */
+    public CoordinationClient(final String address,
+                              final boolean pipelined)
+    {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0)
+        {
+            throw new IllegalArgumentException("Coordinator address must be host:port: " + address);
+        }
+        this.host      = address.substring(0, colon);
+        this.port      = Integer.parseInt(address.substring(colon + 1));
+        this.pipelined = pipelined;
+    }
+
+    @Override
+    public DistributedSemaphore create(final String name,
+                                       final int permits,
+                                       final long leaseTimeoutMs)
+    {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        try
+        {
+            ByteBuffer response = call(CoordinationProtocol.OP_CREATE, 2 + nameBytes.length + 12, out -> {
+                out.putShort((short) nameBytes.length);
+                out.put(nameBytes);
+                out.putInt(permits);
+                out.putLong(leaseTimeoutMs);
+            });
+            if (response.get() == CoordinationProtocol.STATUS_ERROR)
+            {
+                throw new IllegalStateException("Coordinator already has " + name
+                        + " with a different permit count or lease timeout");
+            }
+            return new RemoteSemaphore(this, name, response.getInt(), permits);
+        }
+        catch (final IOException e)
+        {
+            throw new IllegalStateException("Cannot reach coordinator at " + host + ":" + port, e);
+        }
+    }
+
+    /**
+     * Send a request and wait for its response
+     * @param fieldBytes size of the op-specific fields
+     * @return the response body positioned at the status byte
+     */
+    ByteBuffer call(final byte op,
+                    final int fieldBytes,
+                    final BodyWriter fields) throws IOException
+    {
+        int requestId = nextRequestId.incrementAndGet();
+        int bodyBytes = 5 + fieldBytes;
+        ByteBuffer frame = ByteBuffer.allocate(4 + bodyBytes);
+        frame.putInt(bodyBytes).put(op).putInt(requestId);
+        fields.write(frame);
+        frame.flip();
+
+        if (pipelined)
+        {
+            return pipelinedConnection().call(requestId, frame);
+        }
+
+        BlockingConnection connection = blockingConnection();
+        try
+        {
+            connection.out.write(frame.array(), 0, frame.limit());
+            ByteBuffer response = readFrame(connection.in);
+            if (response.getInt() != requestId)
+            {
+                throw new IOException("Response out of order");
+            }
+            return response;
+        }
+        catch (final IOException e)
+        {
+            // Drop the broken connection so the next call reconnects
+            threadConnection.remove();
+            connection.socket.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer readFrame(final DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < CoordinationProtocol.STATUS_BODY_BYTES || length > CoordinationProtocol.MAX_FRAME_BYTES)
+        {
+            throw new IOException("Bad frame length " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return ByteBuffer.wrap(body);
+    }
+
+    private BlockingConnection blockingConnection() throws IOException
+    {
+        BlockingConnection connection = threadConnection.get();
+        if (connection == null)
+        {
+            connection = new BlockingConnection(host, port);
+            threadConnection.set(connection);
+            synchronized (connections)
+            {
+                connections.add(connection);
+            }
+        }
+        return connection;
+    }
+
+    private synchronized PipelinedConnection pipelinedConnection() throws IOException
+    {
+        if (sharedConnection == null || sharedConnection.failure != null)
+        {
+            sharedConnection = new PipelinedConnection(host, port, nextRequestId);
+        }
+        return sharedConnection;
+    }
+
+    static void checkStatus(final byte status,
+                            final String name) throws IOException
+    {
+        if (status == CoordinationProtocol.STATUS_ERROR)
+        {
+            throw new IOException("Coordinator rejected request for " + name);
+        }
+    }
+
+    /**
+     * Close every connection opened by this client
+     */
+    @Override
+    public void close()
+    {
+        synchronized (connections)
+        {
+            for (final BlockingConnection connection : connections)
+            {
+                closeQuietly(connection.socket);
+            }
+            connections.clear();
+        }
+        synchronized (this)
+        {
+            if (sharedConnection != null)
+            {
+                sharedConnection.close();
+                sharedConnection = null;
+            }
+        }
+    }
+
+    private static void closeQuietly(final Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (final IOException e)
+        {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Wire protocol between {@link CoordinationClient} and {@link CoordinationServer}.
+ *
+ * Every message is a frame: int body length, then the body. Every request carries
+ * a client-chosen request id that the server echoes in its response, so a client
+ * can keep many requests outstanding on one connection and match responses that
+ * arrive out of order (a waiting ACQUIRE does not hold up later requests).
+ *
+ * Request body: byte op, int requestId, then
+ *   CREATE:  short name length, UTF-8 name, int permits, long leaseTimeoutMs
+ *   ACQUIRE: int semaphoreId, int holderId, long timeoutMs (negative waits indefinitely)
+ *   RELEASE: int semaphoreId, int holderId
+ *   QUERY:   int semaphoreId, long leakThresholdMs
+ * Response body: int requestId, byte status, then
+ *   CREATE:  int semaphoreId (names are only sent once)
+ *   QUERY:   int value, int maxValue, int expiredLeases, int longHeldPermits
+ */
+final class CoordinationProtocol
+{
+    static final byte OP_CREATE  = 1;
+    static final byte OP_ACQUIRE = 2;
+    static final byte OP_RELEASE = 3;
+    static final byte OP_QUERY   = 4;
+
+    static final byte STATUS_OK      = 0;
+    static final byte STATUS_TIMEOUT = 1;
+    static final byte STATUS_LATE    = 2;   // Release after the lease had expired
+    static final byte STATUS_ERROR   = 3;   // Unknown semaphore, CREATE that disagrees with the pool, or malformed request
+
+    static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    // Response body sizes, excluding the length prefix
+    static final int STATUS_BODY_BYTES = 5;
+    static final int CREATE_BODY_BYTES = STATUS_BODY_BYTES + 4;
+    static final int QUERY_BODY_BYTES  = STATUS_BODY_BYTES + 16;
+
+    private CoordinationProtocol()
+    {
+    }
+}
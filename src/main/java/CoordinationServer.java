@@ -0,0 +1,481 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordination service holding the permit state of every semaphore, so containers
+ * in separate JVMs can share resources. A single selector thread serves all
+ * connections; see {@link CoordinationProtocol} for the wire format.
+ *
+ * Responses are buffered per connection and written once per selector pass, so a
+ * client with many requests in flight gets its responses back in batches.
+ *
+ * Usage: CoordinationServer [port]
+ */
+public class CoordinationServer implements Runnable, AutoCloseable
+{
+    public static final int DEFAULT_PORT = 7400;
+
+    // Upper bound on how long the selector sleeps between deadline checks
+    private static final long MAX_SELECT_MS = 100;
+
+    /**
+     * State of one client connection
+     */
+    static class Connection
+    {
+        final long id;
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(CoordinationProtocol.MAX_FRAME_BYTES + 4);
+        ByteBuffer out      = ByteBuffer.allocate(4096);
+        boolean dirty;
+        boolean closed;
+
+        Connection(final long id,
+                   final SocketChannel channel)
+        {
+            this.id      = id;
+            this.channel = channel;
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<PermitPool> pools = new ArrayList<>();
+    private final Map<String, Integer> poolIds = new HashMap<>();
+    private final ArrayDeque<PermitPool.Waiter> pending = new ArrayDeque<>();
+    private final List<Connection> dirtyConnections = new ArrayList<>();
+    private long nextConnectionId = 1;
+    private volatile boolean running = true;
+    private volatile boolean started;
+
+    public CoordinationServer(final int port) throws IOException
+    {
+        selector      = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        try (CoordinationServer server = new CoordinationServer(port))
+        {
+            System.out.println("Coordination server listening on 127.0.0.1:" + server.getPort());
+            server.run();
+        }
+    }
+
+    /**
+     * Port the server is bound to (useful when started on port 0)
+     */
+    public int getPort()
+    {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void run()
+    {
+        started = true;
+        try
+        {
+            serve();
+        }
+        finally
+        {
+            closeChannels();
+        }
+    }
+
+    private void serve()
+    {
+        while (running)
+        {
+            try
+            {
+                long wait = Math.min(MAX_SELECT_MS, nextDeadline() - System.currentTimeMillis());
+                selector.select(Math.max(1, wait));
+            }
+            catch (final IOException e)
+            {
+                System.err.println("Coordination server select failed: " + e.getMessage());
+                return;
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                try
+                {
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                    }
+                    else
+                    {
+                        if (key.isReadable())
+                        {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable())
+                        {
+                            flush((Connection) key.attachment());
+                        }
+                    }
+                }
+                catch (final IOException e)
+                {
+                    disconnect((Connection) key.attachment());
+                }
+            }
+
+            expireDeadlines();
+            flushDirty();
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+        {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(nextConnectionId++, channel));
+    }
+
+    private void read(final SelectionKey key) throws IOException
+    {
+        Connection connection = (Connection) key.attachment();
+        if (connection.channel.read(connection.in) < 0)
+        {
+            disconnect(connection);
+            return;
+        }
+
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= 4)
+        {
+            int length = in.getInt(in.position());
+            if (length < 5 || length > CoordinationProtocol.MAX_FRAME_BYTES)
+            {
+                throw new IOException("Bad frame length " + length);
+            }
+            if (in.remaining() < 4 + length)
+            {
+                break;
+            }
+            in.position(in.position() + 4);
+            int end = in.position() + length;
+            try
+            {
+                handle(connection, in);
+            }
+            catch (final BufferUnderflowException e)
+            {
+                throw new IOException("Malformed request frame", e);
+            }
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    /**
+     * Handle one request frame, reading its fields straight from the input buffer
+     */
+    private void handle(final Connection connection,
+                        final ByteBuffer request)
+    {
+        byte op       = request.get();
+        int requestId = request.getInt();
+        long now      = System.currentTimeMillis();
+
+        if (op == CoordinationProtocol.OP_CREATE)
+        {
+            byte[] nameBytes = new byte[request.getShort() & 0xFFFF];
+            request.get(nameBytes);
+            String name         = new String(nameBytes, StandardCharsets.UTF_8);
+            int permits         = request.getInt();
+            long leaseTimeoutMs = request.getLong();
+
+            Integer id = poolIds.get(name);
+            if (id == null)
+            {
+                id = pools.size();
+                pools.add(new PermitPool(name, permits, leaseTimeoutMs));
+                poolIds.put(name, id);
+            }
+            else if (pools.get(id).maxCount != permits || pools.get(id).leaseTimeoutMs != leaseTimeoutMs)
+            {
+                // Callers size their conflict check from the permits they asked for, so they must agree
+                System.err.println("Rejected CREATE of " + name + " with " + permits + " permits, lease "
+                        + leaseTimeoutMs + "ms: it exists with " + pools.get(id).maxCount + " permits, lease "
+                        + pools.get(id).leaseTimeoutMs + "ms");
+                sendStatus(connection, requestId, CoordinationProtocol.STATUS_ERROR);
+                return;
+            }
+            reserve(connection, CoordinationProtocol.CREATE_BODY_BYTES)
+                    .putInt(CoordinationProtocol.CREATE_BODY_BYTES)
+                    .putInt(requestId)
+                    .put(CoordinationProtocol.STATUS_OK)
+                    .putInt(id);
+            return;
+        }
+
+        int poolId = request.getInt();
+        if (poolId < 0 || poolId >= pools.size())
+        {
+            sendStatus(connection, requestId, CoordinationProtocol.STATUS_ERROR);
+            return;
+        }
+        PermitPool pool = pools.get(poolId);
+
+        switch (op)
+        {
+            case CoordinationProtocol.OP_ACQUIRE:
+            {
+                int holderId   = request.getInt();
+                long timeoutMs = request.getLong();
+                long deadline  = timeoutMs < 0 ? Long.MAX_VALUE : now + timeoutMs;
+                PermitPool.Waiter waiter = new PermitPool.Waiter(
+                        connection, requestId, PermitPool.leaseKey(connection.id, holderId), deadline);
+                if (pool.acquire(waiter, now))
+                {
+                    sendStatus(connection, requestId, CoordinationProtocol.STATUS_OK);
+                }
+                break;
+            }
+            case CoordinationProtocol.OP_RELEASE:
+            {
+                int holderId = request.getInt();
+                try
+                {
+                    PermitPool.Waiter granted = pool.release(PermitPool.leaseKey(connection.id, holderId), now);
+                    sendStatus(connection, requestId, CoordinationProtocol.STATUS_OK);
+                    if (granted != null)
+                    {
+                        sendStatus(granted.connection, granted.requestId, CoordinationProtocol.STATUS_OK);
+                    }
+                }
+                catch (final IllegalStateException e)
+                {
+                    sendStatus(connection, requestId, CoordinationProtocol.STATUS_LATE);
+                }
+                break;
+            }
+            case CoordinationProtocol.OP_QUERY:
+            {
+                long thresholdMs = request.getLong();
+                reserve(connection, CoordinationProtocol.QUERY_BODY_BYTES)
+                        .putInt(CoordinationProtocol.QUERY_BODY_BYTES)
+                        .putInt(requestId)
+                        .put(CoordinationProtocol.STATUS_OK)
+                        .putInt(pool.getValue())
+                        .putInt(pool.maxCount)
+                        .putInt(pool.getExpiredLeases())
+                        .putInt(pool.countLongHeldPermits(thresholdMs, now));
+                break;
+            }
+            default:
+                sendStatus(connection, requestId, CoordinationProtocol.STATUS_ERROR);
+        }
+    }
+
+    private void sendStatus(final Connection connection,
+                            final int requestId,
+                            final byte status)
+    {
+        reserve(connection, CoordinationProtocol.STATUS_BODY_BYTES)
+                .putInt(CoordinationProtocol.STATUS_BODY_BYTES)
+                .putInt(requestId)
+                .put(status);
+    }
+
+    /**
+     * Make room for a response frame in the connection's output buffer and mark it
+     * for flushing at the end of this selector pass
+     */
+    private ByteBuffer reserve(final Connection connection,
+                               final int bodyBytes)
+    {
+        if (connection.out.remaining() < 4 + bodyBytes)
+        {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(connection.out.capacity() * 2,
+                    connection.out.position() + 4 + bodyBytes));
+            connection.out.flip();
+            larger.put(connection.out);
+            connection.out = larger;
+        }
+        if (!connection.dirty)
+        {
+            connection.dirty = true;
+            dirtyConnections.add(connection);
+        }
+        return connection.out;
+    }
+
+    private void flushDirty()
+    {
+        for (int i = 0; i < dirtyConnections.size(); i++)
+        {
+            Connection connection = dirtyConnections.get(i);
+            connection.dirty = false;
+            try
+            {
+                flush(connection);
+            }
+            catch (final IOException e)
+            {
+                disconnect(connection);
+            }
+        }
+        dirtyConnections.clear();
+    }
+
+    private void flush(final Connection connection) throws IOException
+    {
+        if (connection.closed)
+        {
+            return;
+        }
+
+        connection.out.flip();
+        connection.channel.write(connection.out);
+        boolean drained = !connection.out.hasRemaining();
+        connection.out.compact();
+
+        SelectionKey key = connection.channel.keyFor(selector);
+        if (key != null && key.isValid())
+        {
+            key.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Close a connection and free every permit it held, as if its process had died
+     */
+    private void disconnect(final Connection connection)
+    {
+        if (connection.closed)
+        {
+            return;
+        }
+        connection.closed = true;
+        try
+        {
+            connection.channel.close();
+        }
+        catch (final IOException e)
+        {
+            // Already closed
+        }
+
+        long now = System.currentTimeMillis();
+        for (final PermitPool pool : pools)
+        {
+            pool.dropConnection(connection, now, pending);
+        }
+        grantPending();
+    }
+
+    /**
+     * Time out waiters and reclaim expired leases
+     */
+    private void expireDeadlines()
+    {
+        long now = System.currentTimeMillis();
+        for (final PermitPool pool : pools)
+        {
+            pool.reclaimExpiredLeases(now, pending);
+        }
+        grantPending();
+
+        for (final PermitPool pool : pools)
+        {
+            pool.expireWaiters(now, pending);
+        }
+        PermitPool.Waiter waiter;
+        while ((waiter = pending.poll()) != null)
+        {
+            sendStatus(waiter.connection, waiter.requestId, CoordinationProtocol.STATUS_TIMEOUT);
+        }
+    }
+
+    private void grantPending()
+    {
+        PermitPool.Waiter waiter;
+        while ((waiter = pending.poll()) != null)
+        {
+            sendStatus(waiter.connection, waiter.requestId, CoordinationProtocol.STATUS_OK);
+        }
+    }
+
+    private long nextDeadline()
+    {
+        long next = Long.MAX_VALUE;
+        for (final PermitPool pool : pools)
+        {
+            next = Math.min(next, pool.nextDeadline());
+        }
+        return next;
+    }
+
+    /**
+     * Stop serving and close every connection
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        if (started)
+        {
+            // The selector thread closes the channels on its way out
+            selector.wakeup();
+        }
+        else
+        {
+            closeChannels();
+        }
+    }
+
+    private void closeChannels()
+    {
+        try
+        {
+            for (final SelectionKey key : selector.keys())
+            {
+                key.channel().close();
+            }
+            selector.close();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error closing coordination server: " + e.getMessage());
+        }
+    }
+}
@@ -1,4 +1,5 @@
-import javax.swing.*;
+import java.awt.GraphicsEnvironment;
+import java.util.List;
 
 public class DemoRunner {
     public static void main(String[] args) {
@@ -18,44 +19,21 @@ public class DemoRunner {
 
         System.out.println("Creating simulations...");
 
-        SwingWorker<Void, Void> syncWorker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() {
-                CloudSyncSimulation syncSim = new CloudSyncSimulation(syncConfig);
-                syncSim.setup();
-                syncSim.run();
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                System.out.println("Synchronized simulation complete.");
-            }
-        };
-
-        SwingWorker<Void, Void> noSyncWorker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() {
-                CloudSyncSimulation noSyncSim = new CloudSyncSimulation(noSyncConfig);
-                noSyncSim.setup();
-                noSyncSim.run();
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                System.out.println("Non-synchronized simulation complete.");
-            }
-        };
+        // Side by side, each with its own visualizer, on the same seeded workload
+        ComparisonRunner runner = new ComparisonRunner(syncConfig.randomSeed)
+                .add("sync", syncConfig)
+                .add("no_sync", noSyncConfig);
 
         System.out.println("Starting simulations...");
-        syncWorker.execute();
-        noSyncWorker.execute();
+        List<ComparisonRunner.Result> results = runner.run(true);
+        System.out.println("Both simulations complete.");
+
+        ComparisonRunner.printReport(results);
+        ComparisonRunner.saveReport("demo_comparison_report.csv", results);
 
-        try {
-            Thread.currentThread().join(); // 🛑 Prevents JVM from exiting
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        // The visualizer frames keep the EDT alive
+        if (!GraphicsEnvironment.isHeadless()) {
+            System.exit(0);
         }
     }
 }
@@ -1,161 +1,92 @@
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.random.RandomGenerator;
 
 /**
- * Custom implementation of distributed semaphore.
+ * Semaphore shared by all containers accessing a resource.
  * In a real distributed system, this would interact with a central coordination service.
+ *
+ * Permits are held by holder ids (container ids). Implementations either keep the
+ * permits in this JVM ({@link LocalSemaphore}) or in a separate coordinator process.
  */
-class DistributedSemaphore
+interface DistributedSemaphore
 {
-    private static final Lock lock           = new ReentrantLock();
-    private static final Condition condition = lock.newCondition();
-
-    private int count;
-    private final int maxCount;
-    private final String name;
+    // Outcomes of acquireOutcome
+    int ACQUIRED  = 0;
+    int TIMED_OUT = 1;
+    int SHED      = 2;  // Turned away by a bounded wait queue rather than timing out
 
     /**
      * P operation (semWait)
-     * @return true if acquired, false on timeout
+     * @param networkLatencyMs sampled network latency to simulate, if the implementation models it
+     * @param timeoutMs how long to wait for a permit; negative waits indefinitely
+     * @return true if acquired, false on timeout or if shed
      */
-    public boolean acquire(final Random random,
-                           final int networkLatencyMeanMs,
-                           final int networkLatencyStdDevMs,
-                           final long timeoutMs)
-    {
-        // Simulate network latency for an attempt lock acquisition
-        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+    boolean acquire(int holderId, int networkLatencyMs, long timeoutMs);
 
-        lock.lock(); // This ensures that only one thread can modify the semaphore's state at a time
-        try
-        {
-            if (timeoutMs < 0)
-            {
-                // Wait indefinitely until a resource becomes available.
-                while (count <= 0)
-                {
-                    try
-                    {
-                        condition.await();  // Releases the lock since there are currently no resources available.
-                    }
-                    catch (final InterruptedException e)
-                    {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                }
-                count--;
-                return true;
-            }
-            else
-            {
-                // Wait with timeout
-                long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
-                while (count <= 0)
-                {
-                    if (nanos <= 0)
-                        return false;
-                    try
-                    {
-                        nanos = condition.awaitNanos(nanos);
-                    }
-                    catch (final InterruptedException e)
-                    {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                }
-                count--;
-                return true;
-            }
-        } finally
-        {
-            lock.unlock();
-        }
+    /**
+     * P operation (semWait) telling a shed request apart from a timed-out one
+     * @return {@link #ACQUIRED}, {@link #TIMED_OUT} or {@link #SHED}
+     */
+    default int acquireOutcome(final int holderId,
+                               final int networkLatencyMs,
+                               final long timeoutMs)
+    {
+        return acquire(holderId, networkLatencyMs, timeoutMs) ? ACQUIRED : TIMED_OUT;
     }
 
     /**
      * V operation (signal/release)
+     * @param networkLatencyMs sampled network latency to simulate, if the implementation models it
      */
-    public void release(final Random random,
-                        final int networkLatencyMeanMs,
-                        final int networkLatencyStdDevMs)
-    {
-        // Simulate network latency for distributed lock release
-        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+    void release(int holderId, int networkLatencyMs);
 
-        lock.lock();
-        try
-        {
-            count++;
-            condition.signal();
-        }
-        finally
-        {
-            lock.unlock();
-        }
+    /**
+     * P operation (semWait) sampling the network latency from a distribution
+     */
+    default boolean acquire(final int holderId,
+                            final RandomGenerator random,
+                            final LatencyDistribution networkLatency,
+                            final long timeoutMs)
+    {
+        return acquire(holderId, networkLatency.sample(random), timeoutMs);
     }
 
     /**
-     * Get the current semaphore value (for monitoring)
+     * V operation (signal/release) sampling the network latency from a distribution
      */
-    public int getValue()
+    default void release(final int holderId,
+                         final RandomGenerator random,
+                         final LatencyDistribution networkLatency)
     {
-        lock.lock();
-        try
-        {
-            return count;
-        } finally
-        {
-            lock.unlock();
-        }
+        release(holderId, networkLatency.sample(random));
     }
 
+    /**
+     * Get the current semaphore value (for monitoring)
+     */
+    int getValue();
+
     /**
      * Get max semaphore value
      */
-    public int getMaxValue()
-    {
-        return maxCount;
-    }
+    int getMaxValue();
 
     /**
      * Get semaphore name
      */
-    public String getName()
-    {
-        return name;
-    }
+    String getName();
 
     /**
-     * Simulates network latency that would occur in a distributed system
+     * Get the number of permits reclaimed through lease expiry
      */
-    private void simulateNetworkLatency(final Random random,
-                                        final int meanMs,
-                                        final int stdDevMs)
-    {
-        final int latency;
+    int getExpiredLeases();
 
-        // Generate latency with normal distribution
-        latency = Math.max(1, (int)(random.nextGaussian() * stdDevMs + meanMs));
-        try
-        {
-            Thread.sleep(latency);
-        }
-        catch (final InterruptedException e)
-        {
-            Thread.currentThread().interrupt();
-        }
-    }
+    /**
+     * Count permits held longer than thresholdMs, which are likely leaked
+     */
+    int countLongHeldPermits(long thresholdMs);
 
-    public DistributedSemaphore(final int count,
-                                final String name)
-    {
-        this.count    = count;  // The number of available permits or resources that can be acquired.
-        this.maxCount = count;  // Stores the initial number of resources that can be acquired.
-        this.name     = name;
-    }
+    /**
+     * Queue length, wait time, hold time and timeout statistics seen by this instance
+     */
+    SemaphoreStats getStats();
 }
@@ -0,0 +1,75 @@
+import javax.swing.SwingUtilities;
+import java.util.function.Supplier;
+
+/**
+ * Forwards events from simulation threads to a sink that lives on the Swing
+ * event dispatch thread, such as {@link SimulationVisualizer}. Accesses, releases
+ * and conflicts only update a {@link ResourceOccupancy} shared with the target,
+ * so the event queue sees no traffic per request.
+ */
+class EventThreadSink implements VisualizerSink
+{
+    // Only touched on the EDT; created by the first queued task, so always set for later ones
+    private VisualizerSink target;
+    private final ResourceOccupancy occupancy = new ResourceOccupancy();
+
+    /**
+     * @param factory creates the target on the EDT
+     */
+    public EventThreadSink(final Supplier<? extends VisualizerSink> factory)
+    {
+        SwingUtilities.invokeLater(() -> {
+            target = factory.get();
+            target.attachOccupancy(occupancy);
+        });
+    }
+
+    @Override
+    public void registerResource(final int resourceIndex,
+                                 final int permits)
+    {
+        // Counted from now on, though the target shows the resource only once the task runs
+        occupancy.register(resourceIndex, permits);
+        SwingUtilities.invokeLater(() -> target.registerResource(resourceIndex, permits));
+    }
+
+    @Override
+    public void accessResource(final int containerId,
+                               final int resourceIndex,
+                               final boolean withSync)
+    {
+        occupancy.access(resourceIndex, withSync);
+    }
+
+    @Override
+    public void releaseResource(final int containerId,
+                                final int resourceIndex)
+    {
+        occupancy.release(resourceIndex);
+    }
+
+    @Override
+    public void recordConflict(final int containerId,
+                               final int resourceIndex)
+    {
+        occupancy.conflict(resourceIndex);
+    }
+
+    @Override
+    public void attachMetrics(final MetricsCollector metrics)
+    {
+        SwingUtilities.invokeLater(() -> target.attachMetrics(metrics));
+    }
+
+    @Override
+    public void setStatus(final String message)
+    {
+        SwingUtilities.invokeLater(() -> target.setStatus(message));
+    }
+
+    @Override
+    public void setSyncEnabled(final boolean enabled)
+    {
+        SwingUtilities.invokeLater(() -> target.setSyncEnabled(enabled));
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Injects faults into synchronized resource access during a fault window:
+ * containers crashing while they hold a permit, release messages being lost,
+ * extra network delay, and a network partition that holds back every message
+ * until the window ends.
+ */
+class FaultInjector
+{
+    private final double crashProbability;
+    private final double dropReleaseProbability;
+    private final int extraNetworkDelayMs;
+    private final boolean partitionNetwork;
+    private final long faultStartMs;
+    private final long faultEndMs;
+
+    // One generator per container, seeded from the run seed and the container id, so
+    // each container's fault decisions are reproducible and never contend with another's
+    private final long seed;
+    private final Map<Integer, SplittableRandom> randoms = new ConcurrentHashMap<>();
+    private volatile long startTime;
+
+    public FaultInjector(final SimulationConfig config)
+    {
+        this.crashProbability       = config.crashProbability;
+        this.dropReleaseProbability = config.dropReleaseProbability;
+        this.extraNetworkDelayMs    = config.extraNetworkDelayMs;
+        this.partitionNetwork       = config.partitionNetwork;
+        this.faultStartMs           = config.faultStartSeconds * 1000L;
+        this.faultEndMs             = (config.faultStartSeconds + config.faultDurationSeconds) * 1000L;
+        this.seed                   = config.randomSeed ^ 0x5DEECE66DL;
+        this.startTime              = System.currentTimeMillis();
+    }
+
+    /**
+     * Create an injector if the configuration enables any fault, otherwise null
+     */
+    static FaultInjector fromConfig(final SimulationConfig config)
+    {
+        boolean anyFault = config.crashProbability > 0
+                || config.dropReleaseProbability > 0
+                || config.extraNetworkDelayMs > 0
+                || config.partitionNetwork;
+        return anyFault && config.faultDurationSeconds > 0 ? new FaultInjector(config) : null;
+    }
+
+    /**
+     * Start the fault window clock
+     */
+    public void start()
+    {
+        startTime = System.currentTimeMillis();
+    }
+
+    private boolean isActive()
+    {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed >= faultStartMs && elapsed < faultEndMs;
+    }
+
+    /**
+     * Whether the holder should die right after acquiring its permit
+     */
+    public boolean shouldCrash(final int containerId)
+    {
+        return isActive() && chance(containerId, crashProbability);
+    }
+
+    /**
+     * Whether a release message should be lost on the way to the coordinator
+     */
+    public boolean shouldDropRelease(final int containerId)
+    {
+        return isActive() && chance(containerId, dropReleaseProbability);
+    }
+
+    /**
+     * Extra delay for a message sent now: the configured delay, or the rest of
+     * the fault window while the network is partitioned
+     */
+    public int networkDelayMs()
+    {
+        if (!isActive())
+        {
+            return 0;
+        }
+        if (partitionNetwork)
+        {
+            long untilHealed = startTime + faultEndMs - System.currentTimeMillis();
+            return (int) Math.max(0, untilHealed) + extraNetworkDelayMs;
+        }
+        return extraNetworkDelayMs;
+    }
+
+    /**
+     * Only the container's own thread draws from its generator
+     */
+    private boolean chance(final int containerId,
+                           final double probability)
+    {
+        if (probability <= 0)
+        {
+            return false;
+        }
+        SplittableRandom random = randoms.computeIfAbsent(containerId, id -> new SplittableRandom(seed + id));
+        return random.nextDouble() < probability;
+    }
+}
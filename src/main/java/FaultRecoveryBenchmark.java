@@ -0,0 +1,155 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Injects crashed holders and lost releases into a hot resource for a fixed
+ * window and records per-second throughput, once without permit leases and
+ * once with lease expiry, to show how quickly throughput recovers after the
+ * faults stop. Runs without the visualizer.
+ */
+public class FaultRecoveryBenchmark
+{
+    private static final int NUM_CONTAINERS   = 80;
+    private static final int DURATION_SECONDS = 40;
+    private static final int FAULT_START      = 10;
+    private static final int FAULT_DURATION   = 10;
+    private static final int LEASE_TIMEOUT_MS = 2000;
+
+    // Baseline throughput fraction that counts as recovered
+    private static final double RECOVERED_FRACTION = 0.9;
+
+    public static void main(String[] args)
+    {
+        System.out.println("Starting Fault Recovery Benchmark");
+        System.out.println("=================================");
+
+        SimulationConfig config = new SimulationConfig();
+        config.numContainers          = NUM_CONTAINERS;
+        config.numResources           = 1;     // Every container hits the same resource
+        config.simulationTimeSeconds  = DURATION_SECONDS;
+        config.crashProbability       = 0.01;
+        config.dropReleaseProbability = 0.02;
+        config.faultStartSeconds      = FAULT_START;
+        config.faultDurationSeconds   = FAULT_DURATION;
+
+        config.leaseTimeoutMs = 0;
+        int[] withoutLeases = runWithFaults(config);
+
+        config.leaseTimeoutMs = LEASE_TIMEOUT_MS;
+        int[] withLeases = runWithFaults(config);
+
+        System.out.println("\n==== Fault Recovery Results ====");
+        System.out.println("Recovery without leases: " + describeRecovery(withoutLeases));
+        System.out.println("Recovery with " + LEASE_TIMEOUT_MS + "ms leases: " + describeRecovery(withLeases));
+
+        saveResultsToCSV("fault_recovery_results.csv", withoutLeases, withLeases);
+    }
+
+    /**
+     * Run all containers against one resource and sample throughput every second
+     * @return successful requests completed in each second of the run
+     */
+    private static int[] runWithFaults(final SimulationConfig config)
+    {
+        System.out.println("\nRunning with lease timeout " + config.leaseTimeoutMs + "ms...");
+
+        MetricsCollector metrics = new MetricsCollector();
+        FaultInjector faults = FaultInjector.fromConfig(config);
+        List<CloudResource> resources = new ArrayList<>();
+        resources.add(new CloudResource("resource_0", config.maxConcurrentAccess,
+                config.shardsPerResource, config.leaseTimeoutMs, faults, SemaphoreFactory.LOCAL));
+
+        SplittableRandom runRandom = new SplittableRandom(config.randomSeed);
+        LatencyDistribution networkLatency = config.networkLatency();
+        LatencyDistribution processingTime = config.processingTime();
+        List<Container> containers = new ArrayList<>();
+        for (int i = 0; i < config.numContainers; i++)
+        {
+            containers.add(new Container(
+                    i, resources, true,
+                    networkLatency, processingTime,
+                    config.requestRateMeanMs, config.requestRateStdDevMs, config.minRequestIntervalMs,
+                    metrics, VisualizerSink.NONE, null, runRandom.split()));
+        }
+
+        faults.start();
+        for (final Container container : containers)
+        {
+            container.start();
+        }
+
+        int[] perSecond = new int[config.simulationTimeSeconds];
+        int previous = 0;
+        long startTime = System.currentTimeMillis();
+        for (int second = 0; second < perSecond.length; second++)
+        {
+            try
+            {
+                Thread.sleep(Math.max(0, startTime + (second + 1) * 1000L - System.currentTimeMillis()));
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            int completed = metrics.getSuccessfulRequests();
+            perSecond[second] = completed - previous;
+            previous = completed;
+        }
+
+        // Let in-flight requests finish so none spill into the next run
+        Container.stopAll(containers, config.drainTimeoutMs);
+
+        System.out.println("Expired leases: " + resources.get(0).getExpiredLeases());
+        return perSecond;
+    }
+
+    /**
+     * Seconds after the fault window until throughput is back near the pre-fault baseline
+     */
+    private static String describeRecovery(final int[] perSecond)
+    {
+        double baseline = 0;
+        for (int second = 0; second < FAULT_START; second++)
+        {
+            baseline += perSecond[second];
+        }
+        baseline /= FAULT_START;
+
+        for (int second = FAULT_START + FAULT_DURATION; second < perSecond.length; second++)
+        {
+            if (perSecond[second] >= baseline * RECOVERED_FRACTION)
+            {
+                return (second - FAULT_START - FAULT_DURATION) + "s after faults stopped";
+            }
+        }
+        return "did not recover";
+    }
+
+    /**
+     * Save the per-second throughput series to CSV file for further analysis
+     */
+    private static void saveResultsToCSV(final String filename,
+                                         final int[] withoutLeases,
+                                         final int[] withLeases)
+    {
+        try (FileWriter writer = new FileWriter(filename))
+        {
+            writer.write("Second,Faults Active,Throughput Without Leases,Throughput With Leases\n");
+            for (int second = 0; second < withoutLeases.length; second++)
+            {
+                boolean active = second >= FAULT_START && second < FAULT_START + FAULT_DURATION;
+                writer.write(second + "," + active + "," + withoutLeases[second] + "," + withLeases[second] + "\n");
+            }
+
+            System.out.println("Results saved to " + filename);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving results: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution that network latency and processing time samples are drawn from.
+ * Samples are whole milliseconds clamped to [1, MAX_SAMPLE_MS]. Parameters
+ * outside a distribution's domain are rejected with IllegalArgumentException.
+ *
+ * Distributions can be described with a spec string (see {@link #parse}):
+ *   gaussian:mean,stdDev
+ *   exponential:mean
+ *   lognormal:median,sigma
+ *   pareto:scale,shape
+ *   bimodal:fastMean,fastStdDev,slowMean,slowStdDev,slowProbability
+ *   empirical:histogram-file   (lines of "valueMs,count", '#' starts a comment)
+ */
+interface LatencyDistribution
+{
+    int MAX_SAMPLE_MS = 60_000;
+
+    /**
+     * Draw one sample in milliseconds
+     */
+    int sample(RandomGenerator random);
+
+    static LatencyDistribution gaussian(final double mean,
+                                        final double stdDev)
+    {
+        check(Double.isFinite(mean) && stdDev >= 0 && Double.isFinite(stdDev),
+                "gaussian needs a finite mean and stdDev >= 0: " + mean + ", " + stdDev);
+        return random -> clamp(random.nextGaussian() * stdDev + mean);
+    }
+
+    static LatencyDistribution exponential(final double mean)
+    {
+        check(mean > 0 && Double.isFinite(mean), "exponential needs mean > 0: " + mean);
+        return random -> clamp(random.nextExponential() * mean);
+    }
+
+    static LatencyDistribution logNormal(final double median,
+                                         final double sigma)
+    {
+        check(median > 0 && Double.isFinite(median) && sigma >= 0 && Double.isFinite(sigma),
+                "lognormal needs median > 0 and sigma >= 0: " + median + ", " + sigma);
+        final double mu = Math.log(median);
+        return random -> clamp(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    static LatencyDistribution pareto(final double scale,
+                                      final double shape)
+    {
+        check(scale > 0 && Double.isFinite(scale) && shape > 0 && Double.isFinite(shape),
+                "pareto needs scale > 0 and shape > 0: " + scale + ", " + shape);
+        // Inverse CDF; 1 - nextDouble() is in (0, 1] so the division is safe
+        return random -> clamp(scale / Math.pow(1.0 - random.nextDouble(), 1.0 / shape));
+    }
+
+    static LatencyDistribution bimodal(final LatencyDistribution fast,
+                                       final LatencyDistribution slow,
+                                       final double slowProbability)
+    {
+        check(slowProbability >= 0 && slowProbability <= 1,
+                "bimodal needs slowProbability in [0, 1]: " + slowProbability);
+        return random -> random.nextDouble() < slowProbability ? slow.sample(random) : fast.sample(random);
+    }
+
+    /**
+     * Distribution that replays a measured histogram
+     */
+    static LatencyDistribution empirical(final int[] values,
+                                         final long[] counts)
+    {
+        if (values.length == 0 || values.length != counts.length)
+        {
+            throw new IllegalArgumentException("Histogram must have one count per value");
+        }
+
+        final long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            check(counts[i] >= 0, "Histogram count must not be negative: " + counts[i]);
+            total += counts[i];
+            cumulative[i] = total;
+        }
+
+        if (total <= 0)
+        {
+            throw new IllegalArgumentException("Histogram has no samples");
+        }
+
+        final long totalCount = total;
+        return random -> {
+            int index = Arrays.binarySearch(cumulative, random.nextLong(totalCount) + 1);
+            if (index < 0)
+            {
+                index = -index - 1;
+            }
+            return clamp(values[index]);
+        };
+    }
+
+    static LatencyDistribution empirical(final String histogramFile) throws IOException
+    {
+        List<int[]> buckets = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(histogramFile)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                {
+                    continue;
+                }
+
+                String[] fields = line.split(",");
+                if (fields.length != 2)
+                {
+                    throw new IOException("Invalid histogram line: " + line);
+                }
+                buckets.add(new int[] {Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim())});
+            }
+        }
+
+        int[] values  = new int[buckets.size()];
+        long[] counts = new long[buckets.size()];
+        for (int i = 0; i < buckets.size(); i++)
+        {
+            values[i] = buckets.get(i)[0];
+            counts[i] = buckets.get(i)[1];
+        }
+        return empirical(values, counts);
+    }
+
+    /**
+     * Build a distribution from a spec string such as "lognormal:15,0.5"
+     */
+    static LatencyDistribution parse(final String spec) throws IOException
+    {
+        int colon = spec.indexOf(':');
+        if (colon < 0)
+        {
+            throw new IllegalArgumentException("Distribution spec needs a 'name:' prefix: " + spec);
+        }
+
+        String name = spec.substring(0, colon).trim().toLowerCase();
+        String args = spec.substring(colon + 1).trim();
+
+        if (name.equals("empirical"))
+        {
+            return empirical(args);
+        }
+
+        String[] fields = args.split(",");
+        double[] p = new double[fields.length];
+        for (int i = 0; i < fields.length; i++)
+        {
+            p[i] = Double.parseDouble(fields[i].trim());
+        }
+
+        switch (name)
+        {
+            case "gaussian":
+                requireArgs(spec, p, 2);
+                return gaussian(p[0], p[1]);
+            case "exponential":
+                requireArgs(spec, p, 1);
+                return exponential(p[0]);
+            case "lognormal":
+                requireArgs(spec, p, 2);
+                return logNormal(p[0], p[1]);
+            case "pareto":
+                requireArgs(spec, p, 2);
+                return pareto(p[0], p[1]);
+            case "bimodal":
+                requireArgs(spec, p, 5);
+                return bimodal(gaussian(p[0], p[1]), gaussian(p[2], p[3]), p[4]);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + name);
+        }
+    }
+
+    private static void requireArgs(final String spec,
+                                    final double[] params,
+                                    final int expected)
+    {
+        if (params.length != expected)
+        {
+            throw new IllegalArgumentException("Expected " + expected + " parameters in " + spec);
+        }
+    }
+
+    private static void check(final boolean valid,
+                              final String message)
+    {
+        if (!valid)
+        {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static int clamp(final double sampleMs)
+    {
+        if (Double.isNaN(sampleMs))
+        {
+            return 1;
+        }
+        return (int) Math.max(1, Math.min(MAX_SAMPLE_MS, sampleMs));
+    }
+}
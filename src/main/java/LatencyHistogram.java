@@ -0,0 +1,107 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed, roughly logarithmic millisecond buckets, cheap enough
+ * to record every access. Percentiles are the upper bound of the bucket holding
+ * the requested rank, so they are accurate to the bucket width.
+ */
+class LatencyHistogram
+{
+    // Upper bounds (inclusive) in ms; the last bucket catches everything above
+    static final long[] BOUNDS_MS = {
+            1, 2, 3, 5, 7, 10, 15, 20, 30, 50, 70, 100, 150, 200, 300, 500, 700,
+            1000, 1500, 2000, 3000, 5000, 7000, 10000, 20000, 60000
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    public void record(final long valueMs)
+    {
+        counts.incrementAndGet(bucketFor(valueMs));
+        count.incrementAndGet();
+        sum.addAndGet(valueMs);
+    }
+
+    private static int bucketFor(final long valueMs)
+    {
+        for (int i = 0; i < BOUNDS_MS.length; i++)
+        {
+            if (valueMs <= BOUNDS_MS[i])
+            {
+                return i;
+            }
+        }
+        return BOUNDS_MS.length;
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getSum()
+    {
+        return sum.get();
+    }
+
+    /**
+     * Number of values in bucket i (i == BOUNDS_MS.length is the overflow bucket)
+     */
+    public long getBucketCount(final int i)
+    {
+        return counts.get(i);
+    }
+
+    /**
+     * Copy of the bucket counts, for percentiles over the interval between two snapshots
+     */
+    public long[] snapshot()
+    {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++)
+        {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Nearest-rank percentile, reported as its bucket's upper bound (0 if empty)
+     */
+    public long percentile(final double percent)
+    {
+        return percentile(snapshot(), percent);
+    }
+
+    /**
+     * Nearest-rank percentile of bucket counts from {@link #snapshot()}
+     */
+    static long percentile(final long[] bucketCounts,
+                           final double percent)
+    {
+        long total = 0;
+        for (final long bucketCount : bucketCounts)
+        {
+            total += bucketCount;
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++)
+        {
+            seen += bucketCounts[i];
+            if (seen >= rank)
+            {
+                return BOUNDS_MS[i];
+            }
+        }
+        return BOUNDS_MS[BOUNDS_MS.length - 1];
+    }
+}
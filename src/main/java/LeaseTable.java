@@ -0,0 +1,137 @@
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Grant times of the permits held, by holder. A holder that acquires again after
+ * its release was lost holds two leases; each expires on its own, so the first
+ * permit is reclaimed rather than lost. Not thread-safe; callers lock around it.
+ */
+class LeaseTable<K>
+{
+    // Holder -> grant times (ms), oldest first
+    private final Map<K, ArrayDeque<Long>> leases = new HashMap<>();
+    private int size;
+
+    public void grant(final K holder,
+                      final long nowMs)
+    {
+        leases.computeIfAbsent(holder, key -> new ArrayDeque<>()).addLast(nowMs);
+        size++;
+    }
+
+    /**
+     * End the holder's newest lease; an older one belongs to a grant whose release was lost
+     * @return the time it was granted, or null if the holder has no lease (already expired)
+     */
+    public Long release(final K holder)
+    {
+        ArrayDeque<Long> grantedTimes = leases.get(holder);
+        if (grantedTimes == null)
+        {
+            return null;
+        }
+        Long grantedTime = grantedTimes.pollLast();
+        if (grantedTimes.isEmpty())
+        {
+            leases.remove(holder);
+        }
+        size--;
+        return grantedTime;
+    }
+
+    /**
+     * Drop leases granted timeoutMs or longer ago
+     * @param expired receives the holder of each dropped lease, may be null
+     * @return number of leases dropped
+     */
+    public int expire(final long nowMs,
+                      final long timeoutMs,
+                      final Collection<K> expired)
+    {
+        int dropped = 0;
+        Iterator<Map.Entry<K, ArrayDeque<Long>>> entries = leases.entrySet().iterator();
+        while (entries.hasNext())
+        {
+            Map.Entry<K, ArrayDeque<Long>> entry = entries.next();
+            ArrayDeque<Long> grantedTimes = entry.getValue();
+            while (!grantedTimes.isEmpty() && nowMs - grantedTimes.peekFirst() >= timeoutMs)
+            {
+                grantedTimes.pollFirst();
+                dropped++;
+                if (expired != null)
+                {
+                    expired.add(entry.getKey());
+                }
+            }
+            if (grantedTimes.isEmpty())
+            {
+                entries.remove();
+            }
+        }
+        size -= dropped;
+        return dropped;
+    }
+
+    /**
+     * Drop every lease of the holders matching a filter
+     * @return number of leases dropped
+     */
+    public int removeHolders(final Predicate<K> filter)
+    {
+        int dropped = 0;
+        Iterator<Map.Entry<K, ArrayDeque<Long>>> entries = leases.entrySet().iterator();
+        while (entries.hasNext())
+        {
+            Map.Entry<K, ArrayDeque<Long>> entry = entries.next();
+            if (filter.test(entry.getKey()))
+            {
+                dropped += entry.getValue().size();
+                entries.remove();
+            }
+        }
+        size -= dropped;
+        return dropped;
+    }
+
+    /**
+     * Grant time of the oldest lease, or Long.MAX_VALUE if there is none
+     */
+    public long oldest()
+    {
+        long oldest = Long.MAX_VALUE;
+        for (final ArrayDeque<Long> grantedTimes : leases.values())
+        {
+            oldest = Math.min(oldest, grantedTimes.peekFirst());
+        }
+        return oldest;
+    }
+
+    /**
+     * Number of leases held thresholdMs or longer
+     */
+    public int countOlderThan(final long nowMs,
+                              final long thresholdMs)
+    {
+        int held = 0;
+        for (final ArrayDeque<Long> grantedTimes : leases.values())
+        {
+            for (final long grantedTime : grantedTimes)
+            {
+                if (nowMs - grantedTime >= thresholdMs)
+                {
+                    held++;
+                }
+            }
+        }
+        return held;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+}
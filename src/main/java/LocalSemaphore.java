@@ -0,0 +1,423 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Custom implementation of distributed semaphore that keeps its permits in this JVM
+ * and simulates the coordination service's network latency with a sleep.
+ *
+ * Each permit is held as a lease by a holder id. With a lease timeout set, permits
+ * whose holder never releases (crashed, or the release message was lost) are
+ * reclaimed once the lease expires, and a late release from that holder is ignored.
+ *
+ * Freed permits are handed straight to waiting holders in the order set by the
+ * {@link WaitQueuePolicy}, which can also bound the queue and shed holders under overload.
+ */
+class LocalSemaphore implements DistributedSemaphore
+{
+    /**
+     * A holder waiting for a permit, woken when one is handed to it or it is shed
+     */
+    private static final class Waiter
+    {
+        final int holderId;
+        final Condition ready;
+        final long enqueuedNanos;
+        int outcome = -1;  // ACQUIRED or SHED once decided
+
+        Waiter(final int holderId,
+               final Condition ready,
+               final long enqueuedNanos)
+        {
+            this.holderId      = holderId;
+            this.ready         = ready;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final Lock lock = new ReentrantLock();
+
+    private int count;
+    private final int maxCount;
+    private final String name;
+    private final long leaseTimeoutMs;
+
+    // Holder id -> times its leases were granted
+    private final LeaseTable<Integer> leases = new LeaseTable<>();
+    private int expiredLeases;
+    private int lateReleases;
+    private final SemaphoreStats stats = new SemaphoreStats();
+
+    // Waiters in the order permits are handed out
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private final WaitQueuePolicy queuePolicy;
+    private long aboveTargetSince;  // CoDel: when the head's queuing time went above target, 0 if below
+
+    /**
+     * P operation (semWait) with an already sampled network latency
+     * @return true if acquired, false on timeout or if shed
+     */
+    @Override
+    public boolean acquire(final int holderId,
+                           final int networkLatencyMs,
+                           final long timeoutMs)
+    {
+        return acquireOutcome(holderId, networkLatencyMs, timeoutMs) == ACQUIRED;
+    }
+
+    /**
+     * P operation (semWait) with an already sampled network latency
+     * @return {@link #ACQUIRED}, {@link #TIMED_OUT}, or {@link #SHED} if the queue policy turned the holder away
+     */
+    @Override
+    public int acquireOutcome(final int holderId,
+                              final int networkLatencyMs,
+                              final long timeoutMs)
+    {
+        // Simulate network latency for an attempt lock acquisition
+        simulateNetworkLatency(networkLatencyMs);
+
+        long waitStart = System.nanoTime();
+        lock.lock(); // This ensures that only one thread can modify the semaphore's state at a time
+        try
+        {
+            reclaimExpiredLeases();
+            if (count > 0 && waiters.isEmpty())
+            {
+                count--;
+                leases.grant(holderId, System.currentTimeMillis());
+                stats.acquired(waitStart);
+                return ACQUIRED;
+            }
+            if (timeoutMs == 0)
+            {
+                stats.timedOut(waitStart);
+                return TIMED_OUT;
+            }
+
+            // A full queue sheds the arrival, or under LIFO the oldest waiter
+            if (queuePolicy.isFull(waiters.size()))
+            {
+                if (!queuePolicy.mode.equals(WaitQueuePolicy.LIFO))
+                {
+                    stats.shed(waitStart);
+                    return SHED;
+                }
+                shed(waiters.pollLast());
+            }
+
+            Waiter waiter = new Waiter(holderId, lock.newCondition(), waitStart);
+            if (queuePolicy.mode.equals(WaitQueuePolicy.LIFO))
+                waiters.addFirst(waiter);
+            else
+                waiters.addLast(waiter);
+            stats.enqueue();
+            try
+            {
+                // A negative timeout waits indefinitely until a resource becomes available.
+                long nanos = timeoutMs < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                while (waiter.outcome < 0)
+                {
+                    if (nanos <= 0)
+                    {
+                        waiters.remove(waiter);
+                        stats.timedOut(waitStart);
+                        return TIMED_OUT;
+                    }
+                    // Releases the lock until a permit is handed over or the waiter is shed.
+                    // Wake up no later than the next lease expiry so it can be reclaimed.
+                    long waitNanos = Math.min(nanos, nanosUntilNextExpiry());
+                    long remaining = waiter.ready.awaitNanos(waitNanos);
+                    if (timeoutMs >= 0)
+                        nanos -= waitNanos - remaining;
+                    if (waiter.outcome < 0)
+                        reclaimExpiredLeases();
+                }
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                if (waiter.outcome == ACQUIRED)
+                {
+                    // Handed a permit just as the holder gave up; pass it on
+                    leases.release(holderId);
+                    count++;
+                    handOff();
+                }
+                else
+                {
+                    waiters.remove(waiter);
+                }
+                stats.timedOut(waitStart);
+                return TIMED_OUT;
+            }
+            finally
+            {
+                stats.dequeue();
+            }
+
+            if (waiter.outcome == SHED)
+            {
+                stats.shed(waitStart);
+                return SHED;
+            }
+            stats.acquired(waitStart);
+            return ACQUIRED;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * V operation (signal/release) with an already sampled network latency
+     */
+    @Override
+    public void release(final int holderId,
+                        final int networkLatencyMs)
+    {
+        // Simulate network latency for distributed lock release
+        simulateNetworkLatency(networkLatencyMs);
+
+        lock.lock();
+        try
+        {
+            Long grantedTime = leases.release(holderId);
+            if (grantedTime == null)
+            {
+                // Lease already expired and the permit was reclaimed
+                lateReleases++;
+                return;
+            }
+            stats.released(System.currentTimeMillis() - grantedTime);
+            count++;
+            handOff();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand free permits straight to waiters, in queue order. Under CoDel, waiters
+     * that queued past the target are shed once queuing has stayed above the target
+     * for an interval. Caller holds the lock.
+     */
+    private void handOff()
+    {
+        long now = System.nanoTime();
+        while (count > 0 && !waiters.isEmpty())
+        {
+            Waiter next = waiters.pollFirst();
+            if (queuePolicy.mode.equals(WaitQueuePolicy.CODEL) && codelShouldShed(next, now))
+            {
+                shed(next);
+                continue;
+            }
+            count--;
+            leases.grant(next.holderId, System.currentTimeMillis());
+            next.outcome = ACQUIRED;
+            next.ready.signal();
+        }
+    }
+
+    /**
+     * CoDel's test, made as a waiter reaches the head of the queue. Caller holds the lock.
+     */
+    private boolean codelShouldShed(final Waiter waiter,
+                                    final long now)
+    {
+        if (now - waiter.enqueuedNanos < queuePolicy.targetNanos)
+        {
+            aboveTargetSince = 0;
+            return false;
+        }
+        if (aboveTargetSince == 0)
+        {
+            aboveTargetSince = now;
+            return false;
+        }
+        return now - aboveTargetSince >= queuePolicy.intervalNanos;
+    }
+
+    /**
+     * Wake a waiter to tell it it has been shed. Caller holds the lock.
+     */
+    private void shed(final Waiter waiter)
+    {
+        waiter.outcome = SHED;
+        waiter.ready.signal();
+    }
+
+    /**
+     * Return permits whose lease has expired to the pool. Caller holds the lock.
+     * @return number of permits reclaimed
+     */
+    private int reclaimExpiredLeases()
+    {
+        if (leaseTimeoutMs <= 0 || leases.isEmpty())
+        {
+            return 0;
+        }
+
+        int reclaimed = leases.expire(System.currentTimeMillis(), leaseTimeoutMs, null);
+        if (reclaimed > 0)
+        {
+            count += reclaimed;
+            expiredLeases += reclaimed;
+            handOff();
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Time until the oldest lease expires. Caller holds the lock.
+     */
+    private long nanosUntilNextExpiry()
+    {
+        if (leaseTimeoutMs <= 0 || leases.isEmpty())
+        {
+            return Long.MAX_VALUE;
+        }
+
+        long remainingMs = leases.oldest() + leaseTimeoutMs - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, remainingMs));
+    }
+
+    /**
+     * Count permits held longer than thresholdMs, which are likely leaked
+     */
+    @Override
+    public int countLongHeldPermits(final long thresholdMs)
+    {
+        lock.lock();
+        try
+        {
+            return leases.countOlderThan(System.currentTimeMillis(), thresholdMs);
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of permits reclaimed through lease expiry
+     */
+    @Override
+    public int getExpiredLeases()
+    {
+        lock.lock();
+        try
+        {
+            return expiredLeases;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of releases that arrived after their lease had expired
+     */
+    public int getLateReleases()
+    {
+        lock.lock();
+        try
+        {
+            return lateReleases;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SemaphoreStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Get the current semaphore value (for monitoring)
+     */
+    @Override
+    public int getValue()
+    {
+        lock.lock();
+        try
+        {
+            return count;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get max semaphore value
+     */
+    @Override
+    public int getMaxValue()
+    {
+        return maxCount;
+    }
+
+    /**
+     * Get semaphore name
+     */
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Simulates network latency that would occur in a distributed system
+     */
+    private void simulateNetworkLatency(final int latencyMs)
+    {
+        try
+        {
+            Thread.sleep(latencyMs);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public LocalSemaphore(final int count,
+                          final String name)
+    {
+        this(count, name, 0);
+    }
+
+    /**
+     * @param leaseTimeoutMs how long a holder may keep a permit before it is reclaimed (0 disables)
+     */
+    public LocalSemaphore(final int count,
+                          final String name,
+                          final long leaseTimeoutMs)
+    {
+        this(count, name, leaseTimeoutMs, WaitQueuePolicy.UNBOUNDED);
+    }
+
+    /**
+     * @param leaseTimeoutMs how long a holder may keep a permit before it is reclaimed (0 disables)
+     * @param queuePolicy bounds the queue of waiting holders and picks whom to shed
+     */
+    public LocalSemaphore(final int count,
+                          final String name,
+                          final long leaseTimeoutMs,
+                          final WaitQueuePolicy queuePolicy)
+    {
+        this.count          = count;  // The number of available permits or resources that can be acquired.
+        this.maxCount       = count;  // Stores the initial number of resources that can be acquired.
+        this.name           = name;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.queuePolicy    = queuePolicy;
+    }
+}
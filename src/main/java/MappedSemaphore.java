@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Semaphore whose permits live in a memory-mapped file, so containers in separate
+ * JVMs on the same host share them without a coordinator. All state is updated with
+ * atomic {@link VarHandle} operations on the mapping, which the OS shares between
+ * every process that maps the file.
+ *
+ * Each permit is a slot holding (holder key, grant time) packed into one long, so
+ * taking, releasing or reclaiming an expired lease is a single compare-and-set.
+ * Holder keys combine the holder id with a namespace each mapping takes from the
+ * header, so container ids reused by another JVM never match this one's slots.
+ * There is no cross-process wakeup, so waiters spin briefly and then park with a
+ * growing backoff.
+ *
+ * File layout (native byte order):
+ *   0   int  magic (0 while uninitialized, INITIALIZING while the creator writes the header)
+ *   4   int  max permits
+ *   8   long base time (ms), grant times are stored relative to it
+ *   16  long lease timeout (ms), 0 disables leases
+ *   24  int  waiting holders
+ *   28  int  expired leases
+ *   32  int  mappings so far, the source of holder namespaces
+ *   64  one slot per permit, each on its own cache line
+ */
+class MappedSemaphore implements DistributedSemaphore
+{
+    private static final int MAGIC        = 0x4D53454D;
+    private static final int INITIALIZING = -1;
+
+    private static final int MAGIC_OFFSET    = 0;
+    private static final int MAX_OFFSET      = 4;
+    private static final int BASE_OFFSET     = 8;
+    private static final int LEASE_OFFSET    = 16;
+    private static final int WAITING_OFFSET  = 24;
+    private static final int EXPIRED_OFFSET  = 28;
+    private static final int MAPPINGS_OFFSET = 32;
+    private static final int SLOTS_OFFSET    = 64;
+    private static final int SLOT_STRIDE     = 64;
+
+    // Spins before parking, and the park backoff range
+    private static final int SPIN_TRIES        = 100;
+    private static final long MIN_PARK_NANOS   = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_PARK_NANOS   = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Holder key bits: namespace in the high bits, holder id + 1 in the low ones (0 marks a free slot).
+    // Namespaces repeat only after 2048 mappings of one file.
+    private static final int HOLDER_BITS     = 20;
+    private static final int NAMESPACE_MASK  = 0x7FF;
+
+    // Longest wait for another process to finish writing the header
+    private static final long INIT_TIMEOUT_MS = 5_000;
+
+    private static final VarHandle INT  = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final MappedByteBuffer buffer;
+    private final String name;
+    private final int maxCount;
+    private final long baseTimeMs;
+    private final long leaseTimeoutMs;
+    private final int namespace;
+    // Statistics for holders in this JVM only
+    private final SemaphoreStats stats = new SemaphoreStats();
+
+    /**
+     * Map the semaphore file, creating and initializing it if no process has yet.
+     * The permit count and lease timeout of the first creator win.
+     */
+    public MappedSemaphore(final Path file,
+                           final String name,
+                           final int permits,
+                           final long leaseTimeoutMs) throws IOException
+    {
+        this.name = name;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SLOTS_OFFSET + (long) permits * SLOT_STRIDE);
+        }
+
+        if (INT.compareAndSet(buffer, MAGIC_OFFSET, 0, INITIALIZING))
+        {
+            INT.setVolatile(buffer, MAX_OFFSET, permits);
+            LONG.setVolatile(buffer, BASE_OFFSET, System.currentTimeMillis());
+            LONG.setVolatile(buffer, LEASE_OFFSET, leaseTimeoutMs);
+            INT.setVolatile(buffer, MAGIC_OFFSET, MAGIC);
+        }
+        long initDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INIT_TIMEOUT_MS);
+        while ((int) INT.getVolatile(buffer, MAGIC_OFFSET) != MAGIC)
+        {
+            if (System.nanoTime() - initDeadline > 0)
+            {
+                throw new IOException(file + " was not initialized within " + INIT_TIMEOUT_MS
+                        + "ms; its creator may have died, so delete it and retry");
+            }
+            Thread.onSpinWait();
+        }
+
+        this.maxCount       = (int) INT.getVolatile(buffer, MAX_OFFSET);
+        this.baseTimeMs     = (long) LONG.getVolatile(buffer, BASE_OFFSET);
+        this.leaseTimeoutMs = (long) LONG.getVolatile(buffer, LEASE_OFFSET);
+        this.namespace      = (int) INT.getAndAdd(buffer, MAPPINGS_OFFSET, 1) & NAMESPACE_MASK;
+        if (maxCount > permits)
+        {
+            throw new IOException(file + " was created with " + maxCount + " permits, expected at most " + permits);
+        }
+    }
+
+    /**
+     * P operation (semWait) with an already sampled network latency, which is
+     * simulated with a sleep as in {@link LocalSemaphore}
+     * @return true if acquired, false on timeout
+     */
+    @Override
+    public boolean acquire(final int holderId,
+                           final int networkLatencyMs,
+                           final long timeoutMs)
+    {
+        simulateNetworkLatency(networkLatencyMs);
+
+        long waitStart = System.nanoTime();
+        long deadline = timeoutMs < 0 ? Long.MAX_VALUE : waitStart + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if (tryAcquire(holderId))
+        {
+            stats.acquired(waitStart);
+            return true;
+        }
+
+        INT.getAndAdd(buffer, WAITING_OFFSET, 1);
+        stats.enqueue();
+        try
+        {
+            long parkNanos = MIN_PARK_NANOS;
+            for (int attempt = 1; ; attempt++)
+            {
+                if (tryAcquire(holderId))
+                {
+                    stats.acquired(waitStart);
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                {
+                    stats.timedOut(waitStart);
+                    return false;
+                }
+                if (attempt < SPIN_TRIES)
+                {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                if (Thread.interrupted())
+                {
+                    Thread.currentThread().interrupt();
+                    stats.timedOut(waitStart);
+                    return false;
+                }
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+        finally
+        {
+            stats.dequeue();
+            INT.getAndAdd(buffer, WAITING_OFFSET, -1);
+        }
+    }
+
+    /**
+     * Take a free slot, or one whose lease has expired
+     */
+    private boolean tryAcquire(final int holderId)
+    {
+        long now = System.currentTimeMillis();
+        long granted = pack(holderKey(holderId), now);
+        int first = Math.floorMod(holderId, maxCount);
+        for (int i = 0; i < maxCount; i++)
+        {
+            int offset = slotOffset((first + i) % maxCount);
+            long slot = (long) LONG.getVolatile(buffer, offset);
+            if (slot == 0)
+            {
+                if (LONG.compareAndSet(buffer, offset, 0L, granted))
+                {
+                    return true;
+                }
+            }
+            else if (leaseExpired(slot, now) && LONG.compareAndSet(buffer, offset, slot, granted))
+            {
+                INT.getAndAdd(buffer, EXPIRED_OFFSET, 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * V operation (signal/release) with an already sampled network latency.
+     * A release whose lease already expired is ignored.
+     */
+    @Override
+    public void release(final int holderId,
+                        final int networkLatencyMs)
+    {
+        simulateNetworkLatency(networkLatencyMs);
+
+        int key = holderKey(holderId);
+        for (int i = 0; i < maxCount; i++)
+        {
+            int offset = slotOffset(i);
+            long slot = (long) LONG.getVolatile(buffer, offset);
+            if (slot != 0 && (int) (slot >>> 32) == key && LONG.compareAndSet(buffer, offset, slot, 0L))
+            {
+                stats.released(System.currentTimeMillis() - grantedAt(slot));
+                return;
+            }
+        }
+    }
+
+    private boolean leaseExpired(final long slot,
+                                 final long now)
+    {
+        return leaseTimeoutMs > 0 && now - grantedAt(slot) >= leaseTimeoutMs;
+    }
+
+    private long pack(final int holderKey,
+                      final long timeMs)
+    {
+        return ((long) holderKey << 32) | ((timeMs - baseTimeMs) & 0xFFFFFFFFL);
+    }
+
+    private long grantedAt(final long slot)
+    {
+        return baseTimeMs + (slot & 0xFFFFFFFFL);
+    }
+
+    private int holderKey(final int holderId)
+    {
+        if (holderId < 0 || holderId >= (1 << HOLDER_BITS) - 1)
+        {
+            throw new IllegalArgumentException("Holder id out of range for a mapped semaphore: " + holderId);
+        }
+        return (namespace << HOLDER_BITS) | (holderId + 1);
+    }
+
+    private static int slotOffset(final int slot)
+    {
+        return SLOTS_OFFSET + slot * SLOT_STRIDE;
+    }
+
+    private void simulateNetworkLatency(final int latencyMs)
+    {
+        try
+        {
+            Thread.sleep(latencyMs);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int getValue()
+    {
+        int free = 0;
+        for (int i = 0; i < maxCount; i++)
+        {
+            if ((long) LONG.getVolatile(buffer, slotOffset(i)) == 0)
+            {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    @Override
+    public int getMaxValue()
+    {
+        return maxCount;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Number of holders in any process currently waiting for a permit
+     */
+    public int getWaiting()
+    {
+        return (int) INT.getVolatile(buffer, WAITING_OFFSET);
+    }
+
+    @Override
+    public SemaphoreStats getStats()
+    {
+        return stats;
+    }
+
+    @Override
+    public int getExpiredLeases()
+    {
+        return (int) INT.getVolatile(buffer, EXPIRED_OFFSET);
+    }
+
+    @Override
+    public int countLongHeldPermits(final long thresholdMs)
+    {
+        long now = System.currentTimeMillis();
+        int held = 0;
+        for (int i = 0; i < maxCount; i++)
+        {
+            long slot = (long) LONG.getVolatile(buffer, slotOffset(i));
+            if (slot != 0 && now - grantedAt(slot) >= thresholdMs)
+            {
+                held++;
+            }
+        }
+        return held;
+    }
+}
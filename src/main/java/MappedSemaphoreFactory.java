@@ -0,0 +1,35 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Creates {@link MappedSemaphore}s as files in a shared directory, one file per
+ * semaphore name. Every JVM pointed at the same directory shares the permits, so
+ * use a fresh directory for each run.
+ */
+class MappedSemaphoreFactory implements SemaphoreFactory
+{
+    private final Path directory;
+
+    public MappedSemaphoreFactory(final Path directory)
+    {
+        this.directory = directory;
+    }
+
+    @Override
+    public DistributedSemaphore create(final String name,
+                                       final int permits,
+                                       final long leaseTimeoutMs)
+    {
+        try
+        {
+            Files.createDirectories(directory);
+            return new MappedSemaphore(directory.resolve(name + ".sem"), name, permits, leaseTimeoutMs);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException("Cannot map semaphore " + name + " in " + directory, e);
+        }
+    }
+}
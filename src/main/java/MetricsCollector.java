@@ -1,14 +1,23 @@
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Metrics collection for performance analysis
+ * Metrics collection for performance analysis.
+ *
+ * Events are kept in heap lists, or with a {@link MetricsLog} attached they are
+ * appended to the mapped log instead and nothing per event stays on the heap.
  */
 class MetricsCollector
 {
@@ -18,117 +27,402 @@ class MetricsCollector
     private final List<ConflictLogEntry> timeoutLogs;
 
     // Performance metrics
-    private final AtomicInteger totalRequests      = new AtomicInteger(0);
     private final AtomicInteger successfulRequests = new AtomicInteger(0);
     private final AtomicInteger conflictCount      = new AtomicInteger(0);
     private final AtomicInteger timeoutCount       = new AtomicInteger(0);
+    private final AtomicInteger crashCount         = new AtomicInteger(0);
+    private final AtomicInteger droppedReleases    = new AtomicInteger(0);
+    private final AtomicInteger shedCount          = new AtomicInteger(0);
+    private final AtomicInteger rateLimitedCount   = new AtomicInteger(0);
+    private final AtomicInteger rateDelayedCount   = new AtomicInteger(0);
 
-    // Time tracking
-    private final Instant startTime;
+    // Running sums for the averages
+    private final AtomicLong acquireTimeSum    = new AtomicLong(0);
+    private final AtomicLong processingTimeSum = new AtomicLong(0);
+    private final AtomicLong totalTimeSum      = new AtomicLong(0);
+
+    // Latency distributions, kept regardless of where events are logged
+    private final LatencyHistogram acquireTimes = new LatencyHistogram();
+    private final LatencyHistogram totalTimes   = new LatencyHistogram();
+    private final LatencyHistogram rateDelays   = new LatencyHistogram();
+
+    // Per-second rates over the last hour of the run
+    static final int RATE_HISTORY_SECONDS = 3600;
+    private final RateMeter requestRate     = new RateMeter(RATE_HISTORY_SECONDS);
+    private final RateMeter conflictRate    = new RateMeter(RATE_HISTORY_SECONDS);
+    private final RateMeter timeoutRate     = new RateMeter(RATE_HISTORY_SECONDS);
+    private final RateMeter shedRate        = new RateMeter(RATE_HISTORY_SECONDS);
+    private final RateMeter rateLimitedRate = new RateMeter(RATE_HISTORY_SECONDS);
+
+    // Semaphores whose statistics are included in the summary
+    private final List<DistributedSemaphore> semaphores = new CopyOnWriteArrayList<>();
+
+    // Per-tenant outcomes, or null without tenants
+    private volatile TenantTotals tenantTotals;
+
+    // Binary event log replacing the heap lists, or null
+    private final MetricsLog eventLog;
+
+    // Time tracking; the end stays unset until the run has drained
+    private volatile Instant startTime;
+    private volatile Instant endTime;
 
     public MetricsCollector()
     {
-        accessLogs   = new ArrayList<>();
-        conflictLogs = new ArrayList<>();
-        timeoutLogs  = new ArrayList<>();
-        lock         = new Object();
-        startTime    = Instant.now();
+        this(null);
+    }
+
+    public MetricsCollector(final MetricsLog eventLog)
+    {
+        accessLogs    = new ArrayList<>();
+        conflictLogs  = new ArrayList<>();
+        timeoutLogs   = new ArrayList<>();
+        lock          = new Object();
+        startTime     = Instant.now();
+        this.eventLog = eventLog;
     }
 
     public void recordAccess(final int containerId,
-                             final String resourceId,
+                             final int resourceIndex,
                              final long acquireTime,
                              final int processingTime,
                              final long totalTime)
     {
-        synchronized (lock)
+        if (eventLog != null)
         {
-            accessLogs.add(new AccessLogEntry(
-                    containerId, resourceId, acquireTime, processingTime, totalTime));
+            eventLog.appendAccess(containerId, resourceIndex, acquireTime, processingTime, totalTime);
         }
-        totalRequests.incrementAndGet();
+        else
+        {
+            synchronized (lock)
+            {
+                accessLogs.add(new AccessLogEntry(containerId, resourceIndex, acquireTime, processingTime,
+                        totalTime, System.currentTimeMillis() - startTime.toEpochMilli()));
+            }
+        }
+        acquireTimeSum.addAndGet(acquireTime);
+        processingTimeSum.addAndGet(processingTime);
+        totalTimeSum.addAndGet(totalTime);
+        acquireTimes.record(acquireTime);
+        totalTimes.record(totalTime);
         successfulRequests.incrementAndGet();
+        requestRate.mark();
+
+        TenantTotals tenants = tenantTotals;
+        if (tenants != null)
+        {
+            int tenant = tenants.quotas.tenantOf(containerId);
+            tenants.successes.incrementAndGet(tenant);
+            tenants.totalTimes[tenant].record(totalTime);
+        }
     }
 
     public void recordConflict(final int containerId,
-                               final String resourceId)
+                               final int resourceIndex)
     {
-        synchronized (lock)
+        if (eventLog != null)
         {
-            conflictLogs.add(new ConflictLogEntry(containerId, resourceId));
+            eventLog.appendEvent(MetricsLog.TYPE_CONFLICT, containerId, resourceIndex);
+        }
+        else
+        {
+            synchronized (lock)
+            {
+                conflictLogs.add(new ConflictLogEntry(containerId, resourceIndex));
+            }
         }
         conflictCount.incrementAndGet();
+        conflictRate.mark();
     }
 
     public void recordTimeout(final int containerId,
-                              final String resourceId)
+                              final int resourceIndex)
     {
-        synchronized (lock)
+        if (eventLog != null)
+        {
+            eventLog.appendEvent(MetricsLog.TYPE_TIMEOUT, containerId, resourceIndex);
+        }
+        else
         {
-            timeoutLogs.add(new ConflictLogEntry(containerId, resourceId));
+            synchronized (lock)
+            {
+                timeoutLogs.add(new ConflictLogEntry(containerId, resourceIndex));
+            }
         }
-        totalRequests.incrementAndGet();
         timeoutCount.incrementAndGet();
+        timeoutRate.mark();
+
+        TenantTotals tenants = tenantTotals;
+        if (tenants != null)
+        {
+            tenants.timeouts.incrementAndGet(tenants.quotas.tenantOf(containerId));
+        }
+    }
+
+    public void recordCrash(final int containerId,
+                            final int resourceIndex)
+    {
+        if (eventLog != null)
+        {
+            eventLog.appendEvent(MetricsLog.TYPE_CRASH, containerId, resourceIndex);
+        }
+        crashCount.incrementAndGet();
     }
 
     /**
-     * Save metrics to CSV file
+     * A request a semaphore's bounded wait queue turned away, counted apart from timeouts
      */
-    public void saveToFile(final String filename,
-                           final SimulationConfig config)
+    public void recordShed(final int containerId,
+                           final int resourceIndex)
     {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename)))
-        {
-            // Write simulation configuration
-            writer.println("# Simulation Configuration");
-            writer.println("NumContainers," + config.numContainers);
-            writer.println("NumResources," + config.numResources);
-            writer.println("SimulationTime," + config.simulationTimeSeconds);
-            writer.println("MaxConcurrentAccess," + config.maxConcurrentAccess);
-            writer.println("SynchronizationEnabled," + config.enableSynchronization);
-            writer.println("NetworkLatencyMean," + config.networkLatencyMeanMs);
-            writer.println("ProcessingTimeMean," + config.processingTimeMeanMs);
-            writer.println();
+        if (eventLog != null)
+        {
+            eventLog.appendEvent(MetricsLog.TYPE_SHED, containerId, resourceIndex);
+        }
+        shedCount.incrementAndGet();
+        shedRate.mark();
+    }
 
-            // Write summary metrics
-            writer.println("# Summary Metrics");
-            writer.println("TotalRequests," + totalRequests.get());
-            writer.println("SuccessfulRequests," + successfulRequests.get());
-            writer.println("Conflicts," + conflictCount.get());
-            writer.println("Timeouts," + timeoutCount.get());
+    /**
+     * A request the rate limiter turned away before it reached the resource
+     */
+    public void recordRateLimited(final int containerId,
+                                  final int resourceIndex)
+    {
+        if (eventLog != null)
+        {
+            eventLog.appendEvent(MetricsLog.TYPE_RATE_LIMITED, containerId, resourceIndex);
+        }
+        rateLimitedCount.incrementAndGet();
+        rateLimitedRate.mark();
+    }
 
-            Instant endTime = Instant.now();
-            long duration = Duration.between(startTime, endTime).getSeconds();
+    /**
+     * A request the rate limiter held back to keep to its rate
+     */
+    public void recordRateDelay(final long delayMs)
+    {
+        rateDelayedCount.incrementAndGet();
+        rateDelays.record(delayMs);
+    }
 
-            writer.println("TotalDuration," + duration);
-            writer.println("ThroughputPerSecond," + ((float)successfulRequests.get() / Math.max(1, duration)));
+    public void recordDroppedRelease(final int containerId,
+                                     final int resourceIndex)
+    {
+        if (eventLog != null)
+        {
+            eventLog.appendEvent(MetricsLog.TYPE_DROPPED, containerId, resourceIndex);
+        }
+        droppedReleases.incrementAndGet();
+    }
 
-            // Calculate average times
-            double avgAcquireTime = 0;
-            double avgProcessingTime = 0;
-            double avgTotalTime = 0;
+    /**
+     * Successes, timeouts and total times of each tenant's containers
+     */
+    private static final class TenantTotals
+    {
+        final TenantQuotas quotas;
+        final AtomicIntegerArray successes;
+        final AtomicIntegerArray timeouts;
+        final LatencyHistogram[] totalTimes;
 
-            synchronized (lock)
+        TenantTotals(final TenantQuotas quotas)
+        {
+            this.quotas     = quotas;
+            this.successes  = new AtomicIntegerArray(quotas.size());
+            this.timeouts   = new AtomicIntegerArray(quotas.size());
+            this.totalTimes = new LatencyHistogram[quotas.size()];
+            for (int i = 0; i < totalTimes.length; i++)
             {
-                for (final AccessLogEntry log : accessLogs)
+                totalTimes[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Break requests down by tenant in the summary and the CSV; call before the run starts
+     */
+    public void setTenants(final TenantQuotas quotas)
+    {
+        tenantTotals = new TenantTotals(quotas);
+    }
+
+    /**
+     * Include a semaphore's queue, wait, hold and timeout statistics in the summary
+     */
+    public void addSemaphore(final DistributedSemaphore semaphore)
+    {
+        semaphores.add(semaphore);
+    }
+
+    /**
+     * Start the run's clock now, rather than when the collector was created
+     */
+    public void markStarted()
+    {
+        startTime = Instant.now();
+    }
+
+    /**
+     * Stop the run's clock; durations and throughput are measured up to here
+     */
+    public void markFinished()
+    {
+        endTime = Instant.now();
+    }
+
+    /**
+     * Whole seconds from the start of the run to its end, or to now if still running
+     */
+    private long durationSeconds()
+    {
+        return Duration.between(startTime, endTime != null ? endTime : Instant.now()).getSeconds();
+    }
+
+    public int getTotalRequests()
+    {
+        return totalRequests(successfulRequests.get(), timeoutCount.get(), crashCount.get(),
+                shedCount.get(), rateLimitedCount.get());
+    }
+
+    /**
+     * Requests that reached an outcome: succeeded, timed out, crashed, shed or rate limited.
+     * Conflicts are not requests of their own and dropped releases follow a success.
+     */
+    static int totalRequests(final int successful,
+                             final int timeouts,
+                             final int crashes,
+                             final int shed,
+                             final int rateLimited)
+    {
+        return successful + timeouts + crashes + shed + rateLimited;
+    }
+
+    public int getSuccessfulRequests()
+    {
+        return successfulRequests.get();
+    }
+
+    public int getTimeoutCount()
+    {
+        return timeoutCount.get();
+    }
+
+    public int getConflictCount()
+    {
+        return conflictCount.get();
+    }
+
+    public int getShedCount()
+    {
+        return shedCount.get();
+    }
+
+    public int getRateLimitedCount()
+    {
+        return rateLimitedCount.get();
+    }
+
+    public int getRateDelayedCount()
+    {
+        return rateDelayedCount.get();
+    }
+
+    /**
+     * How long rate-limited requests were held back
+     */
+    public LatencyHistogram getRateDelays()
+    {
+        return rateDelays;
+    }
+
+    public int getCrashCount()
+    {
+        return crashCount.get();
+    }
+
+    /**
+     * Successful requests per second
+     */
+    public RateMeter getRequestRate()
+    {
+        return requestRate;
+    }
+
+    public RateMeter getConflictRate()
+    {
+        return conflictRate;
+    }
+
+    public RateMeter getTimeoutRate()
+    {
+        return timeoutRate;
+    }
+
+    public LatencyHistogram getAcquireTimes()
+    {
+        return acquireTimes;
+    }
+
+    public LatencyHistogram getTotalTimes()
+    {
+        return totalTimes;
+    }
+
+    /**
+     * Average time spent acquiring a permit over all successful accesses
+     */
+    public double getAverageAcquireTime()
+    {
+        int successful = successfulRequests.get();
+        return successful == 0 ? 0 : (double) acquireTimeSum.get() / successful;
+    }
+
+    /**
+     * Average time from request to release over all successful accesses
+     */
+    public double getAverageTotalTime()
+    {
+        int successful = successfulRequests.get();
+        return successful == 0 ? 0 : (double) totalTimeSum.get() / successful;
+    }
+
+    /**
+     * Save metrics to CSV file
+     */
+    public void saveToFile(final String filename,
+                           final SimulationConfig config)
+    {
+        if (eventLog != null)
+        {
+            // The log already holds every event; export it in the same layout
+            eventLog.force();
+            MetricsLogExporter.export(eventLog.getPath(), filename);
+            if (!semaphores.isEmpty() || tenantTotals != null || rateDelayedCount.get() > 0)
+            {
+                try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename, true))))
                 {
-                    avgAcquireTime += log.acquireTime;
-                    avgProcessingTime += log.processingTime;
-                    avgTotalTime += log.totalTime;
+                    writeSemaphoreStats(writer);
+                    writeTenantStats(writer);
+                    writeRateLimitStats(writer);
                 }
-
-                if (!accessLogs.isEmpty())
+                catch (final IOException e)
                 {
-                    avgAcquireTime /= accessLogs.size();
-                    avgProcessingTime /= accessLogs.size();
-                    avgTotalTime /= accessLogs.size();
+                    System.err.println("Error saving metrics to file: " + e.getMessage());
                 }
             }
+            return;
+        }
 
-            writer.println("AvgAcquireTimeMs," + avgAcquireTime);
-            writer.println("AvgProcessingTimeMs," + avgProcessingTime);
-            writer.println("AvgTotalTimeMs," + avgTotalTime);
-            writer.println();
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename))))
+        {
+            writer.print(configSection(config));
+
+            long duration = durationSeconds();
+            writeSummary(writer, successfulRequests.get(), conflictCount.get(),
+                    timeoutCount.get(), crashCount.get(), droppedReleases.get(), shedCount.get(),
+                    rateLimitedCount.get(), duration,
+                    acquireTimeSum.get(), processingTimeSum.get(), totalTimeSum.get(), sortedTotalTimes());
 
             // Write detailed access logs
             writer.println("# Access Logs");
@@ -138,9 +432,8 @@ class MetricsCollector
             {
                 for (final AccessLogEntry log : accessLogs)
                 {
-                    writer.println(log.containerId + "," + log.resourceId + "," +
-                            log.acquireTime + "," + log.processingTime + "," +
-                            log.totalTime);
+                    writeAccess(writer, log.containerId, ResourceRegistry.name(log.resourceIndex),
+                            log.acquireTime, log.processingTime, log.totalTime);
                 }
             }
 
@@ -154,7 +447,7 @@ class MetricsCollector
             {
                 for (final ConflictLogEntry log : conflictLogs)
                 {
-                    writer.println(log.containerId + "," + log.resourceId);
+                    writeEvent(writer, log.containerId, ResourceRegistry.name(log.resourceIndex));
                 }
             }
 
@@ -168,10 +461,14 @@ class MetricsCollector
             {
                 for (final ConflictLogEntry log : timeoutLogs)
                 {
-                    writer.println(log.containerId + "," + log.resourceId);
+                    writeEvent(writer, log.containerId, ResourceRegistry.name(log.resourceIndex));
                 }
             }
 
+            writeSemaphoreStats(writer);
+            writeTenantStats(writer);
+            writeRateLimitStats(writer);
+
         }
         catch (final IOException e)
         {
@@ -179,47 +476,404 @@ class MetricsCollector
         }
     }
 
+    /**
+     * Write the per-semaphore statistics section of the metrics CSV
+     */
+    private void writeSemaphoreStats(final PrintWriter writer)
+    {
+        if (semaphores.isEmpty())
+        {
+            return;
+        }
+        writer.println();
+        writer.println("# Semaphore Metrics");
+        writer.println("Semaphore,Acquires,Timeouts,Shed,TimeoutRate,MaxQueueLength,AvgQueueLength,"
+                + "WaitP50Ms,WaitP99Ms,HoldP50Ms,HoldP99Ms");
+        for (final DistributedSemaphore semaphore : semaphores)
+        {
+            SemaphoreStats stats = semaphore.getStats();
+            writer.println(semaphore.getName() + ','
+                    + stats.getAcquires() + ','
+                    + stats.getTimeouts() + ','
+                    + stats.getShed() + ','
+                    + stats.getTimeoutRate() + ','
+                    + stats.getMaxQueueLength() + ','
+                    + stats.getAverageQueueLength() + ','
+                    + stats.getWaitTimes().percentile(50) + ','
+                    + stats.getWaitTimes().percentile(99) + ','
+                    + stats.getHoldTimes().percentile(50) + ','
+                    + stats.getHoldTimes().percentile(99));
+        }
+    }
+
+    /**
+     * Write the per-tenant section of the metrics CSV
+     */
+    private void writeTenantStats(final PrintWriter writer)
+    {
+        TenantTotals tenants = tenantTotals;
+        if (tenants == null)
+        {
+            return;
+        }
+        long duration = Math.max(1, durationSeconds());
+        writer.println();
+        writer.println("# Tenant Metrics");
+        writer.println("Tenant,Containers,Reserved,Burst,SuccessfulRequests,Timeouts,ThroughputPerSecond,"
+                + "TotalP50Ms,TotalP99Ms,Throttled");
+        for (int i = 0; i < tenants.quotas.size(); i++)
+        {
+            writer.println(tenants.quotas.getName(i) + ','
+                    + tenants.quotas.getContainers(i) + ','
+                    + tenants.quotas.getReserved(i) + ','
+                    + tenants.quotas.getBurst(i) + ','
+                    + tenants.successes.get(i) + ','
+                    + tenants.timeouts.get(i) + ','
+                    + ((float) tenants.successes.get(i) / duration) + ','
+                    + tenants.totalTimes[i].percentile(50) + ','
+                    + tenants.totalTimes[i].percentile(99) + ','
+                    + throttled(i));
+        }
+    }
+
+    /**
+     * Write the rate limiting section of the metrics CSV, if the limiter delayed any
+     * request; rejected requests are in the summary
+     */
+    private void writeRateLimitStats(final PrintWriter writer)
+    {
+        if (rateDelayedCount.get() == 0)
+        {
+            return;
+        }
+        writer.println();
+        writer.println("# Rate Limiting");
+        writer.println("RateDelayed," + rateDelayedCount.get());
+        writer.println("RateDelayP50Ms," + rateDelays.percentile(50));
+        writer.println("RateDelayP99Ms," + rateDelays.percentile(99));
+    }
+
+    /**
+     * Acquires by a tenant that waited for its quota, over all tenant semaphores
+     */
+    private int throttled(final int tenant)
+    {
+        int throttled = 0;
+        for (final DistributedSemaphore semaphore : semaphores)
+        {
+            if (semaphore instanceof TenantSemaphore)
+            {
+                throttled += ((TenantSemaphore) semaphore).getThrottled(tenant);
+            }
+        }
+        return throttled;
+    }
+
+    /**
+     * Save the access log to a columnar result file, which is far smaller and
+     * faster to analyse than the CSV for large runs
+     */
+    public void saveToColumnar(final String filename)
+    {
+        try
+        {
+            if (eventLog != null)
+            {
+                try (MetricsLogReader reader = new MetricsLogReader(eventLog.getPath());
+                     ColumnarResultWriter writer = new ColumnarResultWriter(filename, reader::resourceName))
+                {
+                    reader.forEach((type, containerId, resourceIndex, acquireTime, processingTime, totalTime, timeMs) -> {
+                        if (type == MetricsLog.TYPE_ACCESS)
+                        {
+                            try
+                            {
+                                writer.addRow(containerId, resourceIndex, timeMs,
+                                        acquireTime, processingTime, totalTime);
+                            }
+                            catch (final IOException e)
+                            {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    });
+                }
+                return;
+            }
+
+            try (ColumnarResultWriter writer = new ColumnarResultWriter(filename, ResourceRegistry::name))
+            {
+                synchronized (lock)
+                {
+                    for (final AccessLogEntry log : accessLogs)
+                    {
+                        writer.addRow(log.containerId, log.resourceIndex, log.offsetMs,
+                                log.acquireTime, log.processingTime, log.totalTime);
+                    }
+                }
+            }
+        }
+        catch (final IOException | UncheckedIOException e)
+        {
+            System.err.println("Error saving columnar results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Save per-second successful requests, conflicts, timeouts, shed and rate-limited
+     * requests as a CSV time series, covering up to the last RATE_HISTORY_SECONDS of the run
+     */
+    public void saveTimeSeries(final String filename)
+    {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename))))
+        {
+            writer.println("Second,Requests,Conflicts,Timeouts,Shed,RateLimited");
+            long current = requestRate.currentSecond();
+            for (long second = requestRate.firstSecond(); second < current; second++)
+            {
+                writer.print(second);
+                writer.print(',');
+                writer.print(requestRate.countAt(second));
+                writer.print(',');
+                writer.print(conflictRate.countAt(second));
+                writer.print(',');
+                writer.print(timeoutRate.countAt(second));
+                writer.print(',');
+                writer.print(shedRate.countAt(second));
+                writer.print(',');
+                writer.println(rateLimitedRate.countAt(second));
+            }
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving time series: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Configuration section of the metrics CSV, ending with a blank line
+     */
+    static String configSection(final SimulationConfig config)
+    {
+        StringBuilder section = new StringBuilder();
+        section.append("# Simulation Configuration\n");
+        section.append("NumContainers,").append(config.numContainers).append('\n');
+        section.append("NumResources,").append(config.numResources).append('\n');
+        section.append("SimulationTime,").append(config.simulationTimeSeconds).append('\n');
+        section.append("MaxConcurrentAccess,").append(config.maxConcurrentAccess).append('\n');
+        section.append("ShardsPerResource,").append(config.shardsPerResource).append('\n');
+        section.append("SynchronizationEnabled,").append(config.enableSynchronization).append('\n');
+        section.append("NetworkLatencyMean,").append(config.networkLatencyMeanMs).append('\n');
+        section.append("ProcessingTimeMean,").append(config.processingTimeMeanMs).append('\n');
+        if (config.networkLatencySpec != null)
+        {
+            section.append("NetworkLatencyDistribution,\"").append(config.networkLatencySpec).append("\"\n");
+        }
+        if (config.processingTimeSpec != null)
+        {
+            section.append("ProcessingTimeDistribution,\"").append(config.processingTimeSpec).append("\"\n");
+        }
+        section.append("RandomSeed,").append(config.randomSeed).append('\n');
+        section.append('\n');
+        return section.toString();
+    }
+
+    /**
+     * Write the summary section of the metrics CSV, ending with a blank line
+     */
+    static void writeSummary(final PrintWriter writer,
+                             final int successful,
+                             final int conflicts,
+                             final int timeouts,
+                             final int crashes,
+                             final int droppedReleases,
+                             final int shed,
+                             final int rateLimited,
+                             final long durationSeconds,
+                             final long acquireTimeSum,
+                             final long processingTimeSum,
+                             final long totalTimeSum,
+                             final long[] sortedTotalTimes)
+    {
+        writer.println("# Summary Metrics");
+        writer.println("TotalRequests," + totalRequests(successful, timeouts, crashes, shed, rateLimited));
+        writer.println("SuccessfulRequests," + successful);
+        writer.println("Conflicts," + conflicts);
+        writer.println("Timeouts," + timeouts);
+        writer.println("Crashes," + crashes);
+        writer.println("DroppedReleases," + droppedReleases);
+        writer.println("Shed," + shed);
+        writer.println("RateLimited," + rateLimited);
+
+        writer.println("TotalDuration," + durationSeconds);
+        writer.println("ThroughputPerSecond," + ((float) successful / Math.max(1, durationSeconds)));
+
+        double count = Math.max(1, successful);
+        writer.println("AvgAcquireTimeMs," + (successful == 0 ? 0.0 : acquireTimeSum / count));
+        writer.println("AvgProcessingTimeMs," + (successful == 0 ? 0.0 : processingTimeSum / count));
+        writer.println("AvgTotalTimeMs," + (successful == 0 ? 0.0 : totalTimeSum / count));
+
+        writer.println("P50TotalTimeMs," + percentile(sortedTotalTimes, 50));
+        writer.println("P95TotalTimeMs," + percentile(sortedTotalTimes, 95));
+        writer.println("P99TotalTimeMs," + percentile(sortedTotalTimes, 99));
+        writer.println();
+    }
+
+    /**
+     * Write one access log row without building an intermediate string
+     */
+    static void writeAccess(final PrintWriter writer,
+                            final int containerId,
+                            final String resourceId,
+                            final long acquireTime,
+                            final int processingTime,
+                            final long totalTime)
+    {
+        writer.print(containerId);
+        writer.print(',');
+        writer.print(resourceId);
+        writer.print(',');
+        writer.print(acquireTime);
+        writer.print(',');
+        writer.print(processingTime);
+        writer.print(',');
+        writer.println(totalTime);
+    }
+
+    /**
+     * Write one conflict or timeout log row
+     */
+    static void writeEvent(final PrintWriter writer,
+                           final int containerId,
+                           final String resourceId)
+    {
+        writer.print(containerId);
+        writer.print(',');
+        writer.println(resourceId);
+    }
+
     /**
      * Print summary to console
      */
     public void printSummary()
     {
         System.out.println("\n==== Simulation Summary ====");
-        System.out.println("Total requests: " + totalRequests.get());
+        System.out.println("Total requests: " + getTotalRequests());
         System.out.println("Successful requests: " + successfulRequests.get());
         System.out.println("Conflicts: " + conflictCount.get());
         System.out.println("Timeouts: " + timeoutCount.get());
+        if (shedCount.get() > 0)
+        {
+            System.out.println("Shed: " + shedCount.get());
+        }
+        if (rateLimitedCount.get() + rateDelayedCount.get() > 0)
+        {
+            System.out.println("Rate limited: " + rateLimitedCount.get() + " rejected, "
+                    + rateDelayedCount.get() + " delayed (delay p50/p99 "
+                    + rateDelays.percentile(50) + "/" + rateDelays.percentile(99) + " ms)");
+        }
+        if (crashCount.get() > 0 || droppedReleases.get() > 0)
+        {
+            System.out.println("Crashed containers: " + crashCount.get());
+            System.out.println("Dropped releases: " + droppedReleases.get());
+        }
 
-        Instant endTime = Instant.now();
-        long duration   = Duration.between(startTime, endTime).getSeconds();
+        long duration = durationSeconds();
 
         System.out.println("Total duration: " + duration + " seconds");
         System.out.println("Throughput: " + ((float)successfulRequests.get() / Math.max(1, duration)) + " requests/second");
+        System.out.println("Throughput last 10s: " + requestRate.rate(10) + " requests/second"
+                + " (lowest second: " + requestRate.minimumPerSecond() + ")");
 
         // Calculate average times
-        double avgAcquireTime = 0;
-        double avgProcessingTime = 0;
-        double avgTotalTime = 0;
+        int successful = successfulRequests.get();
+        double count   = Math.max(1, successful);
+        System.out.println("Average acquire time: " + (successful == 0 ? 0.0 : acquireTimeSum.get() / count) + " ms");
+        System.out.println("Average processing time: " + (successful == 0 ? 0.0 : processingTimeSum.get() / count) + " ms");
+        System.out.println("Average total time: " + (successful == 0 ? 0.0 : totalTimeSum.get() / count) + " ms");
 
-        synchronized (lock)
+        long[] totalTimes = sortedTotalTimes();
+        System.out.println("Total time p50/p95/p99: " + percentile(totalTimes, 50) + " / "
+                + percentile(totalTimes, 95) + " / " + percentile(totalTimes, 99) + " ms");
+
+        if (!semaphores.isEmpty())
         {
-            for (final AccessLogEntry log : accessLogs)
+            System.out.println("Semaphores (wait and hold p50/p99 are bucket bounds):");
+            for (final DistributedSemaphore semaphore : semaphores)
             {
-                avgAcquireTime += log.acquireTime;
-                avgProcessingTime += log.processingTime;
-                avgTotalTime += log.totalTime;
+                SemaphoreStats stats = semaphore.getStats();
+                System.out.println("- " + semaphore.getName() + ": "
+                        + stats.getAcquires() + " acquires, "
+                        + stats.getTimeouts() + " timeouts (" + String.format("%.1f", stats.getTimeoutRate() * 100) + "%), "
+                        + stats.getShed() + " shed, "
+                        + "queue max " + stats.getMaxQueueLength()
+                        + " avg " + String.format("%.2f", stats.getAverageQueueLength()) + ", "
+                        + "wait " + stats.getWaitTimes().percentile(50) + "/" + stats.getWaitTimes().percentile(99) + " ms, "
+                        + "hold " + stats.getHoldTimes().percentile(50) + "/" + stats.getHoldTimes().percentile(99) + " ms");
             }
+        }
+
+        printTenantSummary();
+    }
+
+    /**
+     * Print each tenant's throughput, timeouts and total time percentiles
+     */
+    private void printTenantSummary()
+    {
+        TenantTotals tenants = tenantTotals;
+        if (tenants == null)
+        {
+            return;
+        }
+        long duration = Math.max(1, durationSeconds());
+        System.out.println("Tenants (total time p50/p99 are bucket bounds):");
+        for (int i = 0; i < tenants.quotas.size(); i++)
+        {
+            System.out.println("- " + tenants.quotas.getName(i) + " (" + tenants.quotas.getContainers(i)
+                    + " containers, reserved " + tenants.quotas.getReserved(i)
+                    + ", burst " + tenants.quotas.getBurst(i) + "): "
+                    + tenants.successes.get(i) + " requests ("
+                    + String.format("%.1f", (double) tenants.successes.get(i) / duration) + "/s), "
+                    + tenants.timeouts.get(i) + " timeouts, "
+                    + "total " + tenants.totalTimes[i].percentile(50) + "/" + tenants.totalTimes[i].percentile(99) + " ms, "
+                    + "throttled " + throttled(i));
+        }
+    }
+
+    /**
+     * Snapshot of all total times, sorted ascending
+     */
+    long[] sortedTotalTimes()
+    {
+        if (eventLog != null)
+        {
+            return MetricsLogExporter.sortedTotalTimes(eventLog.getPath());
+        }
 
-            if (!accessLogs.isEmpty())
+        long[] totalTimes;
+        synchronized (lock)
+        {
+            totalTimes = new long[accessLogs.size()];
+            for (int i = 0; i < totalTimes.length; i++)
             {
-                avgAcquireTime /= accessLogs.size();
-                avgProcessingTime /= accessLogs.size();
-                avgTotalTime /= accessLogs.size();
+                totalTimes[i] = accessLogs.get(i).totalTime;
             }
         }
+        Arrays.sort(totalTimes);
+        return totalTimes;
+    }
 
-        System.out.println("Average acquire time: " + avgAcquireTime + " ms");
-        System.out.println("Average processing time: " + avgProcessingTime + " ms");
-        System.out.println("Average total time: " + avgTotalTime + " ms");
+    /**
+     * Nearest-rank percentile of a sorted array, 0 if empty
+     */
+    static long percentile(final long[] sorted,
+                           final double percent)
+    {
+        if (sorted.length == 0)
+        {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
     }
 }
@@ -0,0 +1,246 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Local HTTP endpoint serving live simulation metrics at /metrics in the
+ * Prometheus text format, so a run can be watched or scraped while it executes.
+ *
+ * Rates over the last 1s/10s/60s come from the collector's {@link RateMeter}s;
+ * permits come from each semaphore's getValue().
+ */
+class MetricsEndpoint implements AutoCloseable
+{
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int[] WINDOWS_SECONDS = {1, 10, 60};
+    private static final double[] QUANTILES    = {0.5, 0.95, 0.99};
+
+    private final MetricsCollector metrics;
+    private final List<CloudResource> resources;
+    private final HttpServer server;
+    private final ExecutorService handler;
+
+    /**
+     * Bind to localhost and start serving
+     * @param port port to listen on (0 picks a free one)
+     */
+    public MetricsEndpoint(final int port,
+                           final MetricsCollector metrics,
+                           final List<CloudResource> resources) throws IOException
+    {
+        this.metrics   = metrics;
+        this.resources = resources;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        handler = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handler);
+        server.start();
+    }
+
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            if (!"GET".equals(exchange.getRequestMethod()))
+            {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody())
+            {
+                out.write(body);
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Current metrics in the Prometheus text exposition format
+     */
+    String render()
+    {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "sim_requests_total", "counter", "Requests by outcome");
+        sample(out, "sim_requests_total", "outcome", "success", metrics.getSuccessfulRequests());
+        sample(out, "sim_requests_total", "outcome", "timeout", metrics.getTimeoutCount());
+        sample(out, "sim_requests_total", "outcome", "shed", metrics.getShedCount());
+        sample(out, "sim_requests_total", "outcome", "crash", metrics.getCrashCount());
+        sample(out, "sim_requests_total", "outcome", "rate_limited", metrics.getRateLimitedCount());
+
+        header(out, "sim_conflicts_total", "counter", "Accesses that found a resource over its permit limit");
+        sample(out, "sim_conflicts_total", null, null, metrics.getConflictCount());
+
+        rates(out, "sim_throughput_per_second", "Successful requests per second over a rolling window",
+                metrics.getRequestRate());
+        rates(out, "sim_conflicts_per_second", "Conflicts per second over a rolling window",
+                metrics.getConflictRate());
+        rates(out, "sim_timeouts_per_second", "Timeouts per second over a rolling window",
+                metrics.getTimeoutRate());
+
+        header(out, "sim_permits_available", "gauge", "Free permits per resource, summed over shards");
+        for (final CloudResource resource : resources)
+        {
+            sample(out, "sim_permits_available", "resource", resource.getId(), resource.getAvailablePermits());
+        }
+        header(out, "sim_permits_in_use", "gauge", "Held permits per resource, summed over shards");
+        for (final CloudResource resource : resources)
+        {
+            sample(out, "sim_permits_in_use", "resource", resource.getId(),
+                    resource.getMaxPermits() - resource.getAvailablePermits());
+        }
+        header(out, "sim_resource_users", "gauge", "Containers currently inside each resource");
+        for (final CloudResource resource : resources)
+        {
+            sample(out, "sim_resource_users", "resource", resource.getId(), resource.getCurrentUsers());
+        }
+
+        header(out, "sim_semaphore_queue_length", "gauge", "Holders waiting for a permit on each semaphore");
+        forEachSemaphore(semaphore -> sample(out, "sim_semaphore_queue_length", "semaphore", semaphore.getName(),
+                semaphore.getStats().getQueueLength()));
+        header(out, "sim_semaphore_timeouts_total", "counter", "Acquire attempts that timed out on each semaphore");
+        forEachSemaphore(semaphore -> sample(out, "sim_semaphore_timeouts_total", "semaphore", semaphore.getName(),
+                semaphore.getStats().getTimeouts()));
+        header(out, "sim_semaphore_shed_total", "counter", "Acquire attempts shed by each semaphore's wait queue");
+        forEachSemaphore(semaphore -> sample(out, "sim_semaphore_shed_total", "semaphore", semaphore.getName(),
+                semaphore.getStats().getShed()));
+
+        summary(out, "sim_acquire_time_ms", "Time to acquire a permit", metrics.getAcquireTimes());
+        summary(out, "sim_total_time_ms", "Time from request to release", metrics.getTotalTimes());
+        summary(out, "sim_rate_limit_delay_ms", "Time requests were held back by the rate limiter",
+                metrics.getRateDelays());
+
+        header(out, "sim_semaphore_wait_time_ms", "summary", "Time spent waiting for a permit on each semaphore");
+        forEachSemaphore(semaphore -> quantiles(out, "sim_semaphore_wait_time_ms", semaphore.getName(),
+                semaphore.getStats().getWaitTimes()));
+        header(out, "sim_semaphore_hold_time_ms", "summary", "Time a permit was held on each semaphore");
+        forEachSemaphore(semaphore -> quantiles(out, "sim_semaphore_hold_time_ms", semaphore.getName(),
+                semaphore.getStats().getHoldTimes()));
+        return out.toString();
+    }
+
+    private static void header(final StringBuilder out,
+                               final String name,
+                               final String type,
+                               final String help)
+    {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void rates(final StringBuilder out,
+                              final String name,
+                              final String help,
+                              final RateMeter meter)
+    {
+        header(out, name, "gauge", help);
+        for (final int window : WINDOWS_SECONDS)
+        {
+            sample(out, name, "window", window + "s", meter.rate(window));
+        }
+    }
+
+    private static void sample(final StringBuilder out,
+                               final String name,
+                               final String label,
+                               final String labelValue,
+                               final double value)
+    {
+        out.append(name);
+        if (label != null)
+        {
+            out.append('{').append(label).append("=\"").append(labelValue).append("\"}");
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value))
+        {
+            out.append((long) value);
+        }
+        else
+        {
+            out.append(String.format(Locale.ROOT, "%.3f", value));
+        }
+        out.append('\n');
+    }
+
+    /**
+     * A latency histogram as a summary with p50/p95/p99 quantiles, accurate to
+     * the histogram's bucket bounds
+     */
+    private static void summary(final StringBuilder out,
+                                final String name,
+                                final String help,
+                                final LatencyHistogram histogram)
+    {
+        header(out, name, "summary", help);
+        for (final double quantile : QUANTILES)
+        {
+            sample(out, name, "quantile", Double.toString(quantile), histogram.percentile(quantile * 100));
+        }
+        sample(out, name + "_sum", null, null, histogram.getSum());
+        sample(out, name + "_count", null, null, histogram.getCount());
+    }
+
+    /**
+     * Summary samples for one semaphore, without the HELP/TYPE header
+     */
+    private static void quantiles(final StringBuilder out,
+                                  final String name,
+                                  final String semaphore,
+                                  final LatencyHistogram histogram)
+    {
+        for (final double quantile : QUANTILES)
+        {
+            out.append(name).append("{semaphore=\"").append(semaphore).append("\",quantile=\"")
+                    .append(quantile).append("\"} ").append(histogram.percentile(quantile * 100)).append('\n');
+        }
+        sample(out, name + "_sum", "semaphore", semaphore, histogram.getSum());
+        sample(out, name + "_count", "semaphore", semaphore, histogram.getCount());
+    }
+
+    private void forEachSemaphore(final Consumer<DistributedSemaphore> action)
+    {
+        for (final CloudResource resource : resources)
+        {
+            for (int shard = 0; shard < resource.getShardCount(); shard++)
+            {
+                action.accept(resource.getSemaphore(shard));
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        handler.shutdownNow();
+    }
+}
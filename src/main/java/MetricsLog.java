@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binary event log written straight into a memory-mapped file while the simulation
+ * runs, so metrics survive a crash and no per-event objects stay on the heap.
+ * {@link MetricsLogExporter} turns it into the usual CSV layout.
+ *
+ * The file starts with a HEADER_BYTES header:
+ *   0   int  magic
+ *   4   int  version
+ *   8   long records reserved (the append cursor)
+ *   16  long start time (epoch ms)
+ *   24  int  length of the configuration section
+ *   28  configuration section as UTF-8 CSV text
+ * followed by fixed-width RECORD_BYTES records:
+ *   0   int  type (written last, 0 means the record was never finished)
+ *   4   int  container id
+ *   8   int  resource index
+ *   12  int  acquire time (ms)
+ *   16  int  processing time (ms)
+ *   20  int  total time (ms)
+ *   24  long time since start (ms)
+ * A NAME record maps a {@link ResourceRegistry} index (bytes 4..7) to its name: length at 8, UTF-8 from 12.
+ */
+class MetricsLog implements AutoCloseable
+{
+    static final int MAGIC   = 0x4D4C4F47;
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES   = 4096;
+    static final int RECORD_BYTES   = 32;
+    static final int MAX_NAME_BYTES = 20;
+
+    static final int COUNT_OFFSET         = 8;
+    static final int START_OFFSET         = 16;
+    static final int CONFIG_LENGTH_OFFSET = 24;
+    static final int CONFIG_OFFSET        = 28;
+
+    static final int TYPE_ACCESS   = 1;
+    static final int TYPE_CONFLICT = 2;
+    static final int TYPE_TIMEOUT  = 3;
+    static final int TYPE_CRASH    = 4;
+    static final int TYPE_DROPPED  = 5;
+    static final int TYPE_NAME     = 6;
+    static final int TYPE_SHED     = 7;
+    static final int TYPE_RATE_LIMITED = 8;
+
+    // Records per mapped segment (2 MB each)
+    static final int SEGMENT_RECORDS = 1 << 16;
+    private static final int MAX_SEGMENTS = 1 << 14;
+
+    static final VarHandle INT  = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final AtomicReferenceArray<MappedByteBuffer> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+    // Resource indexes whose NAME record has been written, copied on write
+    private volatile boolean[] namesWritten = new boolean[0];
+    private final long startTimeMs;
+
+    /**
+     * Create a new log, replacing any existing file
+     * @param configSection configuration lines copied verbatim into the CSV export
+     */
+    public MetricsLog(final Path path,
+                      final String configSection) throws IOException
+    {
+        byte[] config = configSection.getBytes(StandardCharsets.UTF_8);
+        if (CONFIG_OFFSET + config.length > HEADER_BYTES)
+        {
+            throw new IllegalArgumentException("Configuration section too large for the log header");
+        }
+
+        this.path        = path;
+        this.channel     = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.header      = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        this.startTimeMs = System.currentTimeMillis();
+
+        header.order(ByteOrder.nativeOrder());
+        header.putInt(4, VERSION);
+        header.putLong(START_OFFSET, startTimeMs);
+        header.putInt(CONFIG_LENGTH_OFFSET, config.length);
+        header.put(CONFIG_OFFSET, config);
+        INT.setRelease(header, 0, MAGIC);
+    }
+
+    public Path getPath()
+    {
+        return path;
+    }
+
+    public void appendAccess(final int containerId,
+                             final int resourceIndex,
+                             final long acquireTime,
+                             final int processingTime,
+                             final long totalTime)
+    {
+        append(TYPE_ACCESS, containerId, named(resourceIndex), (int) acquireTime, processingTime, (int) totalTime);
+    }
+
+    /**
+     * Append an event without timings (conflict, timeout, crash, dropped release, shed or rate-limited request)
+     */
+    public void appendEvent(final int type,
+                            final int containerId,
+                            final int resourceIndex)
+    {
+        append(type, containerId, named(resourceIndex), 0, 0, 0);
+    }
+
+    private void append(final int type,
+                        final int containerId,
+                        final int resourceIndex,
+                        final int acquireTime,
+                        final int processingTime,
+                        final int totalTime)
+    {
+        long record = (long) LONG.getAndAdd(header, COUNT_OFFSET, 1L);
+        MappedByteBuffer segment = segment(record);
+        int offset = recordOffset(record);
+        segment.putInt(offset + 4, containerId);
+        segment.putInt(offset + 8, resourceIndex);
+        segment.putInt(offset + 12, acquireTime);
+        segment.putInt(offset + 16, processingTime);
+        segment.putInt(offset + 20, totalTime);
+        segment.putLong(offset + 24, System.currentTimeMillis() - startTimeMs);
+        INT.setRelease(segment, offset, type);
+    }
+
+    /**
+     * Write a NAME record for a resource index the first time it is logged, so the
+     * name always precedes the first event that uses the index
+     */
+    private int named(final int resourceIndex)
+    {
+        boolean[] written = namesWritten;
+        if (resourceIndex < written.length && written[resourceIndex])
+        {
+            return resourceIndex;
+        }
+
+        synchronized (this)
+        {
+            written = namesWritten;
+            if (resourceIndex < written.length && written[resourceIndex])
+            {
+                return resourceIndex;
+            }
+
+            byte[] bytes = ResourceRegistry.name(resourceIndex).getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, MAX_NAME_BYTES);
+            long record = (long) LONG.getAndAdd(header, COUNT_OFFSET, 1L);
+            MappedByteBuffer segment = segment(record);
+            int offset = recordOffset(record);
+            segment.putInt(offset + 4, resourceIndex);
+            segment.putInt(offset + 8, length);
+            segment.put(offset + 12, bytes, 0, length);
+            INT.setRelease(segment, offset, TYPE_NAME);
+
+            written = Arrays.copyOf(written, Math.max(written.length, resourceIndex + 1));
+            written[resourceIndex] = true;
+            namesWritten = written;
+        }
+        return resourceIndex;
+    }
+
+    static int recordOffset(final long record)
+    {
+        return (int) (record % SEGMENT_RECORDS) * RECORD_BYTES;
+    }
+
+    /**
+     * Mapped segment holding a record, mapping it on first use
+     */
+    private MappedByteBuffer segment(final long record)
+    {
+        int index = (int) (record / SEGMENT_RECORDS);
+        MappedByteBuffer segment = segments.get(index);
+        if (segment != null)
+        {
+            return segment;
+        }
+        synchronized (segments)
+        {
+            segment = segments.get(index);
+            if (segment == null)
+            {
+                try
+                {
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER_BYTES + (long) index * SEGMENT_RECORDS * RECORD_BYTES,
+                            (long) SEGMENT_RECORDS * RECORD_BYTES);
+                }
+                catch (final IOException e)
+                {
+                    throw new IllegalStateException("Cannot extend metrics log " + path, e);
+                }
+                segment.order(ByteOrder.nativeOrder());
+                segments.set(index, segment);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Flush mapped pages to disk
+     */
+    public void force()
+    {
+        header.force();
+        for (int i = 0; i < MAX_SEGMENTS && segments.get(i) != null; i++)
+        {
+            segments.get(i).force();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        force();
+        try
+        {
+            channel.close();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error closing metrics log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Converts a {@link MetricsLog} into the CSV layout written by
+ * {@link MetricsCollector#saveToFile}: configuration, summary, then the access,
+ * conflict and timeout logs. Works on the log of a crashed run too, in which case
+ * the duration is taken from the last event recorded.
+ *
+ * Usage: MetricsLogExporter metrics.bin [output.csv]
+ */
+public class MetricsLogExporter
+{
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: MetricsLogExporter <metrics.bin> [output.csv]");
+            System.exit(1);
+        }
+        String output = args.length > 1 ? args[1] : "simulation_metrics.csv";
+        export(Paths.get(args[0]), output);
+        System.out.println("Metrics exported to " + output);
+    }
+
+    /**
+     * Totals gathered in one pass over the log
+     */
+    private static class Summary
+    {
+        int successful;
+        int conflicts;
+        int timeouts;
+        int crashes;
+        int droppedReleases;
+        int shed;
+        int rateLimited;
+        long acquireTimeSum;
+        long processingTimeSum;
+        long totalTimeSum;
+        long lastEventMs;
+        long[] totalTimes = new long[1024];
+
+        void add(final int type,
+                 final int acquireTime,
+                 final int processingTime,
+                 final int totalTime,
+                 final long timeMs)
+        {
+            lastEventMs = Math.max(lastEventMs, timeMs);
+            switch (type)
+            {
+                case MetricsLog.TYPE_ACCESS:
+                    if (successful == totalTimes.length)
+                    {
+                        totalTimes = Arrays.copyOf(totalTimes, successful * 2);
+                    }
+                    totalTimes[successful++] = totalTime;
+                    acquireTimeSum += acquireTime;
+                    processingTimeSum += processingTime;
+                    totalTimeSum += totalTime;
+                    break;
+                case MetricsLog.TYPE_CONFLICT:
+                    conflicts++;
+                    break;
+                case MetricsLog.TYPE_TIMEOUT:
+                    timeouts++;
+                    break;
+                case MetricsLog.TYPE_CRASH:
+                    crashes++;
+                    break;
+                case MetricsLog.TYPE_DROPPED:
+                    droppedReleases++;
+                    break;
+                case MetricsLog.TYPE_SHED:
+                    shed++;
+                    break;
+                case MetricsLog.TYPE_RATE_LIMITED:
+                    rateLimited++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        long[] sortedTotalTimes()
+        {
+            long[] sorted = Arrays.copyOf(totalTimes, successful);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * Write the log at path to filename in the metrics CSV layout
+     */
+    public static void export(final Path path,
+                              final String filename)
+    {
+        try (MetricsLogReader reader = new MetricsLogReader(path);
+             PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename))))
+        {
+            Summary summary = new Summary();
+            reader.forEach((type, containerId, resourceIndex, acquireTime, processingTime, totalTime, timeMs) ->
+                    summary.add(type, acquireTime, processingTime, totalTime, timeMs));
+
+            writer.print(reader.getConfigSection());
+            MetricsCollector.writeSummary(writer, summary.successful,
+                    summary.conflicts, summary.timeouts, summary.crashes, summary.droppedReleases, summary.shed,
+                    summary.rateLimited, summary.lastEventMs / 1000, summary.acquireTimeSum, summary.processingTimeSum,
+                    summary.totalTimeSum, summary.sortedTotalTimes());
+
+            writer.println("# Access Logs");
+            writer.println("ContainerId,ResourceId,AcquireTimeMs,ProcessingTimeMs,TotalTimeMs");
+            reader.forEach((type, containerId, resourceIndex, acquireTime, processingTime, totalTime, timeMs) -> {
+                if (type == MetricsLog.TYPE_ACCESS)
+                {
+                    MetricsCollector.writeAccess(writer, containerId, reader.resourceName(resourceIndex),
+                            acquireTime, processingTime, totalTime);
+                }
+            });
+            writer.println();
+
+            writer.println("# Conflict Logs");
+            writer.println("ContainerId,ResourceId");
+            writeEvents(reader, writer, MetricsLog.TYPE_CONFLICT);
+            writer.println();
+
+            writer.println("# Timeout Logs");
+            writer.println("ContainerId,ResourceId");
+            writeEvents(reader, writer, MetricsLog.TYPE_TIMEOUT);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error exporting metrics log: " + e.getMessage());
+        }
+    }
+
+    private static void writeEvents(final MetricsLogReader reader,
+                                    final PrintWriter writer,
+                                    final int eventType) throws IOException
+    {
+        reader.forEach((type, containerId, resourceIndex, acquireTime, processingTime, totalTime, timeMs) -> {
+            if (type == eventType)
+            {
+                MetricsCollector.writeEvent(writer, containerId, reader.resourceName(resourceIndex));
+            }
+        });
+    }
+
+    /**
+     * Total times of every access in the log, sorted ascending
+     */
+    static long[] sortedTotalTimes(final Path path)
+    {
+        Summary summary = new Summary();
+        try (MetricsLogReader reader = new MetricsLogReader(path))
+        {
+            reader.forEach((type, containerId, resourceIndex, acquireTime, processingTime, totalTime, timeMs) ->
+                    summary.add(type, acquireTime, processingTime, totalTime, timeMs));
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error reading metrics log: " + e.getMessage());
+        }
+        return summary.sortedTotalTimes();
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a {@link MetricsLog} file, including one left behind by a crashed run.
+ * Records that were reserved but never finished are skipped.
+ */
+class MetricsLogReader implements AutoCloseable
+{
+    /**
+     * Receives each finished record in append order
+     */
+    interface Visitor
+    {
+        void record(int type, int containerId, int resourceIndex,
+                    int acquireTime, int processingTime, int totalTime, long timeMs);
+    }
+
+    private final FileChannel channel;
+    private final long startTimeMs;
+    private final String configSection;
+    private final long recordCount;
+    private final List<String> resourceNames = new ArrayList<>();
+
+    public MetricsLogReader(final Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MetricsLog.HEADER_BYTES);
+        header.order(ByteOrder.nativeOrder());
+        if (header.getInt(0) != MetricsLog.MAGIC || header.getInt(4) != MetricsLog.VERSION)
+        {
+            channel.close();
+            throw new IOException(path + " is not a metrics log");
+        }
+
+        startTimeMs = header.getLong(MetricsLog.START_OFFSET);
+        byte[] config = new byte[header.getInt(MetricsLog.CONFIG_LENGTH_OFFSET)];
+        header.get(MetricsLog.CONFIG_OFFSET, config);
+        configSection = new String(config, StandardCharsets.UTF_8);
+
+        // A crash can leave the cursor past the last mapped segment
+        long stored = (channel.size() - MetricsLog.HEADER_BYTES) / MetricsLog.RECORD_BYTES;
+        recordCount = Math.min(header.getLong(MetricsLog.COUNT_OFFSET), Math.max(0, stored));
+    }
+
+    public long getStartTimeMs()
+    {
+        return startTimeMs;
+    }
+
+    /**
+     * Configuration lines written when the log was created
+     */
+    public String getConfigSection()
+    {
+        return configSection;
+    }
+
+    /**
+     * Name of a resource index seen so far by {@link #forEach}
+     */
+    public String resourceName(final int index)
+    {
+        return index < resourceNames.size() ? resourceNames.get(index) : "resource#" + index;
+    }
+
+    /**
+     * Visit every finished record. NAME records are consumed here; a name always
+     * precedes the first record that uses its index.
+     */
+    public void forEach(final Visitor visitor) throws IOException
+    {
+        for (long first = 0; first < recordCount; first += MetricsLog.SEGMENT_RECORDS)
+        {
+            int records = (int) Math.min(MetricsLog.SEGMENT_RECORDS, recordCount - first);
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                    MetricsLog.HEADER_BYTES + first * MetricsLog.RECORD_BYTES,
+                    (long) records * MetricsLog.RECORD_BYTES);
+            segment.order(ByteOrder.nativeOrder());
+
+            for (int i = 0; i < records; i++)
+            {
+                int offset = i * MetricsLog.RECORD_BYTES;
+                int type = segment.getInt(offset);
+                if (type == 0)
+                {
+                    continue;
+                }
+                if (type == MetricsLog.TYPE_NAME)
+                {
+                    int index = segment.getInt(offset + 4);
+                    byte[] name = new byte[segment.getInt(offset + 8)];
+                    segment.get(offset + 12, name);
+                    while (resourceNames.size() <= index)
+                    {
+                        resourceNames.add(null);
+                    }
+                    resourceNames.set(index, new String(name, StandardCharsets.UTF_8));
+                    continue;
+                }
+                visitor.record(type, segment.getInt(offset + 4), segment.getInt(offset + 8),
+                        segment.getInt(offset + 12), segment.getInt(offset + 16), segment.getInt(offset + 20),
+                        segment.getLong(offset + 24));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts a {@link CoordinationServer} and several {@link ContainerProcess} JVMs on
+ * this machine, then aggregates their results to measure the real cost of
+ * acquiring permits across process boundaries.
+ *
+ * Usage: MultiProcessRunner [processes] [containers-per-process] [seconds]
+ */
+public class MultiProcessRunner
+{
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int processes            = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int containersPerProcess = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds              = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        System.out.println("Starting Multi-Process Simulation");
+        System.out.println("=================================");
+
+        try (CoordinationServer server = new CoordinationServer(0))
+        {
+            Thread serverThread = new Thread(server, "coordination-server");
+            serverThread.start();
+            String address = "127.0.0.1:" + server.getPort();
+            System.out.println("Coordinator listening on " + address);
+
+            String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            String classPath = System.getProperty("java.class.path");
+
+            List<Process> children = new ArrayList<>();
+            List<String[]> results = new ArrayList<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < processes; i++)
+            {
+                Process child = new ProcessBuilder(javaBin, "-cp", classPath, "ContainerProcess",
+                        address, String.valueOf(i), String.valueOf(containersPerProcess), String.valueOf(seconds))
+                        .redirectErrorStream(true)
+                        .start();
+                children.add(child);
+
+                // Drain the child's output and keep its result line
+                Thread reader = new Thread(() -> {
+                    try (BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream())))
+                    {
+                        String line;
+                        while ((line = output.readLine()) != null)
+                        {
+                            if (line.startsWith("RESULT "))
+                            {
+                                synchronized (results)
+                                {
+                                    results.add(line.substring(7).split(" "));
+                                }
+                            }
+                        }
+                    }
+                    catch (final IOException e)
+                    {
+                        System.err.println("Error reading container process output: " + e.getMessage());
+                    }
+                });
+                readers.add(reader);
+                reader.start();
+            }
+
+            for (final Process child : children)
+            {
+                child.waitFor();
+            }
+            for (final Thread reader : readers)
+            {
+                reader.join();
+            }
+
+            long successful = 0;
+            long timeouts   = 0;
+            double acquireTime = 0;
+            for (final String[] result : results)
+            {
+                successful  += Long.parseLong(result[0]);
+                timeouts    += Long.parseLong(result[1]);
+                acquireTime += Double.parseDouble(result[2]) * Long.parseLong(result[0]);
+            }
+
+            System.out.println("\n==== Multi-Process Results ====");
+            System.out.println("Processes reporting: " + results.size() + "/" + processes);
+            System.out.println("Containers: " + processes * containersPerProcess);
+            System.out.println("Successful requests: " + successful);
+            System.out.println("Timeouts: " + timeouts);
+            System.out.println("Throughput: " + ((double) successful / seconds) + " requests/second");
+            System.out.println("Average acquire time: " + (acquireTime / Math.max(1, successful)) + " ms");
+        }
+    }
+}
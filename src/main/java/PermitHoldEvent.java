@@ -0,0 +1,30 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning the time a container holds a resource permit
+ */
+@Name("cloudsync.PermitHold")
+@Label("Permit Hold")
+@Category({"Cloud Sync", "Semaphore"})
+@Description("Container holding a resource permit until it sends the release")
+@StackTrace(false)
+class PermitHoldEvent extends Event
+{
+    @Label("Container")
+    int containerId;
+
+    @Label("Resource")
+    String resource;
+
+    @Label("Shard")
+    int shard;
+
+    @Label("Released")
+    @Description("False if the container crashed or the release was dropped")
+    boolean released;
+}
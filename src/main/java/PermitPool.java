@@ -0,0 +1,202 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Permit state of one semaphore inside the {@link CoordinationServer}.
+ * Only touched by the server's selector thread, so it needs no locking.
+ */
+class PermitPool
+{
+    /**
+     * An ACQUIRE waiting for a permit
+     */
+    static class Waiter
+    {
+        final CoordinationServer.Connection connection;
+        final int requestId;
+        final long leaseKey;
+        final long deadline;
+
+        Waiter(final CoordinationServer.Connection connection,
+               final int requestId,
+               final long leaseKey,
+               final long deadline)
+        {
+            this.connection = connection;
+            this.requestId  = requestId;
+            this.leaseKey   = leaseKey;
+            this.deadline   = deadline;
+        }
+    }
+
+    final String name;
+    final int maxCount;
+    final long leaseTimeoutMs;
+    private int count;
+    private int expiredLeases;
+
+    // Lease key (connection id, holder id) -> times its leases were granted (ms)
+    private final LeaseTable<Long> leases = new LeaseTable<>();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    public PermitPool(final String name,
+                      final int permits,
+                      final long leaseTimeoutMs)
+    {
+        this.name           = name;
+        this.maxCount       = permits;
+        this.count          = permits;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+    }
+
+    static long leaseKey(final long connectionId,
+                         final int holderId)
+    {
+        return (connectionId << 32) | (holderId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Grant a permit now or queue the waiter
+     * @return true if granted immediately
+     */
+    public boolean acquire(final Waiter waiter,
+                           final long now)
+    {
+        if (count > 0 && waiters.isEmpty())
+        {
+            count--;
+            leases.grant(waiter.leaseKey, now);
+            return true;
+        }
+        waiters.add(waiter);
+        return false;
+    }
+
+    /**
+     * Return a permit, handing it straight to the oldest waiter if there is one
+     * @return the waiter that was granted the permit, or null
+     * @throws IllegalStateException if the lease is unknown (already expired)
+     */
+    public Waiter release(final long leaseKey,
+                          final long now)
+    {
+        if (leases.release(leaseKey) == null)
+        {
+            throw new IllegalStateException("No lease held");
+        }
+        return handOff(now);
+    }
+
+    private Waiter handOff(final long now)
+    {
+        Waiter next = waiters.poll();
+        if (next == null)
+        {
+            count++;
+            return null;
+        }
+        leases.grant(next.leaseKey, now);
+        return next;
+    }
+
+    /**
+     * Reclaim expired leases and hand the permits to waiters
+     * @param granted receives waiters that were granted a permit
+     */
+    public void reclaimExpiredLeases(final long now,
+                                     final ArrayDeque<Waiter> granted)
+    {
+        if (leaseTimeoutMs <= 0 || leases.isEmpty())
+        {
+            return;
+        }
+
+        int reclaimed = leases.expire(now, leaseTimeoutMs, null);
+        expiredLeases += reclaimed;
+        for (int i = 0; i < reclaimed; i++)
+        {
+            Waiter next = handOff(now);
+            if (next != null)
+            {
+                granted.add(next);
+            }
+        }
+    }
+
+    /**
+     * Remove waiters whose timeout has passed
+     * @param timedOut receives the removed waiters
+     */
+    public void expireWaiters(final long now,
+                              final ArrayDeque<Waiter> timedOut)
+    {
+        Iterator<Waiter> it = waiters.iterator();
+        while (it.hasNext())
+        {
+            Waiter waiter = it.next();
+            if (now >= waiter.deadline)
+            {
+                it.remove();
+                timedOut.add(waiter);
+            }
+        }
+    }
+
+    /**
+     * Drop everything a closed connection held or waited for
+     * @param granted receives waiters that were granted the freed permits
+     */
+    public void dropConnection(final CoordinationServer.Connection connection,
+                               final long now,
+                               final ArrayDeque<Waiter> granted)
+    {
+        waiters.removeIf(waiter -> waiter.connection == connection);
+
+        int freed = leases.removeHolders(leaseKey -> leaseKey >>> 32 == connection.id);
+        for (int i = 0; i < freed; i++)
+        {
+            Waiter next = handOff(now);
+            if (next != null)
+            {
+                granted.add(next);
+            }
+        }
+    }
+
+    /**
+     * Earliest time a waiter times out or a lease expires
+     */
+    public long nextDeadline()
+    {
+        long next = Long.MAX_VALUE;
+        for (final Waiter waiter : waiters)
+        {
+            next = Math.min(next, waiter.deadline);
+        }
+        if (leaseTimeoutMs > 0)
+        {
+            long oldest = leases.oldest();
+            if (oldest != Long.MAX_VALUE)
+            {
+                next = Math.min(next, oldest + leaseTimeoutMs);
+            }
+        }
+        return next;
+    }
+
+    public int getValue()
+    {
+        return count;
+    }
+
+    public int getExpiredLeases()
+    {
+        return expiredLeases;
+    }
+
+    public int countLongHeldPermits(final long thresholdMs,
+                                    final long now)
+    {
+        return leases.countOlderThan(now, thresholdMs);
+    }
+}
@@ -0,0 +1,30 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a container's semaphore acquire, including simulated latency
+ */
+@Name("cloudsync.PermitWait")
+@Label("Permit Wait")
+@Category({"Cloud Sync", "Semaphore"})
+@Description("Container waiting to acquire a resource permit")
+@StackTrace(false)
+class PermitWaitEvent extends Event
+{
+    @Label("Container")
+    int containerId;
+
+    @Label("Resource")
+    String resource;
+
+    @Label("Shard")
+    int shard;
+
+    @Label("Acquired")
+    @Description("False if the wait timed out")
+    boolean acquired;
+}
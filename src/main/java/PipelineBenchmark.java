@@ -0,0 +1,117 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures coordinator throughput with many concurrent holders, once with a
+ * blocking connection per thread and once with every thread pipelining requests
+ * over a single shared connection. Each thread loops acquire/release on a
+ * semaphore with enough permits that nobody waits, so the numbers reflect the
+ * protocol and connection handling rather than contention.
+ */
+public class PipelineBenchmark
+{
+    private static final int NUM_THREADS      = 200;
+    private static final int DURATION_SECONDS = 5;
+    private static final int WARMUP_SECONDS   = 1;
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        System.out.println("Starting Coordinator Pipeline Benchmark");
+        System.out.println("=======================================");
+
+        CoordinationServer server = new CoordinationServer(0);
+        Thread serverThread = new Thread(server, "coordination-server");
+        try (server)
+        {
+            serverThread.start();
+            String address = "127.0.0.1:" + server.getPort();
+
+            double blocking  = measure(address, false);
+            double pipelined = measure(address, true);
+
+            System.out.println("\n==== Pipeline Results ====");
+            System.out.printf("Blocking (connection per thread): %.0f ops/s%n", blocking);
+            System.out.printf("Pipelined (one connection):       %.0f ops/s%n", pipelined);
+            System.out.printf("Speedup: %.2fx%n", pipelined / blocking);
+
+            saveResultsToCSV("pipeline_results.csv", blocking, pipelined);
+        }
+        serverThread.join();
+    }
+
+    /**
+     * Run NUM_THREADS acquire/release loops and count completed pairs after warmup
+     * @return acquire/release pairs per second
+     */
+    private static double measure(final String address,
+                                  final boolean pipelined) throws InterruptedException
+    {
+        System.out.println("\nRunning " + (pipelined ? "pipelined" : "blocking") + " clients...");
+
+        AtomicLong completed = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        try (CoordinationClient client = new CoordinationClient(address, pipelined))
+        {
+            DistributedSemaphore semaphore = client.create(
+                    "bench_" + (pipelined ? "pipelined" : "blocking"), NUM_THREADS, 0);
+            long stopAt = System.currentTimeMillis() + (WARMUP_SECONDS + DURATION_SECONDS) * 1000L;
+
+            for (int i = 0; i < NUM_THREADS; i++)
+            {
+                final int holderId = i;
+                Thread thread = new Thread(() -> {
+                    while (System.currentTimeMillis() < stopAt)
+                    {
+                        if (semaphore.acquire(holderId, 0, 5000))
+                        {
+                            semaphore.release(holderId, 0);
+                            completed.incrementAndGet();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+
+            Thread.sleep(WARMUP_SECONDS * 1000L);
+            long startCount = completed.get();
+            long startTime  = System.nanoTime();
+            Thread.sleep(DURATION_SECONDS * 1000L);
+            long endCount   = completed.get();
+            double elapsed  = (System.nanoTime() - startTime) / 1e9;
+
+            for (final Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            double opsPerSecond = (endCount - startCount) / elapsed;
+            System.out.printf("Completed %d acquire/release pairs (%.0f ops/s)%n", endCount - startCount, opsPerSecond);
+            return opsPerSecond;
+        }
+    }
+
+    /**
+     * Save the comparison to CSV file for further analysis
+     */
+    private static void saveResultsToCSV(final String filename,
+                                         final double blocking,
+                                         final double pipelined)
+    {
+        try (FileWriter writer = new FileWriter(filename))
+        {
+            writer.write("Mode,Threads,Ops Per Second\n");
+            writer.write("Blocking," + NUM_THREADS + "," + String.format("%.0f", blocking) + "\n");
+            writer.write("Pipelined," + NUM_THREADS + "," + String.format("%.0f", pipelined) + "\n");
+
+            System.out.println("Results saved to " + filename);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving results: " + e.getMessage());
+        }
+    }
+}
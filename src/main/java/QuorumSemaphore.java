@@ -0,0 +1,321 @@
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Semaphore whose permits are replicated across a {@link ReplicaCluster}. A permit
+ * is one slot locked on a majority of nodes; see the cluster for why that is safe.
+ *
+ * Acquire asks every node to lock a slot for the holder at once and succeeds as soon
+ * as a majority agree. When holders race for the same slot and none gets a majority,
+ * the partial locks are undone and the holder tries the next slot, backing off for a
+ * random time after a full pass. The cost of acquisition is the simulated message
+ * delay to the nodes, so the sampled network latency passed in is not simulated.
+ */
+class QuorumSemaphore implements DistributedSemaphore
+{
+    private final ReplicaCluster cluster;
+    private final String name;
+    private final int maxCount;
+
+    // Holder id -> slot it owns
+    private final Map<Integer, Integer> heldSlots = new ConcurrentHashMap<>();
+    // Holder id -> time its permit was granted (ms)
+    private final Map<Integer, Long> grantedTimes = new ConcurrentHashMap<>();
+
+    // Client-side view: a holder counts as queued for its whole acquire
+    private final SemaphoreStats stats = new SemaphoreStats();
+
+    public QuorumSemaphore(final ReplicaCluster cluster,
+                           final String name,
+                           final int maxCount)
+    {
+        this.cluster  = cluster;
+        this.name     = name;
+        this.maxCount = maxCount;
+    }
+
+    @Override
+    public boolean acquire(final int holderId,
+                           final int networkLatencyMs,
+                           final long timeoutMs)
+    {
+        long waitStart = System.nanoTime();
+        stats.enqueue();
+        try
+        {
+            if (acquireSlot(holderId, timeoutMs))
+            {
+                grantedTimes.put(holderId, System.currentTimeMillis());
+                stats.acquired(waitStart);
+                return true;
+            }
+            stats.timedOut(waitStart);
+            return false;
+        }
+        finally
+        {
+            stats.dequeue();
+        }
+    }
+
+    private boolean acquireSlot(final int holderId,
+                                final long timeoutMs)
+    {
+        long deadline = timeoutMs < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeoutMs;
+        int firstSlot = Math.floorMod(holderId, maxCount);
+
+        while (true)
+        {
+            for (int i = 0; i < maxCount; i++)
+            {
+                int slot = (firstSlot + i) % maxCount;
+                if (lockOnQuorum(slot, holderKey(holderId)))
+                {
+                    heldSlots.put(holderId, slot);
+                    return true;
+                }
+                if (System.currentTimeMillis() >= deadline)
+                {
+                    return false;
+                }
+            }
+
+            long backoff = ThreadLocalRandom.current().nextLong(1, cluster.getRequestTimeoutMs());
+            try
+            {
+                Thread.sleep(Math.min(backoff, Math.max(0, deadline - System.currentTimeMillis())));
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Ask every node to lock the slot and wait until a majority agree or a majority
+     * can no longer be reached. Partial locks are undone on failure.
+     */
+    private boolean lockOnQuorum(final int slot,
+                                 final int holderKey)
+    {
+        List<ReplicaNode> nodes = cluster.getNodes();
+        int quorum = cluster.quorum();
+        AtomicInteger granted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+
+        for (final ReplicaNode node : nodes)
+        {
+            node.tryLock(name, slot, holderKey).thenAccept(locked -> {
+                if (locked)
+                {
+                    if (granted.incrementAndGet() >= quorum)
+                    {
+                        decision.complete(true);
+                    }
+                }
+                else if (refused.incrementAndGet() > nodes.size() - quorum)
+                {
+                    decision.complete(false);
+                }
+            });
+        }
+
+        boolean owned;
+        try
+        {
+            owned = decision.get(cluster.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException | ExecutionException e)
+        {
+            owned = false;
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            owned = false;
+        }
+
+        if (!owned)
+        {
+            // Nodes apply requests in order, so this also undoes locks granted after we gave up
+            unlockEverywhere(slot, holderKey);
+        }
+        return owned;
+    }
+
+    private void unlockEverywhere(final int slot,
+                                  final int holderKey)
+    {
+        for (final ReplicaNode node : cluster.getNodes())
+        {
+            node.unlock(name, slot, holderKey);
+        }
+    }
+
+    @Override
+    public void release(final int holderId,
+                        final int networkLatencyMs)
+    {
+        Integer slot = heldSlots.remove(holderId);
+        if (slot == null)
+        {
+            return;
+        }
+        Long grantedTime = grantedTimes.remove(holderId);
+        if (grantedTime != null)
+        {
+            stats.released(System.currentTimeMillis() - grantedTime);
+        }
+
+        // Wait for a majority to confirm, as a client would before reusing the holder id
+        int quorum = cluster.quorum();
+        AtomicInteger confirmed = new AtomicInteger();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        for (final ReplicaNode node : cluster.getNodes())
+        {
+            node.unlock(name, slot, holderKey(holderId)).thenRun(() -> {
+                if (confirmed.incrementAndGet() >= quorum)
+                {
+                    done.complete(null);
+                }
+            });
+        }
+        try
+        {
+            done.get(cluster.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException | ExecutionException e)
+        {
+            // No majority reachable; the slot stays locked until its lease expires
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int holderKey(final int holderId)
+    {
+        // 0 marks a free slot on the nodes
+        return holderId + 1;
+    }
+
+    /**
+     * Holder key owning a slot on a majority of live nodes, or 0
+     */
+    private int quorumOwner(final int slot)
+    {
+        List<ReplicaNode> nodes = cluster.getNodes();
+        for (final ReplicaNode candidate : nodes)
+        {
+            if (!candidate.isAlive())
+            {
+                continue;
+            }
+            int owner = candidate.ownerOf(name, slot);
+            if (owner == 0)
+            {
+                continue;
+            }
+            int votes = 0;
+            for (final ReplicaNode node : nodes)
+            {
+                if (node.isAlive() && node.ownerOf(name, slot) == owner)
+                {
+                    votes++;
+                }
+            }
+            if (votes >= cluster.quorum())
+            {
+                return owner;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int getValue()
+    {
+        int free = 0;
+        for (int slot = 0; slot < maxCount; slot++)
+        {
+            if (quorumOwner(slot) == 0)
+            {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    @Override
+    public int getMaxValue()
+    {
+        return maxCount;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public SemaphoreStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Most leases reclaimed by any live node
+     */
+    @Override
+    public int getExpiredLeases()
+    {
+        int expired = 0;
+        for (final ReplicaNode node : cluster.getNodes())
+        {
+            if (node.isAlive())
+            {
+                expired = Math.max(expired, node.getExpiredLeases(name));
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public int countLongHeldPermits(final long thresholdMs)
+    {
+        long now = System.currentTimeMillis();
+        int held = 0;
+        for (int slot = 0; slot < maxCount; slot++)
+        {
+            int owner = quorumOwner(slot);
+            if (owner == 0)
+            {
+                continue;
+            }
+            for (final ReplicaNode node : cluster.getNodes())
+            {
+                if (node.isAlive() && node.ownerOf(name, slot) == owner)
+                {
+                    if (now - node.grantedAt(name, slot) >= thresholdMs)
+                    {
+                        held++;
+                    }
+                    break;
+                }
+            }
+        }
+        return held;
+    }
+}
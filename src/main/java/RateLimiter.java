@@ -0,0 +1,114 @@
+/**
+ * Rate-limiting stage in front of the resources: a {@link TokenBucket} per resource
+ * and one per container. In "token" mode a request over either rate is turned away
+ * at once; in "leaky" mode it is delayed until its turn, smoothing bursts to the
+ * configured rate, and only turned away if the delay would exceed the maximum.
+ */
+class RateLimiter
+{
+    static final String TOKEN = "token";
+    static final String LEAKY = "leaky";
+
+    private final long maxDelayNanos;
+    private final double resourceRate;
+    private final int resourceBurst;
+
+    // By container id; null without a per-container limit
+    private final TokenBucket[] containerBuckets;
+
+    /**
+     * @param maxDelayMs longest a request may be delayed (0 rejects instead of delaying)
+     * @param resourceRate requests per second per resource (0 disables)
+     * @param containerRate requests per second per container (0 disables)
+     */
+    public RateLimiter(final long maxDelayMs,
+                       final double resourceRate,
+                       final int resourceBurst,
+                       final double containerRate,
+                       final int containerBurst,
+                       final int numContainers)
+    {
+        this.maxDelayNanos = maxDelayMs * 1_000_000L;
+        this.resourceRate  = resourceRate;
+        this.resourceBurst = resourceBurst;
+
+        if (containerRate > 0)
+        {
+            containerBuckets = new TokenBucket[numContainers];
+            for (int i = 0; i < numContainers; i++)
+            {
+                containerBuckets[i] = new TokenBucket(containerRate, containerBurst);
+            }
+        }
+        else
+        {
+            containerBuckets = null;
+        }
+    }
+
+    /**
+     * Limiter for a simulation's settings, or null if rate limiting is off
+     * @throws IllegalArgumentException on an unknown mode
+     */
+    static RateLimiter fromConfig(final SimulationConfig config,
+                                  final int numContainers)
+    {
+        if (config.rateLimitMode == null)
+        {
+            return null;
+        }
+        long maxDelayMs;
+        if (config.rateLimitMode.equals(TOKEN))
+        {
+            maxDelayMs = 0;
+        }
+        else if (config.rateLimitMode.equals(LEAKY))
+        {
+            maxDelayMs = config.rateLimitMaxDelayMs;
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown rate limit mode " + config.rateLimitMode
+                    + "; expected " + TOKEN + " or " + LEAKY);
+        }
+        return new RateLimiter(maxDelayMs, config.resourceRatePerSecond, config.resourceBurst,
+                config.containerRatePerSecond, config.containerBurst, numContainers);
+    }
+
+    /**
+     * Bucket for one resource, or null without a per-resource limit
+     */
+    TokenBucket newResourceBucket()
+    {
+        return resourceRate > 0 ? new TokenBucket(resourceRate, resourceBurst) : null;
+    }
+
+    /**
+     * Take a token from the container's bucket and the resource's
+     * @param resourceBucket from {@link #newResourceBucket}, or null
+     * @return nanoseconds to wait before accessing the resource, or -1 if rejected
+     */
+    public long admit(final int containerId,
+                      final TokenBucket resourceBucket)
+    {
+        long now = System.nanoTime();
+        TokenBucket containerBucket = containerBuckets != null && containerId < containerBuckets.length
+                ? containerBuckets[containerId] : null;
+
+        long containerDelay = containerBucket != null ? containerBucket.reserve(now, maxDelayNanos) : 0;
+        if (containerDelay < 0)
+        {
+            return -1;
+        }
+        long resourceDelay = resourceBucket != null ? resourceBucket.reserve(now, maxDelayNanos) : 0;
+        if (resourceDelay < 0)
+        {
+            if (containerBucket != null)
+            {
+                containerBucket.refund();
+            }
+            return -1;
+        }
+        return Math.max(containerDelay, resourceDelay);
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free per-second event counter over a ring of one-second buckets, so
+ * short throughput dips stay visible instead of being averaged over the run.
+ *
+ * Each bucket packs the second it belongs to (high 32 bits) with its count (low
+ * 32 bits), so a stale bucket is recycled by the same CAS that counts into it.
+ */
+class RateMeter
+{
+    private final AtomicLongArray buckets;
+    private final long startNanos;
+
+    /**
+     * @param historySeconds seconds of per-second counts kept for rates and export
+     */
+    public RateMeter(final int historySeconds)
+    {
+        this.buckets    = new AtomicLongArray(historySeconds);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Count one event in the current second
+     */
+    public void mark()
+    {
+        long second = currentSecond();
+        int index = (int) (second % buckets.length());
+        while (true)
+        {
+            long bucket = buckets.get(index);
+            long next = (bucket >>> 32) == second ? bucket + 1 : second << 32 | 1;
+            if (buckets.compareAndSet(index, bucket, next))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Seconds since the meter was created; the current second is still filling
+     */
+    public long currentSecond()
+    {
+        return (System.nanoTime() - startNanos) / 1_000_000_000L;
+    }
+
+    /**
+     * Events counted in a given second, 0 once it has left the history
+     */
+    public long countAt(final long second)
+    {
+        if (second < 0 || second <= currentSecond() - buckets.length())
+        {
+            return 0;
+        }
+        long bucket = buckets.get((int) (second % buckets.length()));
+        return (bucket >>> 32) == second ? bucket & 0xFFFFFFFFL : 0;
+    }
+
+    /**
+     * Oldest second still held in the history
+     */
+    public long firstSecond()
+    {
+        return Math.max(0, currentSecond() - buckets.length() + 1);
+    }
+
+    /**
+     * Events per second over the last windowSeconds complete seconds, or over
+     * all complete seconds while the meter is younger than the window
+     */
+    public double rate(final int windowSeconds)
+    {
+        long current = currentSecond();
+        int seconds = (int) Math.min(Math.min(windowSeconds, current), buckets.length() - 1);
+        if (seconds <= 0)
+        {
+            return 0;
+        }
+
+        long events = 0;
+        for (long second = current - seconds; second < current; second++)
+        {
+            events += countAt(second);
+        }
+        return (double) events / seconds;
+    }
+
+    /**
+     * Fewest events counted in any complete second still in the history
+     */
+    public long minimumPerSecond()
+    {
+        long current = currentSecond();
+        long first = firstSecond();
+        if (first >= current)
+        {
+            return 0;
+        }
+
+        long minimum = Long.MAX_VALUE;
+        for (long second = first; second < current; second++)
+        {
+            minimum = Math.min(minimum, countAt(second));
+        }
+        return minimum;
+    }
+}
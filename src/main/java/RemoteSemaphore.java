@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Semaphore whose permits live in a {@link CoordinationServer}, so it can be shared
+ * by containers in different JVMs. The cost of acquisition is a real round trip to
+ * the coordinator, so the sampled network latency passed in is not simulated.
+ */
+class RemoteSemaphore implements DistributedSemaphore
+{
+    private final CoordinationClient client;
+    private final String name;
+    private final int semaphoreId;
+    private final int maxCount;
+
+    // Client-side view: a request in flight counts as queued, and wait time includes the round trip
+    private final SemaphoreStats stats = new SemaphoreStats();
+    // Holder id -> time its permit was granted (ms)
+    private final Map<Integer, Long> grantedTimes = new ConcurrentHashMap<>();
+
+    public RemoteSemaphore(final CoordinationClient client,
+                           final String name,
+                           final int semaphoreId,
+                           final int maxCount)
+    {
+        this.client      = client;
+        this.name        = name;
+        this.semaphoreId = semaphoreId;
+        this.maxCount    = maxCount;
+    }
+
+    @Override
+    public boolean acquire(final int holderId,
+                           final int networkLatencyMs,
+                           final long timeoutMs)
+    {
+        long waitStart = System.nanoTime();
+        stats.enqueue();
+        try
+        {
+            ByteBuffer response = client.call(CoordinationProtocol.OP_ACQUIRE, 16, out -> {
+                out.putInt(semaphoreId);
+                out.putInt(holderId);
+                out.putLong(timeoutMs);
+            });
+            byte status = response.get();
+            CoordinationClient.checkStatus(status, name);
+            if (status == CoordinationProtocol.STATUS_OK)
+            {
+                grantedTimes.put(holderId, System.currentTimeMillis());
+                stats.acquired(waitStart);
+                return true;
+            }
+            stats.timedOut(waitStart);
+            return false;
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error acquiring " + name + ": " + e.getMessage());
+            stats.timedOut(waitStart);
+            return false;
+        }
+        finally
+        {
+            stats.dequeue();
+        }
+    }
+
+    @Override
+    public void release(final int holderId,
+                        final int networkLatencyMs)
+    {
+        Long grantedTime = grantedTimes.remove(holderId);
+        if (grantedTime != null)
+        {
+            stats.released(System.currentTimeMillis() - grantedTime);
+        }
+
+        try
+        {
+            ByteBuffer response = client.call(CoordinationProtocol.OP_RELEASE, 8, out -> {
+                out.putInt(semaphoreId);
+                out.putInt(holderId);
+            });
+            CoordinationClient.checkStatus(response.get(), name);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error releasing " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Query the coordinator: value, max value, expired leases, long-held permits
+     */
+    private int[] query(final long leakThresholdMs)
+    {
+        try
+        {
+            ByteBuffer response = client.call(CoordinationProtocol.OP_QUERY, 12, out -> {
+                out.putInt(semaphoreId);
+                out.putLong(leakThresholdMs);
+            });
+            CoordinationClient.checkStatus(response.get(), name);
+            return new int[] {response.getInt(), response.getInt(), response.getInt(), response.getInt()};
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error querying " + name + ": " + e.getMessage());
+            return new int[4];
+        }
+    }
+
+    @Override
+    public int getValue()
+    {
+        return query(Long.MAX_VALUE)[0];
+    }
+
+    @Override
+    public int getMaxValue()
+    {
+        return maxCount;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public SemaphoreStats getStats()
+    {
+        return stats;
+    }
+
+    @Override
+    public int getExpiredLeases()
+    {
+        return query(Long.MAX_VALUE)[2];
+    }
+
+    @Override
+    public int countLongHeldPermits(final long thresholdMs)
+    {
+        return query(thresholdMs)[3];
+    }
+}
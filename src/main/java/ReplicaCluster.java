@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A group of {@link ReplicaNode}s that together hold the permit state, so losing
+ * a minority of nodes neither loses permits nor stops acquisition.
+ *
+ * A semaphore with N permits is N slots, each a majority lock: a holder owns a slot
+ * once a majority of nodes have locked it for them. Any two majorities share a node,
+ * so no slot can have two owners and at most N holders are admitted. A killed node
+ * must not rejoin with empty state, as that would break the overlap.
+ */
+class ReplicaCluster implements SemaphoreFactory, AutoCloseable
+{
+    private final List<ReplicaNode> nodes = new ArrayList<>();
+    private final long requestTimeoutMs;
+
+    /**
+     * @param nodeCount number of replicas, normally 3 or 5
+     * @param messageDelayMs one-way delay of every message between a client and a node
+     */
+    public ReplicaCluster(final int nodeCount,
+                          final long messageDelayMs)
+    {
+        for (int i = 0; i < nodeCount; i++)
+        {
+            nodes.add(new ReplicaNode(i, messageDelayMs));
+        }
+        // Long enough for a round trip to a slow but live node
+        this.requestTimeoutMs = 4 * messageDelayMs + 50;
+    }
+
+    @Override
+    public DistributedSemaphore create(final String name,
+                                       final int permits,
+                                       final long leaseTimeoutMs)
+    {
+        for (final ReplicaNode node : nodes)
+        {
+            node.create(name, permits, leaseTimeoutMs);
+        }
+        return new QuorumSemaphore(this, name, permits);
+    }
+
+    /**
+     * Number of nodes that must agree for a slot to be owned
+     */
+    public int quorum()
+    {
+        return nodes.size() / 2 + 1;
+    }
+
+    public List<ReplicaNode> getNodes()
+    {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public long getRequestTimeoutMs()
+    {
+        return requestTimeoutMs;
+    }
+
+    /**
+     * Kill a node, as if its process had died
+     */
+    public void killNode(final int index)
+    {
+        nodes.get(index).kill();
+    }
+
+    public int getLiveNodes()
+    {
+        int live = 0;
+        for (final ReplicaNode node : nodes)
+        {
+            if (node.isAlive())
+            {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    @Override
+    public void close()
+    {
+        for (final ReplicaNode node : nodes)
+        {
+            node.kill();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One in-process replica of the permit state in a {@link ReplicaCluster}.
+ *
+ * Each semaphore is a row of permit slots, and the node records which holder has
+ * locked each slot. Requests are applied one at a time on the node's own thread
+ * after a simulated one-way message delay, and the reply takes the same delay back,
+ * so requests from one client reach the node in the order they were sent. A killed
+ * node stops answering; callers see that as a request that never completes.
+ */
+class ReplicaNode
+{
+    /**
+     * Slot locks of one semaphore on this node
+     */
+    private static class SlotTable
+    {
+        final int[] owners;        // Holder key per slot, 0 when free
+        final long[] grantedAt;    // Time each slot was locked (ms)
+        final long leaseTimeoutMs;
+        int expiredLeases;
+
+        SlotTable(final int slots,
+                  final long leaseTimeoutMs)
+        {
+            this.owners         = new int[slots];
+            this.grantedAt      = new long[slots];
+            this.leaseTimeoutMs = leaseTimeoutMs;
+        }
+    }
+
+    final int id;
+    private final long messageDelayMs;
+    private final ScheduledExecutorService executor;
+    private final Map<String, SlotTable> tables = new HashMap<>();
+    private volatile boolean alive = true;
+
+    public ReplicaNode(final int id,
+                       final long messageDelayMs)
+    {
+        this.id             = id;
+        this.messageDelayMs = messageDelayMs;
+        this.executor       = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "replica-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create the slot table for a semaphore if this node does not have it yet
+     */
+    public synchronized void create(final String name,
+                                    final int slots,
+                                    final long leaseTimeoutMs)
+    {
+        tables.putIfAbsent(name, new SlotTable(slots, leaseTimeoutMs));
+    }
+
+    /**
+     * Lock a slot for a holder. Succeeds if the slot is free, already held by the
+     * same holder, or held by a lease that has expired.
+     */
+    public CompletableFuture<Boolean> tryLock(final String name,
+                                              final int slot,
+                                              final int holderKey)
+    {
+        return send(() -> {
+            SlotTable table = tables.get(name);
+            long now = System.currentTimeMillis();
+            int owner = table.owners[slot];
+            if (owner != 0 && owner != holderKey)
+            {
+                if (table.leaseTimeoutMs <= 0 || now - table.grantedAt[slot] < table.leaseTimeoutMs)
+                {
+                    return false;
+                }
+                table.expiredLeases++;
+            }
+            table.owners[slot]    = holderKey;
+            table.grantedAt[slot] = now;
+            return true;
+        });
+    }
+
+    /**
+     * Unlock a slot if it is still held by this holder
+     */
+    public CompletableFuture<Boolean> unlock(final String name,
+                                             final int slot,
+                                             final int holderKey)
+    {
+        return send(() -> {
+            SlotTable table = tables.get(name);
+            if (table.owners[slot] != holderKey)
+            {
+                return false;
+            }
+            table.owners[slot] = 0;
+            return true;
+        });
+    }
+
+    /**
+     * Deliver a request after the message delay and reply after the same delay.
+     * The future never completes if the node is dead.
+     */
+    private CompletableFuture<Boolean> send(final BooleanSupplier request)
+    {
+        CompletableFuture<Boolean> reply = new CompletableFuture<>();
+        if (!alive)
+        {
+            return reply;
+        }
+        try
+        {
+            executor.schedule(() -> {
+                boolean result;
+                synchronized (this)
+                {
+                    result = request.getAsBoolean();
+                }
+                executor.schedule(() -> reply.complete(result), messageDelayMs, TimeUnit.MILLISECONDS);
+            }, messageDelayMs, TimeUnit.MILLISECONDS);
+        }
+        catch (final RejectedExecutionException e)
+        {
+            // Killed while sending
+        }
+        return reply;
+    }
+
+    /**
+     * Holder key of a slot as seen by this node (for monitoring, no delay)
+     */
+    public synchronized int ownerOf(final String name,
+                                    final int slot)
+    {
+        return tables.get(name).owners[slot];
+    }
+
+    /**
+     * Time the slot was locked on this node (for monitoring, no delay)
+     */
+    public synchronized long grantedAt(final String name,
+                                       final int slot)
+    {
+        return tables.get(name).grantedAt[slot];
+    }
+
+    public synchronized int getExpiredLeases(final String name)
+    {
+        return tables.get(name).expiredLeases;
+    }
+
+    /**
+     * Stop the node. Its state is lost and it never answers again.
+     */
+    public void kill()
+    {
+        alive = false;
+        executor.shutdownNow();
+    }
+
+    public boolean isAlive()
+    {
+        return alive;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares permits held by a single node against permits replicated across 3 and 5
+ * nodes with quorum acquisition. Each run kills one node a third of the way in and
+ * a second node two thirds of the way in, and reports throughput and average acquire
+ * time in each phase. A single node stops at the first kill; 3 nodes survive one
+ * kill but not two; 5 nodes survive both. Runs without the visualizer.
+ */
+public class ReplicationBenchmark
+{
+    private static final int[] NODE_COUNTS    = {1, 3, 5};
+    private static final int NUM_CONTAINERS   = 40;
+    private static final int PHASE_SECONDS    = 10;
+    private static final int MESSAGE_DELAY_MS = 2;
+
+    private static final String[] PHASES = {"all nodes", "1 node killed", "2 nodes killed"};
+
+    public static void main(String[] args)
+    {
+        System.out.println("Starting Replication Benchmark");
+        System.out.println("==============================");
+
+        List<double[][]> results = new ArrayList<>();
+        for (final int nodeCount : NODE_COUNTS)
+        {
+            results.add(runWithKills(nodeCount));
+        }
+
+        System.out.println("\n==== Replication Results ====");
+        for (int i = 0; i < NODE_COUNTS.length; i++)
+        {
+            System.out.println(NODE_COUNTS[i] + " node(s):");
+            for (int phase = 0; phase < PHASES.length; phase++)
+            {
+                System.out.printf("  %-15s %6.1f req/s, avg acquire %.1f ms%n",
+                        PHASES[phase] + ":", results.get(i)[phase][0], results.get(i)[phase][1]);
+            }
+        }
+
+        saveResultsToCSV("replication_results.csv", results);
+    }
+
+    /**
+     * Run all containers against one replicated resource, killing a node after each phase
+     * @return per phase: throughput (req/s) and average acquire time (ms)
+     */
+    private static double[][] runWithKills(final int nodeCount)
+    {
+        System.out.println("\nRunning with " + nodeCount + " node(s)...");
+
+        SimulationConfig config = new SimulationConfig();
+        config.numContainers = NUM_CONTAINERS;
+        config.numResources  = 1;
+
+        MetricsCollector metrics = new MetricsCollector();
+        double[][] phases = new double[PHASES.length][2];
+        try (ReplicaCluster cluster = new ReplicaCluster(nodeCount, MESSAGE_DELAY_MS))
+        {
+            List<CloudResource> resources = new ArrayList<>();
+            resources.add(new CloudResource("resource_0", config.maxConcurrentAccess,
+                    config.shardsPerResource, config.leaseTimeoutMs, null, cluster));
+
+            SplittableRandom runRandom = new SplittableRandom(config.randomSeed);
+            LatencyDistribution networkLatency = config.networkLatency();
+            LatencyDistribution processingTime = config.processingTime();
+            List<Container> containers = new ArrayList<>();
+            for (int i = 0; i < config.numContainers; i++)
+            {
+                containers.add(new Container(
+                        i, resources, true,
+                        networkLatency, processingTime,
+                        config.requestRateMeanMs, config.requestRateStdDevMs, config.minRequestIntervalMs,
+                        metrics, VisualizerSink.NONE, null, runRandom.split()));
+            }
+            for (final Container container : containers)
+            {
+                container.start();
+            }
+
+            int previousCount = 0;
+            double previousAcquireSum = 0;
+            for (int phase = 0; phase < PHASES.length; phase++)
+            {
+                try
+                {
+                    Thread.sleep(PHASE_SECONDS * 1000L);
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                // Window averages from the difference of running totals
+                int count = metrics.getSuccessfulRequests();
+                double acquireSum = metrics.getAverageAcquireTime() * count;
+                int completed = count - previousCount;
+                phases[phase][0] = (double) completed / PHASE_SECONDS;
+                phases[phase][1] = completed > 0 ? (acquireSum - previousAcquireSum) / completed : 0;
+                previousCount = count;
+                previousAcquireSum = acquireSum;
+
+                System.out.printf("%s: %.1f req/s%n", PHASES[phase], phases[phase][0]);
+                if (phase < nodeCount && phase + 1 < PHASES.length)
+                {
+                    cluster.killNode(phase);
+                }
+            }
+
+            // Let in-flight requests finish before the cluster shuts down
+            Container.stopAll(containers, config.drainTimeoutMs);
+        }
+
+        System.out.println("Conflicts (over-admission): " + metrics.getConflictCount());
+        return phases;
+    }
+
+    /**
+     * Save the per-phase results to CSV file for further analysis
+     */
+    private static void saveResultsToCSV(final String filename,
+                                         final List<double[][]> results)
+    {
+        try (FileWriter writer = new FileWriter(filename))
+        {
+            writer.write("Nodes,Phase,Throughput,Average Acquire Time (ms)\n");
+            for (int i = 0; i < NODE_COUNTS.length; i++)
+            {
+                for (int phase = 0; phase < PHASES.length; phase++)
+                {
+                    writer.write(NODE_COUNTS[i] + "," + PHASES[phase] + ","
+                            + String.format("%.1f", results.get(i)[phase][0]) + ","
+                            + String.format("%.1f", results.get(i)[phase][1]) + "\n");
+                }
+            }
+
+            System.out.println("Results saved to " + filename);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving results: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Heat map of resource occupancy: one small cell per resource, coloured by the
+ * share of its permits in use. Each frame's {@link #tick} reads the counters of a
+ * {@link ResourceOccupancy} that container threads update, and only the cells
+ * inside the clip are painted, so a scrolled view of hundreds of resources costs
+ * about as much as a few. All methods run on the EDT.
+ */
+class ResourceHeatMap extends JComponent implements Scrollable
+{
+    private static final long serialVersionUID = 1L;
+
+    static final int CELL_WIDTH  = 150;
+    static final int CELL_HEIGHT = 40;
+    private static final int GAP = 4;
+
+    // Frames a conflict stays highlighted (about a second at 60 fps)
+    private static final int FLASH_FRAMES = 60;
+
+    private static final Font NAME_FONT  = new Font("Arial", Font.PLAIN, 11);
+    private static final Font COUNT_FONT = new Font("Arial", Font.BOLD, 13);
+    private static final Color OVER_CAPACITY = new Color(220, 40, 40);
+    private static final Color CONFLICT_BORDER = new Color(110, 0, 0);
+    private static final Color[] HEAT = new Color[11];
+
+    static
+    {
+        // Pale blue when idle to deep orange when every permit is in use
+        for (int i = 0; i < HEAT.length; i++)
+        {
+            float t = i / (float) (HEAT.length - 1);
+            HEAT[i] = new Color(
+                    Math.round(220 + t * (240 - 220)),
+                    Math.round(230 + t * (120 - 230)),
+                    Math.round(240 + t * (20 - 240)));
+        }
+    }
+
+    // Registry index -> display position, -1 if not shown
+    private int[] positions = new int[0];
+
+    private transient ResourceOccupancy counters = new ResourceOccupancy();
+
+    // By display position; occupancy as read at the last tick
+    private int[] indexes    = new int[0];
+    private String[] names   = new String[0];
+    private int[] occupancy  = new int[0];
+    private int[] capacity   = new int[0];
+    private int[] flash      = new int[0];
+    private int count;
+    private int flashing;
+    private boolean dirty;
+
+    /**
+     * Read occupancy from these counters from the next frame on
+     */
+    public void attach(final ResourceOccupancy counters)
+    {
+        this.counters = counters;
+    }
+
+    /**
+     * Show a resource, appended after those already registered
+     */
+    public void register(final int resourceIndex,
+                         final int permits)
+    {
+        if (resourceIndex >= positions.length)
+        {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(resourceIndex + 1, oldLength * 2));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+        if (positions[resourceIndex] >= 0)
+        {
+            capacity[positions[resourceIndex]] = permits;
+            dirty = true;
+            return;
+        }
+
+        if (count == names.length)
+        {
+            int length = Math.max(16, count * 2);
+            indexes   = Arrays.copyOf(indexes, length);
+            names     = Arrays.copyOf(names, length);
+            occupancy = Arrays.copyOf(occupancy, length);
+            capacity  = Arrays.copyOf(capacity, length);
+            flash     = Arrays.copyOf(flash, length);
+        }
+        positions[resourceIndex] = count;
+        indexes[count]  = resourceIndex;
+        names[count]    = ResourceRegistry.name(resourceIndex);
+        capacity[count] = permits;
+        count++;
+
+        dirty = true;
+        revalidate();
+    }
+
+    /**
+     * Containers currently inside any shown resource
+     */
+    public int getTotalOccupancy()
+    {
+        int total = 0;
+        for (int i = 0; i < count; i++)
+        {
+            total += occupancy[i];
+        }
+        return total;
+    }
+
+    /**
+     * Advance one frame: read the counters, highlight new conflicts, fade old
+     * highlights and repaint if anything changed
+     */
+    public void tick()
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int used = counters.getOccupancy(indexes[i]);
+            if (used != occupancy[i])
+            {
+                occupancy[i] = used;
+                dirty = true;
+            }
+            if (counters.takeConflicts(indexes[i]) > 0)
+            {
+                if (flash[i] == 0)
+                {
+                    flashing++;
+                }
+                flash[i] = FLASH_FRAMES;
+                dirty = true;
+            }
+        }
+
+        if (flashing > 0)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                if (flash[i] > 0 && --flash[i] == 0)
+                {
+                    flashing--;
+                }
+            }
+            dirty = true;
+        }
+        if (dirty)
+        {
+            dirty = false;
+            repaint();
+        }
+    }
+
+    private int columns()
+    {
+        Component parent = getParent();
+        int width = parent instanceof JViewport ? parent.getWidth() : getWidth();
+        return Math.max(1, width / CELL_WIDTH);
+    }
+
+    @Override
+    public Dimension getPreferredSize()
+    {
+        int columns = columns();
+        int rows = (count + columns - 1) / columns;
+        return new Dimension(columns * CELL_WIDTH, Math.max(1, rows) * CELL_HEIGHT);
+    }
+
+    @Override
+    protected void paintComponent(final Graphics g)
+    {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+        {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // Only the rows intersecting the clip, which is the visible part of the viewport
+        int columns = columns();
+        int firstRow = Math.max(0, clip.y / CELL_HEIGHT);
+        int lastRow = (clip.y + clip.height - 1) / CELL_HEIGHT;
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            for (int column = 0; column < columns; column++)
+            {
+                int position = row * columns + column;
+                if (position >= count)
+                {
+                    return;
+                }
+                paintCell(g, position, column * CELL_WIDTH, row * CELL_HEIGHT);
+            }
+        }
+    }
+
+    private void paintCell(final Graphics g,
+                           final int position,
+                           final int x,
+                           final int y)
+    {
+        int used = occupancy[position];
+        int permits = Math.max(1, capacity[position]);
+        int width = CELL_WIDTH - GAP;
+        int height = CELL_HEIGHT - GAP;
+
+        g.setColor(used > permits ? OVER_CAPACITY : HEAT[Math.min(HEAT.length - 1, used * (HEAT.length - 1) / permits)]);
+        g.fillRect(x, y, width, height);
+        if (flash[position] > 0)
+        {
+            g.setColor(CONFLICT_BORDER);
+            g.drawRect(x, y, width - 1, height - 1);
+            g.drawRect(x + 1, y + 1, width - 3, height - 3);
+        }
+
+        g.setColor(Color.BLACK);
+        g.setFont(NAME_FONT);
+        g.drawString(names[position], x + 6, y + 14);
+        g.setFont(COUNT_FONT);
+        g.drawString(used + "/" + capacity[position], x + 6, y + 30);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize()
+    {
+        return new Dimension(5 * CELL_WIDTH, 10 * CELL_HEIGHT);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(final Rectangle visibleRect,
+                                          final int orientation,
+                                          final int direction)
+    {
+        return CELL_HEIGHT;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(final Rectangle visibleRect,
+                                           final int orientation,
+                                           final int direction)
+    {
+        return Math.max(CELL_HEIGHT, visibleRect.height - CELL_HEIGHT);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight()
+    {
+        return false;
+    }
+}
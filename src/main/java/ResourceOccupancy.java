@@ -0,0 +1,112 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Occupancy, capacity and pending conflicts of each resource, by registry index.
+ * Container threads update the counters directly and {@link ResourceHeatMap} reads
+ * them once a frame, so a busy simulation queues no event per access. Counters live
+ * in fixed-size chunks that are never copied, so growing for a new resource cannot
+ * lose a concurrent update.
+ */
+class ResourceOccupancy
+{
+    private static final int CHUNK_RESOURCES = 256;
+
+    // Counters per resource within a chunk
+    private static final int OCCUPANCY = 0;
+    private static final int CAPACITY  = 1;
+    private static final int CONFLICTS = 2;
+    private static final int FIELDS    = 3;
+
+    private volatile AtomicIntegerArray[] chunks = new AtomicIntegerArray[0];
+
+    /**
+     * Make room for a resource; accesses to a resource not yet registered are ignored
+     */
+    public synchronized void register(final int resourceIndex,
+                                      final int permits)
+    {
+        int needed = resourceIndex / CHUNK_RESOURCES + 1;
+        if (needed > chunks.length)
+        {
+            AtomicIntegerArray[] grown = Arrays.copyOf(chunks, needed);
+            for (int i = chunks.length; i < needed; i++)
+            {
+                grown[i] = new AtomicIntegerArray(CHUNK_RESOURCES * FIELDS);
+            }
+            chunks = grown;
+        }
+        chunk(resourceIndex).set(slot(resourceIndex, CAPACITY), permits);
+    }
+
+    /**
+     * A container entered the resource. Without sync the overlap itself is the
+     * conflict, so entering an over-capacity resource records one.
+     */
+    public void access(final int resourceIndex,
+                       final boolean withSync)
+    {
+        AtomicIntegerArray chunk = chunk(resourceIndex);
+        if (chunk == null)
+        {
+            return;
+        }
+        int users = chunk.incrementAndGet(slot(resourceIndex, OCCUPANCY));
+        if (!withSync && users > chunk.get(slot(resourceIndex, CAPACITY)))
+        {
+            chunk.incrementAndGet(slot(resourceIndex, CONFLICTS));
+        }
+    }
+
+    /**
+     * A container left the resource
+     */
+    public void release(final int resourceIndex)
+    {
+        AtomicIntegerArray chunk = chunk(resourceIndex);
+        if (chunk != null)
+        {
+            chunk.getAndUpdate(slot(resourceIndex, OCCUPANCY), users -> Math.max(0, users - 1));
+        }
+    }
+
+    public void conflict(final int resourceIndex)
+    {
+        AtomicIntegerArray chunk = chunk(resourceIndex);
+        if (chunk != null)
+        {
+            chunk.incrementAndGet(slot(resourceIndex, CONFLICTS));
+        }
+    }
+
+    /**
+     * Containers currently inside the resource
+     */
+    public int getOccupancy(final int resourceIndex)
+    {
+        AtomicIntegerArray chunk = chunk(resourceIndex);
+        return chunk != null ? chunk.get(slot(resourceIndex, OCCUPANCY)) : 0;
+    }
+
+    /**
+     * Conflicts since the last call, resetting the count
+     */
+    public int takeConflicts(final int resourceIndex)
+    {
+        AtomicIntegerArray chunk = chunk(resourceIndex);
+        return chunk != null ? chunk.getAndSet(slot(resourceIndex, CONFLICTS), 0) : 0;
+    }
+
+    private AtomicIntegerArray chunk(final int resourceIndex)
+    {
+        AtomicIntegerArray[] current = chunks;
+        int chunk = resourceIndex / CHUNK_RESOURCES;
+        return resourceIndex >= 0 && chunk < current.length ? current[chunk] : null;
+    }
+
+    private static int slot(final int resourceIndex,
+                            final int field)
+    {
+        return (resourceIndex % CHUNK_RESOURCES) * FIELDS + field;
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide mapping between resource names and dense integer indexes.
+ * A resource's name is interned once when the resource is created; metrics,
+ * logs and the visualizer then carry the index, and the name is only looked
+ * up when writing output.
+ */
+final class ResourceRegistry
+{
+    private static final Map<String, Integer> indexes = new HashMap<>();
+
+    // Copy-on-write so lookups need no lock
+    private static volatile String[] names = new String[0];
+
+    private ResourceRegistry()
+    {
+    }
+
+    /**
+     * Index of a resource name, assigning the next free index the first time
+     */
+    static synchronized int intern(final String name)
+    {
+        Integer index = indexes.get(name);
+        if (index == null)
+        {
+            index = names.length;
+            indexes.put(name, index);
+            String[] grown = Arrays.copyOf(names, index + 1);
+            grown[index] = name;
+            names = grown;
+        }
+        return index;
+    }
+
+    /**
+     * Name of an interned resource index
+     */
+    static String name(final int index)
+    {
+        String[] current = names;
+        return index >= 0 && index < current.length ? current[index] : "resource#" + index;
+    }
+
+    /**
+     * Number of interned resources; every index is below this
+     */
+    static int size()
+    {
+        return names.length;
+    }
+}
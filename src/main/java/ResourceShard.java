@@ -0,0 +1,18 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One replica of a cloud resource with its own permit pool
+ */
+class ResourceShard
+{
+    final DistributedSemaphore semaphore;
+    final AtomicInteger currentUsers = new AtomicInteger(0);
+
+    public ResourceShard(final String name,
+                         final int maxConcurrentAccess,
+                         final long leaseTimeoutMs,
+                         final SemaphoreFactory semaphoreFactory)
+    {
+        this.semaphore = semaphoreFactory.create(name, maxConcurrentAccess, leaseTimeoutMs);
+    }
+}
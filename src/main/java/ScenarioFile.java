@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Loads simulation scenarios from a properties file. Keys are {@link SimulationConfig}
+ * field names; unprefixed keys apply to every scenario and "name.key" keys to one:
+ *
+ * <pre>
+ * scenarios             = sync, no_sync
+ * simulationTimeSeconds = 30
+ * networkLatencySpec    = lognormal:15,0.5
+ * no_sync.enableSynchronization = false
+ * </pre>
+ *
+ * Scenarios run in the order listed. Unknown keys and bad values are rejected, so
+ * a typo fails the load instead of silently running the defaults.
+ */
+class ScenarioFile
+{
+    static final String SCENARIOS_KEY = "scenarios";
+
+    /**
+     * @return a config per scenario, in the listed order
+     * @throws IllegalArgumentException if a key or value does not fit SimulationConfig
+     */
+    static Map<String, SimulationConfig> load(final Path path) throws IOException
+    {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path))
+        {
+            properties.load(reader);
+        }
+
+        String list = properties.getProperty(SCENARIOS_KEY, "default");
+        Map<String, SimulationConfig> scenarios = new LinkedHashMap<>();
+        for (final String name : list.split(","))
+        {
+            if (!name.isBlank())
+            {
+                scenarios.put(name.trim(), new SimulationConfig());
+            }
+        }
+
+        // Shared settings first, so a scenario's own settings override them
+        for (final String key : properties.stringPropertyNames())
+        {
+            if (!key.equals(SCENARIOS_KEY) && key.indexOf('.') < 0)
+            {
+                for (final SimulationConfig config : scenarios.values())
+                {
+                    set(config, key, properties.getProperty(key));
+                }
+            }
+        }
+        for (final String key : properties.stringPropertyNames())
+        {
+            int dot = key.indexOf('.');
+            if (dot >= 0)
+            {
+                SimulationConfig config = scenarios.get(key.substring(0, dot));
+                if (config == null)
+                {
+                    throw new IllegalArgumentException("Scenario " + key.substring(0, dot)
+                            + " is not listed in " + SCENARIOS_KEY + ": " + key);
+                }
+                set(config, key.substring(dot + 1), properties.getProperty(key));
+            }
+        }
+
+        for (final SimulationConfig config : scenarios.values())
+        {
+            check(config);
+        }
+        return scenarios;
+    }
+
+    /**
+     * Fail on a bad distribution spec now rather than after earlier scenarios have run
+     */
+    static void check(final SimulationConfig config)
+    {
+        config.networkLatency();
+        config.processingTime();
+    }
+
+    /**
+     * Text form of one SimulationConfig field, as accepted by {@link #set}
+     */
+    static String get(final SimulationConfig config,
+                      final String key)
+    {
+        try
+        {
+            return String.valueOf(SimulationConfig.class.getDeclaredField(key).get(config));
+        }
+        catch (final NoSuchFieldException e)
+        {
+            throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+        catch (final IllegalAccessException e)
+        {
+            throw new IllegalStateException("Cannot read " + key, e);
+        }
+    }
+
+    /**
+     * Set one SimulationConfig field from its text form; "null" clears a string field
+     */
+    static void set(final SimulationConfig config,
+                    final String key,
+                    final String text)
+    {
+        Field field;
+        try
+        {
+            field = SimulationConfig.class.getDeclaredField(key);
+        }
+        catch (final NoSuchFieldException e)
+        {
+            throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+        if (Modifier.isStatic(field.getModifiers()))
+        {
+            throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+
+        String value = text.trim();
+        Class<?> type = field.getType();
+        try
+        {
+            if (type == int.class)
+            {
+                field.setInt(config, Integer.parseInt(value));
+            }
+            else if (type == long.class)
+            {
+                field.setLong(config, Long.parseLong(value));
+            }
+            else if (type == double.class)
+            {
+                field.setDouble(config, Double.parseDouble(value));
+            }
+            else if (type == boolean.class)
+            {
+                if (!value.equals("true") && !value.equals("false"))
+                {
+                    throw new IllegalArgumentException("Expected true or false for " + key + ": " + value);
+                }
+                field.setBoolean(config, Boolean.parseBoolean(value));
+            }
+            else if (type == String.class)
+            {
+                field.set(config, value.equals("null") ? null : value);
+            }
+            else
+            {
+                throw new IllegalArgumentException("Cannot set " + key + " of type " + type.getSimpleName());
+            }
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Expected a number for " + key + ": " + value);
+        }
+        catch (final IllegalAccessException e)
+        {
+            throw new IllegalStateException("Cannot set " + key, e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the scenarios of a {@link ScenarioFile} and writes one comparison report,
+ * with the first scenario as the baseline. Settings given as key=value arguments
+ * override the file for every scenario, so a shell loop can sweep a matrix
+ * without editing the file.
+ *
+ * Usage: ScenarioRunner scenario-file [--only a,b] [--concurrent] [--report file] [key=value ...]
+ */
+public class ScenarioRunner
+{
+    public static void main(String[] args)
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: ScenarioRunner scenario-file [--only a,b] [--concurrent] [--report file] [key=value ...]");
+            System.exit(2);
+        }
+
+        boolean concurrent = false;
+        String reportFile  = "scenario_report.csv";
+        List<String> only  = null;
+        List<String> overrides = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            if (args[i].equals("--concurrent"))
+            {
+                concurrent = true;
+            }
+            else if (args[i].equals("--report") && i + 1 < args.length)
+            {
+                reportFile = args[++i];
+            }
+            else if (args[i].equals("--only") && i + 1 < args.length)
+            {
+                only = Arrays.asList(args[++i].split(","));
+            }
+            else if (args[i].contains("="))
+            {
+                overrides.add(args[i]);
+            }
+            else
+            {
+                System.err.println("Unknown argument: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        Map<String, SimulationConfig> scenarios;
+        try
+        {
+            scenarios = ScenarioFile.load(Paths.get(args[0]));
+            for (final SimulationConfig config : scenarios.values())
+            {
+                for (final String override : overrides)
+                {
+                    int equals = override.indexOf('=');
+                    ScenarioFile.set(config, override.substring(0, equals), override.substring(equals + 1));
+                }
+                ScenarioFile.check(config);
+            }
+        }
+        catch (final IOException | IllegalArgumentException e)
+        {
+            System.err.println("Error loading scenarios from " + args[0] + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // Each scenario keeps its own seed, so seeds can be part of the matrix
+        ComparisonRunner runner = new ComparisonRunner();
+        for (final Map.Entry<String, SimulationConfig> scenario : scenarios.entrySet())
+        {
+            if (only == null || only.contains(scenario.getKey()))
+            {
+                runner.add(scenario.getKey(), scenario.getValue());
+            }
+        }
+
+        System.out.println("Running scenarios from " + args[0]);
+        System.out.println("=================================");
+
+        List<ComparisonRunner.Result> results = runner.run(concurrent);
+        if (results.isEmpty())
+        {
+            System.err.println("No scenarios selected");
+            System.exit(1);
+        }
+        ComparisonRunner.printReport(results);
+        ComparisonRunner.saveReport(reportFile, results);
+
+        // A scenario with the visualizer keeps the EDT alive
+        System.exit(0);
+    }
+}
@@ -1,5 +1,6 @@
 package Semaphore;
 
+import java.util.SplittableRandom;
 import java.util.concurrent.CountDownLatch;
 
 /**
@@ -14,6 +15,7 @@ class DatabaseClient implements Runnable
     private final SimulationResults results;
     private final CountDownLatch startLatch;
     private final CountDownLatch finishLatch;
+    private final SplittableRandom random;
 
     public DatabaseClient(final int clientId,
                           final SharedCloudResource resource,
@@ -21,7 +23,8 @@ class DatabaseClient implements Runnable
                           final boolean useSync,
                           final SimulationResults results,
                           final CountDownLatch startLatch,
-                          final CountDownLatch finishLatch)
+                          final CountDownLatch finishLatch,
+                          final SplittableRandom random)
     {
         this.clientId    = clientId;
         this.resource    = resource;
@@ -30,6 +33,7 @@ class DatabaseClient implements Runnable
         this.results     = results;
         this.startLatch  = startLatch;
         this.finishLatch = finishLatch;
+        this.random      = random;
     }
 
     @Override
@@ -77,7 +81,7 @@ class DatabaseClient implements Runnable
                 else if (config.delayBetweenOperationsMs < 0)
                 {
                     // Random delay for mixed workload
-                    Thread.sleep((long)(Math.random() * 100));
+                    Thread.sleep(random.nextInt(100));
                 }
             }
         }
@@ -1,5 +1,14 @@
 package Semaphore;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
 /**
  * Configuration for a workload simulation
  */
@@ -10,17 +19,99 @@ class WorkLoadConfig
     final int operationsPerClient;
     final int delayBetweenOperationsMs;
     final int semaphorePermits;
+    final long randomSeed;
+
+    static final long DEFAULT_SEED = 42L;
 
     public WorkLoadConfig(final String testName,
                           final int numClients,
                           final int operationsPerClient,
                           final int delayBetweenOperationsMs,
                           final int semaphorePermits)
+    {
+        this(testName, numClients, operationsPerClient, delayBetweenOperationsMs,
+                semaphorePermits, DEFAULT_SEED);
+    }
+
+    public WorkLoadConfig(final String testName,
+                          final int numClients,
+                          final int operationsPerClient,
+                          final int delayBetweenOperationsMs,
+                          final int semaphorePermits,
+                          final long randomSeed)
     {
         this.testName                 = testName;
         this.numClients               = numClients;
         this.operationsPerClient      = operationsPerClient;
         this.delayBetweenOperationsMs = delayBetweenOperationsMs;
         this.semaphorePermits         = semaphorePermits;
+        this.randomSeed               = randomSeed;
+    }
+
+    private static final Set<String> KEYS = Set.of(
+            "numClients", "operationsPerClient", "delayBetweenOperationsMs", "semaphorePermits", "randomSeed");
+
+    /**
+     * Load workloads from a properties file listing them under "scenarios". Unprefixed
+     * keys apply to every workload and "name.key" keys to one, e.g.
+     * "burst_test.delayBetweenOperationsMs = 0"
+     * @throws IllegalArgumentException on an unknown key or a value that is not a number
+     */
+    static List<WorkLoadConfig> load(final Path path) throws IOException
+    {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path))
+        {
+            properties.load(reader);
+        }
+        for (final String key : properties.stringPropertyNames())
+        {
+            String setting = key.substring(key.indexOf('.') + 1);
+            if (!key.equals("scenarios") && !KEYS.contains(setting))
+            {
+                throw new IllegalArgumentException("Unknown setting: " + key);
+            }
+        }
+
+        List<WorkLoadConfig> configs = new ArrayList<>();
+        for (final String name : properties.getProperty("scenarios", "").split(","))
+        {
+            if (name.isBlank())
+            {
+                continue;
+            }
+            String testName = name.trim();
+            configs.add(new WorkLoadConfig(
+                    testName,
+                    (int) number(properties, testName, "numClients", 10),
+                    (int) number(properties, testName, "operationsPerClient", 5),
+                    (int) number(properties, testName, "delayBetweenOperationsMs", 100),
+                    (int) number(properties, testName, "semaphorePermits", 3),
+                    number(properties, testName, "randomSeed", DEFAULT_SEED)));
+        }
+        return configs;
+    }
+
+    /**
+     * A workload's own setting, else the shared one, else the default
+     */
+    private static long number(final Properties properties,
+                               final String testName,
+                               final String key,
+                               final long defaultValue)
+    {
+        String value = properties.getProperty(testName + "." + key, properties.getProperty(key));
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong(value.trim());
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Expected a number for " + testName + "." + key + ": " + value);
+        }
     }
-}
\ No newline at end of file
+}
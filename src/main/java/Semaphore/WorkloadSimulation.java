@@ -2,13 +2,17 @@ package Semaphore;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.CountDownLatch;
 
 /**
  * This class simulates different workload scenarios to evaluate the effectiveness
  * of semaphores in preventing race conditions in a cloud environment.
+ *
+ * Usage: WorkloadSimulation [scenario-file]; without a file the five built-in scenarios run.
  */
 public class WorkloadSimulation
 {
@@ -18,12 +22,33 @@ public class WorkloadSimulation
         System.out.println("Starting Cloud Database Synchronization Workload Simulation");
         System.out.println("===========================================================");
 
-        // Run different workload scenarios
-        runLowConcurrencyTest();
-        runMediumConcurrencyTest();
-        runHighConcurrencyTest();
-        runBurstTest();
-        runMixedWorkloadTest();
+        // Run the workloads from a scenario file if given, else the built-in ones
+        if (args.length > 0)
+        {
+            List<WorkLoadConfig> configs;
+            try
+            {
+                configs = WorkLoadConfig.load(Paths.get(args[0]));
+            }
+            catch (final IOException | IllegalArgumentException e)
+            {
+                System.err.println("Error loading scenarios from " + args[0] + ": " + e.getMessage());
+                return;
+            }
+            for (final WorkLoadConfig config : configs)
+            {
+                System.out.println("\nRunning " + config.testName + " (" + config.numClients + " concurrent clients)");
+                runSimulation(config);
+            }
+        }
+        else
+        {
+            runLowConcurrencyTest();
+            runMediumConcurrencyTest();
+            runHighConcurrencyTest();
+            runBurstTest();
+            runMixedWorkloadTest();
+        }
 
         System.out.println("\nAll simulation tests completed. Results have been saved to CSV files.");
     }
@@ -162,11 +187,12 @@ public class WorkloadSimulation
         List<DatabaseClient> clients = new ArrayList<>();
         CountDownLatch startLatch    = new CountDownLatch(1);
         CountDownLatch finishLatch   = new CountDownLatch(config.numClients);
+        SplittableRandom runRandom   = new SplittableRandom(config.randomSeed);
 
         for (int i = 0; i < config.numClients; i++)
         {
             DatabaseClient client = new DatabaseClient(
-                    i, resource, config, useSync, results, startLatch, finishLatch);
+                    i, resource, config, useSync, results, startLatch, finishLatch, runRandom.split());
             clients.add(client);
             new Thread(client).start();
         }
@@ -0,0 +1,12 @@
+/**
+ * Creates the semaphore guarding one resource shard
+ */
+interface SemaphoreFactory
+{
+    /**
+     * Semaphores kept in this JVM
+     */
+    SemaphoreFactory LOCAL = (name, permits, leaseTimeoutMs) -> new LocalSemaphore(permits, name, leaseTimeoutMs);
+
+    DistributedSemaphore create(String name, int permits, long leaseTimeoutMs);
+}
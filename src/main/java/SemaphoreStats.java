@@ -0,0 +1,131 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Always-on counters for one semaphore: waiting holders, acquisitions, timeouts
+ * and wait/hold time histograms. Every update is a handful of atomic adds, so
+ * it costs far less than the simulated latencies around it.
+ */
+class SemaphoreStats
+{
+    private final AtomicInteger queueLength    = new AtomicInteger();
+    private final AtomicInteger maxQueueLength = new AtomicInteger();
+    private final AtomicLong enqueued          = new AtomicLong();
+    private final AtomicLong queueLengthSum    = new AtomicLong();
+
+    private final AtomicLong acquires = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong shed     = new AtomicLong();
+
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LatencyHistogram holdTimes = new LatencyHistogram();
+
+    /**
+     * A holder found no free permit and starts waiting
+     */
+    public void enqueue()
+    {
+        int length = queueLength.incrementAndGet();
+        maxQueueLength.accumulateAndGet(length, Math::max);
+        queueLengthSum.addAndGet(length);
+        enqueued.incrementAndGet();
+    }
+
+    /**
+     * A waiting holder got a permit or gave up
+     */
+    public void dequeue()
+    {
+        queueLength.decrementAndGet();
+    }
+
+    /**
+     * @param waitStartNanos System.nanoTime() when the holder asked for the permit
+     */
+    public void acquired(final long waitStartNanos)
+    {
+        acquires.incrementAndGet();
+        waitTimes.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStartNanos));
+    }
+
+    /**
+     * @param waitStartNanos System.nanoTime() when the holder asked for the permit
+     */
+    public void timedOut(final long waitStartNanos)
+    {
+        timeouts.incrementAndGet();
+        waitTimes.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStartNanos));
+    }
+
+    /**
+     * A holder was turned away by the wait queue's policy instead of waiting out its timeout
+     * @param waitStartNanos System.nanoTime() when the holder asked for the permit
+     */
+    public void shed(final long waitStartNanos)
+    {
+        shed.incrementAndGet();
+        waitTimes.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStartNanos));
+    }
+
+    public void released(final long holdTimeMs)
+    {
+        holdTimes.record(holdTimeMs);
+    }
+
+    /**
+     * Holders waiting right now
+     */
+    public int getQueueLength()
+    {
+        return queueLength.get();
+    }
+
+    public int getMaxQueueLength()
+    {
+        return maxQueueLength.get();
+    }
+
+    /**
+     * Mean queue length seen by holders as they joined it, themselves included
+     */
+    public double getAverageQueueLength()
+    {
+        long count = enqueued.get();
+        return count == 0 ? 0 : (double) queueLengthSum.get() / count;
+    }
+
+    public long getAcquires()
+    {
+        return acquires.get();
+    }
+
+    public long getTimeouts()
+    {
+        return timeouts.get();
+    }
+
+    public long getShed()
+    {
+        return shed.get();
+    }
+
+    /**
+     * Fraction of acquire attempts that timed out
+     */
+    public double getTimeoutRate()
+    {
+        long attempts = acquires.get() + timeouts.get() + shed.get();
+        return attempts == 0 ? 0 : (double) timeouts.get() / attempts;
+    }
+
+    public LatencyHistogram getWaitTimes()
+    {
+        return waitTimes;
+    }
+
+    public LatencyHistogram getHoldTimes()
+    {
+        return holdTimes;
+    }
+}
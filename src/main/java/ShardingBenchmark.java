@@ -0,0 +1,118 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares throughput of a single hot resource against the same resource
+ * split into replicated shards. Both layouts have the same total permits, the
+ * sharded one splitting them between the shards' pools. Runs without the visualizer.
+ */
+public class ShardingBenchmark
+{
+    private static final int NUM_CONTAINERS   = 40;
+    private static final int DURATION_SECONDS = 20;
+    private static final int SHARD_COUNT      = 4;
+    private static final int PERMITS          = 8;     // Two per shard when sharded
+
+    public static void main(String[] args)
+    {
+        System.out.println("Starting Hot Resource Sharding Benchmark");
+        System.out.println("========================================");
+
+        SimulationConfig config = new SimulationConfig();
+        config.numContainers         = NUM_CONTAINERS;
+        config.numResources          = 1;     // Every container hits the same resource
+        config.maxConcurrentAccess   = PERMITS;
+        config.simulationTimeSeconds = DURATION_SECONDS;
+
+        config.shardsPerResource = 1;
+        MetricsCollector unsharded = runHotResource(config);
+
+        config.shardsPerResource = SHARD_COUNT;
+        MetricsCollector sharded = runHotResource(config);
+
+        double unshardedThroughput = (double) unsharded.getSuccessfulRequests() / DURATION_SECONDS;
+        double shardedThroughput   = (double) sharded.getSuccessfulRequests() / DURATION_SECONDS;
+
+        System.out.println("\n==== Sharding Results ====");
+        System.out.println("Unsharded throughput: " + unshardedThroughput + " requests/second");
+        System.out.println(SHARD_COUNT + " shards throughput: " + shardedThroughput + " requests/second");
+        System.out.println("Speedup: " + (shardedThroughput / Math.max(1e-9, unshardedThroughput)) + "x");
+
+        saveResultsToCSV("hot_resource_sharding_results.csv", unsharded, sharded);
+    }
+
+    /**
+     * Run all containers against one resource for the configured duration
+     */
+    private static MetricsCollector runHotResource(final SimulationConfig config)
+    {
+        System.out.println("\nRunning " + config.numContainers + " containers against one resource with "
+                + config.shardsPerResource + " shard(s)...");
+
+        MetricsCollector metrics = new MetricsCollector();
+        List<CloudResource> resources = new ArrayList<>();
+        resources.add(new CloudResource("resource_0", config.maxConcurrentAccess, config.shardsPerResource));
+
+        // Same seed for both layouts so they see the same request stream
+        SplittableRandom runRandom = new SplittableRandom(config.randomSeed);
+        LatencyDistribution networkLatency = config.networkLatency();
+        LatencyDistribution processingTime = config.processingTime();
+        List<Container> containers = new ArrayList<>();
+        for (int i = 0; i < config.numContainers; i++)
+        {
+            containers.add(new Container(
+                    i, resources, true,
+                    networkLatency, processingTime,
+                    config.requestRateMeanMs, config.requestRateStdDevMs, config.minRequestIntervalMs,
+                    metrics, VisualizerSink.NONE, null, runRandom.split()));
+        }
+
+        for (final Container container : containers)
+        {
+            container.start();
+        }
+
+        try
+        {
+            Thread.sleep(config.simulationTimeSeconds * 1000L);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // Let in-flight requests finish so none spill into the next layout's run
+        Container.stopAll(containers, config.drainTimeoutMs);
+
+        return metrics;
+    }
+
+    /**
+     * Save results to CSV file for further analysis
+     */
+    private static void saveResultsToCSV(final String filename,
+                                         final MetricsCollector unsharded,
+                                         final MetricsCollector sharded)
+    {
+        try (FileWriter writer = new FileWriter(filename))
+        {
+            writer.write("Metric,Unsharded," + SHARD_COUNT + " Shards\n");
+            writer.write("Successful Requests," + unsharded.getSuccessfulRequests() +
+                    "," + sharded.getSuccessfulRequests() + "\n");
+            writer.write("Timeouts," + unsharded.getTimeoutCount() +
+                    "," + sharded.getTimeoutCount() + "\n");
+            writer.write("Throughput (ops/sec)," +
+                    ((double) unsharded.getSuccessfulRequests() / DURATION_SECONDS) + "," +
+                    ((double) sharded.getSuccessfulRequests() / DURATION_SECONDS) + "\n");
+
+            System.out.println("Results saved to " + filename);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving results: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Checks that a {@link MappedSemaphore} never admits more holders than it has
+ * permits when several JVMs share it. Each worker process runs threads in a tight
+ * acquire/hold/release loop and counts holders in a second mapped file, flagging
+ * the same users > maxValue condition {@link CloudResource} reports as a conflict.
+ * The same loop is run in-process against a {@link LocalSemaphore} for comparison.
+ *
+ * Usage: SharedMemoryHarness [processes] [threads-per-process] [seconds] [permits]
+ * Exits with status 1 if any process saw over-admission.
+ */
+public class SharedMemoryHarness
+{
+    private static final String WORKER_FLAG = "--worker";
+    private static final long ACQUIRE_TIMEOUT_MS = 1000;
+    private static final long HOLD_NANOS = 2000;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if (args.length > 0 && args[0].equals(WORKER_FLAG))
+        {
+            runWorker(args);
+            return;
+        }
+
+        int processes         = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int threadsPerProcess = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds           = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int permits           = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.println("Starting Shared Memory Semaphore Harness");
+        System.out.println("========================================");
+
+        Path directory = Files.createTempDirectory("shared-semaphore");
+        String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+
+        List<Process> children = new ArrayList<>();
+        List<String[]> results = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < processes; i++)
+        {
+            Process child = new ProcessBuilder(javaBin, "-cp", classPath, "SharedMemoryHarness", WORKER_FLAG,
+                    directory.toString(), String.valueOf(i), String.valueOf(threadsPerProcess),
+                    String.valueOf(seconds), String.valueOf(permits))
+                    .redirectErrorStream(true)
+                    .start();
+            children.add(child);
+
+            // Drain the child's output and keep its result line
+            Thread reader = new Thread(() -> {
+                try (BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream())))
+                {
+                    String line;
+                    while ((line = output.readLine()) != null)
+                    {
+                        if (line.startsWith("RESULT "))
+                        {
+                            synchronized (results)
+                            {
+                                results.add(line.substring(7).split(" "));
+                            }
+                        }
+                        else
+                        {
+                            System.out.println(line);
+                        }
+                    }
+                }
+                catch (final IOException e)
+                {
+                    System.err.println("Error reading worker output: " + e.getMessage());
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        for (final Process child : children)
+        {
+            child.waitFor();
+        }
+        for (final Thread reader : readers)
+        {
+            reader.join();
+        }
+
+        try (Stream<Path> files = Files.list(directory))
+        {
+            for (final Path file : (Iterable<Path>) files::iterator)
+            {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+
+        long acquisitions   = 0;
+        long timeouts       = 0;
+        long overAdmissions = 0;
+        int maxUsers        = 0;
+        for (final String[] result : results)
+        {
+            acquisitions   += Long.parseLong(result[0]);
+            timeouts       += Long.parseLong(result[1]);
+            overAdmissions += Long.parseLong(result[2]);
+            maxUsers        = Math.max(maxUsers, Integer.parseInt(result[3]));
+        }
+
+        System.out.println("\nRunning in-process baseline with LocalSemaphore...");
+        long[] baseline = runLoop(new LocalSemaphore(permits, "baseline"),
+                ByteBuffer.allocateDirect(Integer.BYTES), 0, processes * threadsPerProcess, seconds);
+
+        System.out.println("\n==== Shared Memory Results ====");
+        System.out.println("Processes reporting: " + results.size() + "/" + processes);
+        System.out.println("Holders: " + processes * threadsPerProcess + ", permits: " + permits);
+        System.out.println("Acquisitions: " + acquisitions + " (" + acquisitions / seconds + "/s)");
+        System.out.println("Timeouts: " + timeouts);
+        System.out.println("Most concurrent holders seen: " + maxUsers);
+        System.out.println("Over-admissions: " + overAdmissions);
+        System.out.println("In-process LocalSemaphore: " + baseline[0] / seconds + " acquisitions/s");
+
+        if (overAdmissions > 0 || results.size() < processes)
+        {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    /**
+     * Worker process: map the shared semaphore and holder counter, run the loop and
+     * print "RESULT acquisitions timeouts overAdmissions maxUsers"
+     */
+    private static void runWorker(final String[] args) throws IOException, InterruptedException
+    {
+        Path directory        = Paths.get(args[1]);
+        int processIndex      = Integer.parseInt(args[2]);
+        int threads           = Integer.parseInt(args[3]);
+        int seconds           = Integer.parseInt(args[4]);
+        int permits           = Integer.parseInt(args[5]);
+
+        DistributedSemaphore semaphore = new MappedSemaphoreFactory(directory).create("resource_0", permits, 0);
+        ByteBuffer users;
+        try (FileChannel channel = FileChannel.open(directory.resolve("users.cnt"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            users = channel.map(FileChannel.MapMode.READ_WRITE, 0, Integer.BYTES);
+        }
+
+        long[] result = runLoop(semaphore, users, processIndex * threads, threads, seconds);
+        System.out.println("RESULT " + result[0] + " " + result[1] + " " + result[2] + " " + result[3]);
+    }
+
+    /**
+     * Run threads in an acquire/hold/release loop, counting holders in the given buffer
+     * @return acquisitions, timeouts, over-admissions and the most holders seen at once
+     */
+    private static long[] runLoop(final DistributedSemaphore semaphore,
+                                  final ByteBuffer users,
+                                  final int firstHolderId,
+                                  final int threads,
+                                  final int seconds) throws InterruptedException
+    {
+        AtomicLong acquisitions   = new AtomicLong();
+        AtomicLong timeouts       = new AtomicLong();
+        AtomicLong overAdmissions = new AtomicLong();
+        AtomicLong maxUsers       = new AtomicLong();
+        long stopAt = System.nanoTime() + seconds * 1_000_000_000L;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            final int holderId = firstHolderId + i;
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < stopAt)
+                {
+                    if (!semaphore.acquire(holderId, 0, ACQUIRE_TIMEOUT_MS))
+                    {
+                        timeouts.incrementAndGet();
+                        continue;
+                    }
+
+                    int current = (int) INT.getAndAdd(users, 0, 1) + 1;
+                    if (current > semaphore.getMaxValue())
+                    {
+                        overAdmissions.incrementAndGet();
+                    }
+                    maxUsers.accumulateAndGet(current, Math::max);
+
+                    long holdUntil = System.nanoTime() + HOLD_NANOS;
+                    while (System.nanoTime() < holdUntil)
+                    {
+                        Thread.onSpinWait();
+                    }
+
+                    INT.getAndAdd(users, 0, -1);
+                    semaphore.release(holderId, 0);
+                    acquisitions.incrementAndGet();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (final Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        return new long[] {acquisitions.get(), timeouts.get(), overAdmissions.get(), maxUsers.get()};
+    }
+}
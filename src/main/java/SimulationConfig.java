@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * Configuration parameters for the simulation
  */
@@ -6,14 +8,88 @@ public class SimulationConfig
     int numContainers             = 20;           // Number of containers/clients
     int numResources              = 5;             // Number of shared resources
     int simulationTimeSeconds     = 60;   // Total simulation time
+    int drainTimeoutMs            = 10000; // At the end, wait this long for in-flight requests before interrupting them
     int maxConcurrentAccess       = 3;      // Max concurrent access per resource (semaphore value)
+    int shardsPerResource         = 1;      // Replicas per resource, splitting its permits between their pools
     boolean enableSynchronization = true; // Toggle synchronization on/off for comparison
     int networkLatencyMeanMs      = 15;    // Mean network latency in ms
     int networkLatencyStdDevMs    = 5;   // Standard deviation for network latency
     int processingTimeMeanMs      = 50;    // Mean processing time in ms
     int processingTimeStdDevMs    = 20;  // Standard deviation for processing time
+    String networkLatencySpec     = null;  // e.g. "lognormal:15,0.5"; null uses the Gaussian mean/stddev above
+    String processingTimeSpec     = null;  // e.g. "pareto:30,2.5"; null uses the Gaussian mean/stddev above
     int requestRateMeanMs         = 200;      // Mean time between requests from a client
     int requestRateStdDevMs       = 100;    // Standard deviation for request rate
-    boolean enableLogging         = true;     // Enable detailed logging
+    int minRequestIntervalMs      = 500;     // Floor on the sampled wait between requests (a tenant's own rate lowers it)
+    long randomSeed               = 42L;     // Run-level seed; each container gets a stream split from it
+    long acquireTimeoutMs         = CloudResource.DEFAULT_ACQUIRE_TIMEOUT_MS; // Give up waiting for a permit after this
+    int leaseTimeoutMs            = 0;       // Reclaim permits held longer than this (0 disables leases)
+    String coordinatorAddress     = null;    // host:port of a CoordinationServer; null keeps permits in this JVM
+    boolean pipelineCoordinator   = true;    // Multiplex all coordinator requests over one connection
+    String sharedMemoryDirectory  = null;    // Keep permits in memory-mapped files here, shared by JVMs on this host
+    int replicaNodes              = 0;       // Replicate permits across this many in-process nodes (0 disables)
+    int replicaMessageDelayMs     = 2;       // One-way message delay between containers and replica nodes
+    String tenants                = null;    // e.g. "noisy:30:1:1:50,a:5:1:3"; name:containers:reserved:burst[:requestRateMeanMs] (null disables)
+    String rateLimitMode          = null;    // "token" rejects requests over the rate, "leaky" delays them (null disables)
+    double resourceRatePerSecond  = 0;       // Requests per second per resource (0 disables)
+    int resourceBurst             = 1;       // Requests a resource lets through at once
+    double containerRatePerSecond = 0;       // Requests per second per container (0 disables)
+    int containerBurst            = 1;       // Requests a container may send at once
+    int rateLimitMaxDelayMs       = 1000;    // In "leaky" mode, reject requests that would wait longer than this
+    int maxQueueDepth             = 0;       // Holders allowed to wait per in-JVM semaphore before shedding (0 = unbounded)
+    String queuePolicy            = WaitQueuePolicy.REJECT; // "reject" arrivals when full, "lifo" shed the oldest, "codel" shed long waits
+    int codelTargetMs             = 50;      // CoDel: acceptable time in the wait queue
+    int codelIntervalMs           = 500;     // CoDel: shed once waits stay above target this long
+
+    // Fault injection, active from faultStartSeconds for faultDurationSeconds
+    double crashProbability       = 0;       // Chance a container dies right after acquiring a permit
+    double dropReleaseProbability = 0;       // Chance a release message is lost
+    int extraNetworkDelayMs       = 0;       // Added to every acquire/release message
+    boolean partitionNetwork      = false;   // Hold back all messages until the fault window ends
+    int faultStartSeconds         = 0;
+    int faultDurationSeconds      = 0;
+    boolean headless              = false;   // Skip the Swing visualizer (always skipped without a display)
+    boolean enableLogging         = true;    // Print every synchronized access (never in headless runs)
     String metricsOutputFile      = "sync_on_simulation_metrics.csv";
+    String traceOutputFile        = null;  // Binary request trace for replay (null disables tracing)
+    String columnarOutputFile     = null;  // Columnar access log for large sweeps (null skips it)
+    String metricsLogFile         = null;  // Mapped binary event log written during the run (null keeps events in heap)
+    String timeSeriesOutputFile   = null;  // Per-second requests/conflicts/timeouts/shed/rate-limited CSV (null skips it)
+    String jfrOutputFile          = null;  // Flight recording with the cloudsync.* events (null records nothing)
+    int metricsPort               = 0;     // Serve live Prometheus metrics on localhost at this port (0 disables)
+
+    /**
+     * Distribution for network latency samples
+     */
+    LatencyDistribution networkLatency()
+    {
+        return distribution(networkLatencySpec, networkLatencyMeanMs, networkLatencyStdDevMs);
+    }
+
+    /**
+     * Distribution for processing time samples
+     */
+    LatencyDistribution processingTime()
+    {
+        return distribution(processingTimeSpec, processingTimeMeanMs, processingTimeStdDevMs);
+    }
+
+    private static LatencyDistribution distribution(final String spec,
+                                                    final int meanMs,
+                                                    final int stdDevMs)
+    {
+        if (spec == null)
+        {
+            return LatencyDistribution.gaussian(meanMs, stdDevMs);
+        }
+
+        try
+        {
+            return LatencyDistribution.parse(spec);
+        }
+        catch (final IOException e)
+        {
+            throw new IllegalArgumentException("Cannot load distribution " + spec + ": " + e.getMessage(), e);
+        }
+    }
 }
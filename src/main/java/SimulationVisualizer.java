@@ -1,30 +1,36 @@
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
-public class SimulationVisualizer extends JFrame
+public class SimulationVisualizer extends JFrame implements VisualizerSink
 {
-    private final int RESOURCE_COUNT = 5;
-
     private JPanel mainPanel;
-    private Map<String, ResourcePanel> resourcePanels = new HashMap<>();
+    // One cell per resource, scrolled so only visible cells are painted
+    private ResourceHeatMap heatMap;
+    // Updated by the calling threads, read by the heat map once a frame
+    private transient ResourceOccupancy occupancy = new ResourceOccupancy();
     private JLabel statusLabel;
     private JLabel statsLabel;
     private JCheckBox syncEnabledCheckbox;
 
-    private AtomicInteger conflictCount = new AtomicInteger(0);
-    private AtomicInteger operationCount = new AtomicInteger(0);
-    private AtomicInteger throughput = new AtomicInteger(0);
-    private AtomicInteger avgResponseTime = new AtomicInteger(0);
-    private long startTime;
+    // Seconds of history shown in the charts
+    private static final int HISTORY_SECONDS = 120;
+    private static final int THROUGHPUT = 0;
+    private static final int P50 = 1;
+    private static final int P99 = 2;
+    private static final int CONFLICTS = 3;
+
+    // Sampled once a second instead of receiving a callback per request
+    private transient MetricsCollector metrics;
+    private final transient TimeSeriesBuffer history = new TimeSeriesBuffer(4, HISTORY_SECONDS);
+    private final transient List<TimeSeriesChart> charts = new ArrayList<>();
+    private long nextSecond;
+    private long[] lastLatencyCounts;
 
     public SimulationVisualizer() {
         setTitle("Cloud Synchronization Simulation");
-        setSize(800, 600);
+        setSize(900, 720);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
         mainPanel = new JPanel(new BorderLayout());
@@ -44,77 +50,98 @@ public class SimulationVisualizer extends JFrame
         statusPanel.add(statusLabel, BorderLayout.NORTH);
         statusPanel.add(statsLabel, BorderLayout.SOUTH);
 
-        // Resources panel
-        JPanel resourcesPanel = new JPanel(new GridLayout(RESOURCE_COUNT, 1, 10, 10));
+        // Resources heat map
+        heatMap = new ResourceHeatMap();
+        heatMap.attach(occupancy);
+        heatMap.setBackground(Color.WHITE);
+        JScrollPane resourcesPane = new JScrollPane(heatMap,
+                ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+
+        // Charts of the sampled history
+        charts.add(new TimeSeriesChart("Throughput", " ops/s", history,
+                new int[] {THROUGHPUT}, new String[] {"ops"}, new Color[] {new Color(0, 100, 200)}));
+        charts.add(new TimeSeriesChart("Latency", " ms", history,
+                new int[] {P50, P99}, new String[] {"p50", "p99"},
+                new Color[] {new Color(0, 150, 80), new Color(230, 120, 0)}));
+        charts.add(new TimeSeriesChart("Conflicts", " /s", history,
+                new int[] {CONFLICTS}, new String[] {"conflicts"}, new Color[] {new Color(200, 30, 30)}));
+        JPanel chartsPanel = new JPanel(new GridLayout(1, charts.size(), 6, 0));
+        for (TimeSeriesChart chart : charts) {
+            chartsPanel.add(chart);
+        }
+
+        JPanel centerPanel = new JPanel(new BorderLayout(0, 6));
+        centerPanel.add(resourcesPane, BorderLayout.CENTER);
+        centerPanel.add(chartsPanel, BorderLayout.SOUTH);
 
         // Add components to main panel
         mainPanel.add(controlPanel, BorderLayout.NORTH);
-        mainPanel.add(resourcesPanel, BorderLayout.CENTER);
+        mainPanel.add(centerPanel, BorderLayout.CENTER);
         mainPanel.add(statusPanel, BorderLayout.SOUTH);
 
         // Set up the frame
         setContentPane(mainPanel);
 
-        // Start timing
-        startTime = System.currentTimeMillis();
-
-        // Start UI updater
-        new Timer(100, e -> repaint()).start();
+        // Start UI updater: up to 60 frames per second, repainting only when something changed
+        new Timer(16, e -> heatMap.tick()).start();
 
         setVisible(true);
     }
 
-    public void runUITest() {
-        new Thread(() -> {
-            try {
-                // Wait for UI to initialize
-                Thread.sleep(1000);
-
-                System.out.println("Starting UI test...");
-
-                // Add containers to resource 0
-                accessResource(1, "resource_0", true);
-                Thread.sleep(500);
-                accessResource(2, "resource_0", true);
-                Thread.sleep(500);
-                accessResource(3, "resource_0", true);
-
-                // Add containers to resource 1
-                accessResource(4, "resource_1", true);
-                Thread.sleep(500);
-                accessResource(5, "resource_1", true);
-
-                // Create a conflict on resource 2
-                accessResource(6, "resource_2", false);
-                Thread.sleep(500);
-                accessResource(7, "resource_2", false);
-                Thread.sleep(500);
-                accessResource(8, "resource_2", false);
-                Thread.sleep(500);
-                accessResource(9, "resource_2", false); // This should create a conflict
-
-                // Wait a bit
-                Thread.sleep(2000);
-
-                // Release some containers
-                releaseResource(1, "resource_0");
-                releaseResource(4, "resource_1");
-                releaseResource(7, "resource_2");
-
-                System.out.println("UI test completed.");
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+    /**
+     * Scripted walk through the heat map on its own resources, without a simulation
+     */
+    public static void main(String[] args) throws InterruptedException {
+        runUITest(new EventThreadSink(SimulationVisualizer::new));
     }
 
-    public void registerResource(String resourceId) {
-        // Create panel for this resource if it doesn't exist
-        JPanel resourcesPanel = (JPanel)mainPanel.getComponent(1);
-        ResourcePanel panel = new ResourcePanel(resourceId);
-        resourcePanels.put(resourceId, panel);
-        resourcesPanel.add(panel);
-        resourcesPanel.revalidate();
+    static void runUITest(VisualizerSink visualizer) throws InterruptedException {
+        System.out.println("Starting UI test...");
+
+        int resource0 = ResourceRegistry.intern("ui_test_0");
+        int resource1 = ResourceRegistry.intern("ui_test_1");
+        int resource2 = ResourceRegistry.intern("ui_test_2");
+        visualizer.registerResource(resource0, 3);
+        visualizer.registerResource(resource1, 3);
+        visualizer.registerResource(resource2, 3);
+        visualizer.setStatus("UI test");
+        Thread.sleep(1000);
+
+        // Add containers to resource 0
+        visualizer.accessResource(1, resource0, true);
+        Thread.sleep(500);
+        visualizer.accessResource(2, resource0, true);
+        Thread.sleep(500);
+        visualizer.accessResource(3, resource0, true);
+
+        // Add containers to resource 1
+        visualizer.accessResource(4, resource1, true);
+        Thread.sleep(500);
+        visualizer.accessResource(5, resource1, true);
+
+        // Create a conflict on resource 2
+        visualizer.accessResource(6, resource2, false);
+        Thread.sleep(500);
+        visualizer.accessResource(7, resource2, false);
+        Thread.sleep(500);
+        visualizer.accessResource(8, resource2, false);
+        Thread.sleep(500);
+        visualizer.accessResource(9, resource2, false); // This should create a conflict
+
+        // Wait a bit
+        Thread.sleep(2000);
+
+        // Release some containers
+        visualizer.releaseResource(1, resource0);
+        visualizer.releaseResource(4, resource1);
+        visualizer.releaseResource(7, resource2);
+
+        System.out.println("UI test completed.");
+    }
+
+    public void registerResource(int resourceIndex, int permits) {
+        occupancy.register(resourceIndex, permits);
+        heatMap.register(resourceIndex, permits);
     }
 
     public void setStatus(String message) {
@@ -125,183 +152,85 @@ public class SimulationVisualizer extends JFrame
         syncEnabledCheckbox.setSelected(enabled);
     }
 
-    public void accessResource(int containerId, String resourceId, boolean withSync) {
-        ResourcePanel panel = resourcePanels.get(resourceId);
-        if (panel != null) {
-            // Add container to resource
-            boolean conflict = panel.addContainer(containerId);
-
-            // If not using sync and we have a conflict, record it
-            if (!withSync && conflict) {
-                conflictCount.incrementAndGet();
-                panel.flashConflict();
-                updateStats();
-            }
-
-            // Force immediate repaint
-            panel.repaint();
-            this.repaint();
-
-        }
+    public void attachMetrics(MetricsCollector metrics) {
+        this.metrics = metrics;
     }
 
-    public void releaseResource(int containerId, String resourceId)
-    {
-        ResourcePanel panel = resourcePanels.get(resourceId);
-        if (panel != null) {
-            panel.removeContainer(containerId);
-
-            panel.repaint();
-            this.repaint();
-        }
+    public void attachOccupancy(ResourceOccupancy occupancy) {
+        this.occupancy = occupancy;
+        heatMap.attach(occupancy);
     }
 
-    public void recordOperation() {
-        operationCount.incrementAndGet();
-        updateStats();
+    // Safe from any thread: only the counters are touched, the heat map reads them each frame
+    public void accessResource(int containerId, int resourceIndex, boolean withSync) {
+        occupancy.access(resourceIndex, withSync);
     }
 
-    public void recordConflict(int containerId, String resourceId) {
-        conflictCount.incrementAndGet();
-        ResourcePanel panel = resourcePanels.get(resourceId);
-        if (panel != null) {
-            panel.flashConflict();
-        }
-        updateStats();
+    public void releaseResource(int containerId, int resourceIndex)
+    {
+        occupancy.release(resourceIndex);
     }
 
-    public void updateResponseTime(long responseTime) {
-        int currentAvg = avgResponseTime.get();
-        int count = operationCount.get();
-
-        if (count > 0) {
-            // Calculate new running average
-            int newAvg = (currentAvg * (count - 1) + (int)responseTime) / count;
-            avgResponseTime.set(newAvg);
-            updateStats();
-        }
+    public void recordConflict(int containerId, int resourceIndex) {
+        occupancy.conflict(resourceIndex);
     }
 
     private void startPeriodicUpdates()
     {
+        // Sample once a second; stalls show because seconds with no requests are sampled too
         Timer timer = new Timer(1000, e -> {
-            // Force repaint
-            repaint();
-
-            // Make some UI noise to ensure we're alive
-            System.out.println("UI Update: " +
-                    operationCount.get() + " operations, " +
-                    conflictCount.get() + " conflicts");
+            sampleMetrics();
+            updateStats();
+            for (TimeSeriesChart chart : charts) {
+                chart.repaint();
+            }
         });
         timer.start();
     }
 
-    private void updateStats() {
-        // Calculate throughput
-        long elapsedSec = (System.currentTimeMillis() - startTime) / 1000;
-        if (elapsedSec > 0) {
-            throughput.set(operationCount.get() / (int)elapsedSec);
+    /**
+     * Append every complete second since the last sample to the history. Rates come
+     * from the collector's per-second meters; percentiles from the latency histogram's
+     * change since the last sample, so they cover only the requests finished since.
+     */
+    private void sampleMetrics() {
+        if (metrics == null) {
+            return;
         }
 
-        // Update stats label
-        statsLabel.setText(String.format(
-                "Operations: %d | Conflicts: %d | Throughput: %d ops/sec | Avg Response: %dms",
-                operationCount.get(),
-                conflictCount.get(),
-                throughput.get(),
-                avgResponseTime.get()
-        ));
-    }
-
-    // Inner class for resource panels
-    class ResourcePanel extends JPanel {
-        private String resourceId;
-        private List<Integer> activeContainers = new ArrayList<>();
-        private boolean hasConflict = false;
-        private int conflictTimer = 0;
-        private final int MAX_CAPACITY = 3; // Maximum allowed containers
-
-        public ResourcePanel(String resourceId) {
-            this.resourceId = resourceId;
-            setBorder(BorderFactory.createTitledBorder(resourceId));
+        long[] latencyCounts = metrics.getTotalTimes().snapshot();
+        long[] recent = new long[latencyCounts.length];
+        for (int i = 0; i < recent.length; i++) {
+            recent[i] = latencyCounts[i] - (lastLatencyCounts == null ? 0 : lastLatencyCounts[i]);
         }
-
-        public boolean addContainer(int containerId)
-        {
-            if (!activeContainers.contains(containerId))
-            {
-                activeContainers.add(containerId);
-            }
-            activeContainers.add(containerId);
-            repaint();
-            return activeContainers.size() > MAX_CAPACITY;
-        }
-
-        public void removeContainer(int containerId) {
-            activeContainers.remove(Integer.valueOf(containerId));
-            repaint();
+        lastLatencyCounts = latencyCounts;
+        long p50 = LatencyHistogram.percentile(recent, 50);
+        long p99 = LatencyHistogram.percentile(recent, 99);
+
+        RateMeter requests = metrics.getRequestRate();
+        RateMeter conflicts = metrics.getConflictRate();
+        long current = requests.currentSecond();
+        for (long second = Math.max(nextSecond, current - HISTORY_SECONDS); second < current; second++) {
+            history.add(requests.countAt(second), p50, p99, conflicts.countAt(second));
         }
+        nextSecond = Math.max(nextSecond, current);
+    }
 
-        public void flashConflict() {
-            hasConflict = true;
-            conflictTimer = 10; // Flash for ~1 second
-            repaint();
-        }
-
-
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-
-            // Update conflict status
-            if (hasConflict && conflictTimer > 0) {
-                conflictTimer--;
-                if (conflictTimer == 0) {
-                    hasConflict = false;
-                }
-            }
-
-            // Set background color based on conflict status
-            if (hasConflict) {
-                g.setColor(new Color(255, 200, 200));
-                g.fillRect(0, 0, getWidth(), getHeight());
-            }
-
-            g.setColor(hasConflict ? Color.RED : new Color(220, 230, 240));
-            g.fillRect(0, 0, getWidth(), getHeight());
-
-            // Draw containers
-            // Draw each container very visibly
-            int x = 20;
-            int y = 30;
-            for (Integer containerId : activeContainers)
-            {
-                // Draw a very visible box
-                g.setColor(new Color(0, 100, 200));
-                g.fillRect(x, y, 100, 50);
-                g.setColor(Color.WHITE);
-                g.setFont(new Font("Arial", Font.BOLD, 16));
-                g.drawString("C" + containerId, x + 40, y + 30);
-
-                x += 110;
-                if (x > getWidth() - 120) {
-                    x = 20;
-                    y += 60;
-                }
-            }
-
-            // Draw capacity info
-            g.setColor(Color.BLACK);
-            g.setFont(new Font("Arial", Font.BOLD, 20));
-            g.drawString("Active: " + activeContainers.size() + "/" + MAX_CAPACITY, 20, getHeight() - 20);
-
-            // Draw conflict warning if needed
-            if (hasConflict) {
-                g.setColor(Color.RED);
-                g.setFont(g.getFont().deriveFont(Font.BOLD, 14f));
-                g.drawString("CONFLICT!", getWidth() - 100, 20);
-            }
+    private void updateStats() {
+        int operations = metrics == null ? 0 : metrics.getSuccessfulRequests();
+        int conflicts = metrics == null ? 0 : metrics.getConflictCount();
+        double averageResponse = metrics == null ? 0 : metrics.getAverageTotalTime();
+        int size = history.size();
+        long throughput = size == 0 ? 0 : (long) history.get(THROUGHPUT, size - 1);
 
-        }
+        // Update stats label
+        statsLabel.setText(String.format(
+                "Operations: %d | Active: %d | Conflicts: %d | Throughput: %d ops/sec | Avg Response: %.1fms",
+                operations,
+                heatMap.getTotalOccupancy(),
+                conflicts,
+                throughput,
+                averageResponse
+        ));
     }
-}
\ No newline at end of file
+}
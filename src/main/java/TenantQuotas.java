@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tenants sharing the resources, each owning a contiguous range of container ids.
+ *
+ * Per semaphore a tenant has reserved permits no other tenant can take and may
+ * burst up to a higher limit using the permits nobody has reserved. Parsed from
+ * "name:containers:reserved:burst[:requestRateMeanMs]" entries separated by commas.
+ */
+class TenantQuotas
+{
+    private final List<String> names = new ArrayList<>();
+    private final List<int[]> quotas = new ArrayList<>();  // containers, reserved, burst, request rate (0 = default)
+    private int totalContainers;
+
+    /**
+     * @throws IllegalArgumentException on a malformed entry, or burst below reserved
+     */
+    static TenantQuotas parse(final String spec)
+    {
+        TenantQuotas tenants = new TenantQuotas();
+        for (final String entry : spec.split(","))
+        {
+            String[] parts = entry.trim().split(":");
+            if (parts.length < 4 || parts.length > 5)
+            {
+                throw new IllegalArgumentException("Expected name:containers:reserved:burst[:requestRateMeanMs]: " + entry);
+            }
+
+            int[] quota = new int[4];
+            try
+            {
+                for (int i = 1; i < parts.length; i++)
+                {
+                    quota[i - 1] = Integer.parseInt(parts[i].trim());
+                }
+            }
+            catch (final NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Expected numbers in tenant " + entry);
+            }
+            if (quota[0] < 0 || quota[1] < 0 || quota[2] < quota[1])
+            {
+                throw new IllegalArgumentException("Tenant needs containers >= 0 and burst >= reserved: " + entry);
+            }
+
+            tenants.names.add(parts[0].trim());
+            tenants.quotas.add(quota);
+            tenants.totalContainers += quota[0];
+        }
+        return tenants;
+    }
+
+    public int size()
+    {
+        return names.size();
+    }
+
+    public String getName(final int tenant)
+    {
+        return names.get(tenant);
+    }
+
+    public int getContainers(final int tenant)
+    {
+        return quotas.get(tenant)[0];
+    }
+
+    public int getReserved(final int tenant)
+    {
+        return quotas.get(tenant)[1];
+    }
+
+    public int getBurst(final int tenant)
+    {
+        return quotas.get(tenant)[2];
+    }
+
+    /**
+     * Mean time between the tenant's requests, or the given default if the entry has none
+     */
+    public int getRequestRateMeanMs(final int tenant,
+                                    final int defaultMs)
+    {
+        int rate = quotas.get(tenant)[3];
+        return rate > 0 ? rate : defaultMs;
+    }
+
+    public int getTotalContainers()
+    {
+        return totalContainers;
+    }
+
+    public int getTotalReserved()
+    {
+        int reserved = 0;
+        for (final int[] quota : quotas)
+        {
+            reserved += quota[1];
+        }
+        return reserved;
+    }
+
+    /**
+     * Tenant owning a container; ids past the last tenant's range belong to the last tenant
+     */
+    public int tenantOf(final int containerId)
+    {
+        int end = 0;
+        for (int tenant = 0; tenant < quotas.size(); tenant++)
+        {
+            end += quotas.get(tenant)[0];
+            if (containerId < end)
+            {
+                return tenant;
+            }
+        }
+        return quotas.size() - 1;
+    }
+}
@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical semaphore: a tenant sub-pool in front of a global pool. A holder is
+ * first admitted against its tenant's quota, then takes a permit from the wrapped
+ * semaphore, which may live in a coordinator or in shared memory.
+ *
+ * Admission lets a tenant hold up to its reserved permits at any time, and up to
+ * its burst limit while the unreserved permits last. It never admits more holders
+ * than the global pool has permits, so a tenant within its reservation does not
+ * queue behind another tenant's burst.
+ */
+class TenantSemaphore implements DistributedSemaphore
+{
+    private final Lock lock           = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+
+    private final DistributedSemaphore global;
+    private final TenantQuotas tenants;
+    private final long leaseTimeoutMs;
+    private final int sharedPermits;
+
+    // Per tenant: admitted holders, and acquires that had to wait for admission
+    private final int[] held;
+    private final int[] throttled;
+    private int sharedInUse;
+
+    // Holder id -> times its permits were granted
+    private final LeaseTable<Integer> grantedTimes = new LeaseTable<>();
+    private final SemaphoreStats stats = new SemaphoreStats();
+
+    /**
+     * @param leaseTimeoutMs the global pool's lease timeout; admissions held longer are reclaimed too (0 disables)
+     * @throws IllegalArgumentException if the tenants reserve more permits than the pool has
+     */
+    public TenantSemaphore(final DistributedSemaphore global,
+                           final TenantQuotas tenants,
+                           final long leaseTimeoutMs)
+    {
+        if (tenants.getTotalReserved() > global.getMaxValue())
+        {
+            throw new IllegalArgumentException("Tenants reserve " + tenants.getTotalReserved()
+                    + " permits but " + global.getName() + " has " + global.getMaxValue());
+        }
+        this.global         = global;
+        this.tenants        = tenants;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.sharedPermits  = global.getMaxValue() - tenants.getTotalReserved();
+        this.held           = new int[tenants.size()];
+        this.throttled      = new int[tenants.size()];
+    }
+
+    /**
+     * Factory wrapping every semaphore another factory creates
+     */
+    static SemaphoreFactory factory(final SemaphoreFactory globalFactory,
+                                    final TenantQuotas tenants)
+    {
+        return (name, permits, leaseTimeoutMs) ->
+                new TenantSemaphore(globalFactory.create(name, permits, leaseTimeoutMs), tenants, leaseTimeoutMs);
+    }
+
+    @Override
+    public boolean acquire(final int holderId,
+                           final int networkLatencyMs,
+                           final long timeoutMs)
+    {
+        return acquireOutcome(holderId, networkLatencyMs, timeoutMs) == ACQUIRED;
+    }
+
+    @Override
+    public int acquireOutcome(final int holderId,
+                              final int networkLatencyMs,
+                              final long timeoutMs)
+    {
+        int tenant = tenants.tenantOf(holderId);
+        long waitStart = System.nanoTime();
+        if (!admit(tenant, timeoutMs))
+        {
+            stats.timedOut(waitStart);
+            return TIMED_OUT;
+        }
+
+        // Whatever is left of the timeout goes to the global pool
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+        long remainingMs = timeoutMs < 0 ? timeoutMs : Math.max(0, timeoutMs - elapsedMs);
+        int outcome = global.acquireOutcome(holderId, networkLatencyMs, remainingMs);
+        if (outcome != ACQUIRED)
+        {
+            lock.lock();
+            try
+            {
+                leave(tenant);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            if (outcome == SHED)
+                stats.shed(waitStart);
+            else
+                stats.timedOut(waitStart);
+            return outcome;
+        }
+
+        lock.lock();
+        try
+        {
+            grantedTimes.grant(holderId, System.currentTimeMillis());
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        stats.acquired(waitStart);
+        return ACQUIRED;
+    }
+
+    @Override
+    public void release(final int holderId,
+                        final int networkLatencyMs)
+    {
+        global.release(holderId, networkLatencyMs);
+
+        lock.lock();
+        try
+        {
+            Long grantedTime = grantedTimes.release(holderId);
+            if (grantedTime == null)
+            {
+                // Admission already reclaimed with the expired lease
+                return;
+            }
+            stats.released(System.currentTimeMillis() - grantedTime);
+            leave(tenants.tenantOf(holderId));
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the tenant's quota and the shared permits allow one more holder
+     * @return false on timeout or interrupt
+     */
+    private boolean admit(final int tenant,
+                          final long timeoutMs)
+    {
+        boolean queued = false;
+        lock.lock();
+        try
+        {
+            long nanos = timeoutMs < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (!canAdmit(tenant))
+            {
+                if (reclaimExpiredAdmissions() > 0)
+                    continue;
+                if (nanos <= 0)
+                {
+                    return false;
+                }
+                if (!queued)
+                {
+                    stats.enqueue();
+                    throttled[tenant]++;
+                    queued = true;
+                }
+                try
+                {
+                    // Wake up at least once per lease period so expired admissions get reclaimed
+                    long waitNanos = leaseTimeoutMs > 0 ? Math.min(nanos, TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMs)) : nanos;
+                    long remaining = condition.awaitNanos(waitNanos);
+                    if (timeoutMs >= 0)
+                        nanos -= waitNanos - remaining;
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            if (held[tenant] >= tenants.getReserved(tenant))
+            {
+                sharedInUse++;
+            }
+            held[tenant]++;
+            return true;
+        }
+        finally
+        {
+            if (queued)
+                stats.dequeue();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caller holds the lock
+     */
+    private boolean canAdmit(final int tenant)
+    {
+        return held[tenant] < tenants.getReserved(tenant)
+                || (held[tenant] < tenants.getBurst(tenant) && sharedInUse < sharedPermits);
+    }
+
+    /**
+     * Give back a tenant's admission, from the shared permits if it was bursting. Caller holds the lock.
+     */
+    private void leave(final int tenant)
+    {
+        held[tenant]--;
+        if (held[tenant] >= tenants.getReserved(tenant))
+        {
+            sharedInUse--;
+        }
+
+        // Waiters belong to different tenants, so any of them may now fit
+        condition.signalAll();
+    }
+
+    /**
+     * Drop admissions whose permit the global pool has reclaimed by now. Caller holds the lock.
+     * @return number of admissions dropped
+     */
+    private int reclaimExpiredAdmissions()
+    {
+        if (leaseTimeoutMs <= 0 || grantedTimes.isEmpty())
+        {
+            return 0;
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        grantedTimes.expire(System.currentTimeMillis(), leaseTimeoutMs, expired);
+        for (final int holderId : expired)
+        {
+            leave(tenants.tenantOf(holderId));
+        }
+        return expired.size();
+    }
+
+    /**
+     * Holders of a tenant currently admitted
+     */
+    public int getHeld(final int tenant)
+    {
+        lock.lock();
+        try
+        {
+            return held[tenant];
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires by a tenant that had to wait for its quota or the shared permits
+     */
+    public int getThrottled(final int tenant)
+    {
+        lock.lock();
+        try
+        {
+            return throttled[tenant];
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public TenantQuotas getTenants()
+    {
+        return tenants;
+    }
+
+    /**
+     * Queue and wait statistics of the whole acquire, admission and global pool together
+     */
+    @Override
+    public SemaphoreStats getStats()
+    {
+        return stats;
+    }
+
+    @Override
+    public int getValue()
+    {
+        return global.getValue();
+    }
+
+    @Override
+    public int getMaxValue()
+    {
+        return global.getMaxValue();
+    }
+
+    @Override
+    public String getName()
+    {
+        return global.getName();
+    }
+
+    @Override
+    public int getExpiredLeases()
+    {
+        return global.getExpiredLeases();
+    }
+
+    @Override
+    public int countLongHeldPermits(final long thresholdMs)
+    {
+        return global.countLongHeldPermits(thresholdMs);
+    }
+}
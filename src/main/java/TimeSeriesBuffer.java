@@ -0,0 +1,70 @@
+/**
+ * Fixed-size ring of per-second samples for several series, overwriting the
+ * oldest sample when full. Confined to one thread (the EDT for charts).
+ */
+class TimeSeriesBuffer
+{
+    private final double[][] values;
+    private final int capacity;
+    private int start;
+    private int size;
+
+    public TimeSeriesBuffer(final int seriesCount,
+                            final int capacity)
+    {
+        this.values   = new double[seriesCount][capacity];
+        this.capacity = capacity;
+    }
+
+    /**
+     * Append one sample, one value per series
+     */
+    public void add(final double... sample)
+    {
+        int index = (start + size) % capacity;
+        if (size == capacity)
+        {
+            start = (start + 1) % capacity;
+        }
+        else
+        {
+            size++;
+        }
+        for (int series = 0; series < values.length; series++)
+        {
+            values[series][index] = sample[series];
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Value of a series i samples after the oldest one kept
+     */
+    public double get(final int series,
+                      final int i)
+    {
+        return values[series][(start + i) % capacity];
+    }
+
+    /**
+     * Largest value of a series currently kept
+     */
+    public double max(final int series)
+    {
+        double max = 0;
+        for (int i = 0; i < size; i++)
+        {
+            max = Math.max(max, get(series, i));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,155 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Scrolling line chart of one or more series from a {@link TimeSeriesBuffer},
+ * newest sample at the right edge. The y axis scales to the largest value shown.
+ */
+class TimeSeriesChart extends JComponent
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 12);
+    private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 10);
+    private static final Color GRID = new Color(225, 225, 225);
+    private static final Stroke LINE = new BasicStroke(1.5f);
+
+    private static final int LEFT   = 40;
+    private static final int TOP    = 20;
+    private static final int RIGHT  = 8;
+    private static final int BOTTOM = 16;
+
+    private final String title;
+    private final String unit;
+    private final transient TimeSeriesBuffer buffer;
+    private final int[] series;
+    private final String[] names;
+    private final Color[] colors;
+
+    /**
+     * @param series indexes into the buffer to draw, with a legend name and colour each
+     */
+    public TimeSeriesChart(final String title,
+                           final String unit,
+                           final TimeSeriesBuffer buffer,
+                           final int[] series,
+                           final String[] names,
+                           final Color[] colors)
+    {
+        this.title  = title;
+        this.unit   = unit;
+        this.buffer = buffer;
+        this.series = series;
+        this.names  = names;
+        this.colors = colors;
+        setPreferredSize(new Dimension(260, 150));
+    }
+
+    @Override
+    protected void paintComponent(final Graphics graphics)
+    {
+        Graphics2D g = (Graphics2D) graphics;
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = getWidth();
+        int height = getHeight();
+        int plotWidth = width - LEFT - RIGHT;
+        int plotHeight = height - TOP - BOTTOM;
+
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        if (plotWidth <= 0 || plotHeight <= 0)
+        {
+            return;
+        }
+
+        double max = 0;
+        for (final int s : series)
+        {
+            max = Math.max(max, buffer.max(s));
+        }
+        max = niceCeiling(max);
+
+        // Grid with the scale at the top and midpoint
+        g.setColor(GRID);
+        g.drawRect(LEFT, TOP, plotWidth, plotHeight);
+        g.drawLine(LEFT, TOP + plotHeight / 2, LEFT + plotWidth, TOP + plotHeight / 2);
+        g.setColor(Color.GRAY);
+        g.setFont(LABEL_FONT);
+        g.drawString(format(max), 2, TOP + 8);
+        g.drawString(format(max / 2), 2, TOP + plotHeight / 2 + 4);
+        g.drawString("0", 2, TOP + plotHeight);
+        g.drawString("-" + buffer.capacity() + "s", LEFT, height - 3);
+        g.drawString("now", width - RIGHT - 20, height - 3);
+
+        // Title, then each series' latest value as its legend
+        g.setColor(Color.BLACK);
+        g.setFont(TITLE_FONT);
+        g.drawString(title, LEFT, 14);
+        int legendX = LEFT + g.getFontMetrics().stringWidth(title) + 10;
+        g.setFont(LABEL_FONT);
+        int size = buffer.size();
+        for (int i = 0; i < series.length; i++)
+        {
+            String latest = size == 0 ? "-" : format(buffer.get(series[i], size - 1));
+            String legend = names[i] + " " + latest + unit;
+            g.setColor(colors[i]);
+            g.drawString(legend, legendX, 14);
+            legendX += g.getFontMetrics().stringWidth(legend) + 10;
+        }
+
+        // Lines, with the newest sample at the right edge
+        if (size < 2)
+        {
+            return;
+        }
+        double xStep = (double) plotWidth / (buffer.capacity() - 1);
+        double xStart = LEFT + plotWidth - (size - 1) * xStep;
+        g.setStroke(LINE);
+        for (int i = 0; i < series.length; i++)
+        {
+            g.setColor(colors[i]);
+            int previousX = (int) xStart;
+            int previousY = y(buffer.get(series[i], 0), max, plotHeight);
+            for (int j = 1; j < size; j++)
+            {
+                int x = (int) (xStart + j * xStep);
+                int y = y(buffer.get(series[i], j), max, plotHeight);
+                g.drawLine(previousX, previousY, x, y);
+                previousX = x;
+                previousY = y;
+            }
+        }
+    }
+
+    private static int y(final double value,
+                         final double max,
+                         final int plotHeight)
+    {
+        return TOP + plotHeight - (int) Math.round(value / max * plotHeight);
+    }
+
+    /**
+     * Round an axis maximum up to 1, 2 or 5 times a power of ten
+     */
+    private static double niceCeiling(final double value)
+    {
+        if (value <= 0)
+        {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        for (final double step : new double[] {1, 2, 5, 10})
+        {
+            if (step * magnitude >= value)
+            {
+                return step * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+
+    private static String format(final double value)
+    {
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format("%.1f", value);
+    }
+}
@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for an acquire that gave up without a permit, timed out or shed
+ */
+@Name("cloudsync.Timeout")
+@Label("Acquire Timeout")
+@Category({"Cloud Sync", "Semaphore"})
+@Description("Acquire that timed out or was shed by a bounded wait queue")
+@StackTrace(false)
+class TimeoutEvent extends Event
+{
+    @Label("Container")
+    int containerId;
+
+    @Label("Resource")
+    String resource;
+
+    @Label("Shard")
+    int shard;
+
+    @Label("Timeout")
+    @Timespan(Timespan.MILLISECONDS)
+    long timeoutMs;
+
+    @Label("Shed")
+    @Description("Turned away by the wait queue's policy rather than timing out")
+    boolean shed;
+}
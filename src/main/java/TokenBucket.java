@@ -0,0 +1,64 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Rather than a token count refilled by a timer, it keeps
+ * the time the bucket will next be full (the "theoretical arrival time" of the
+ * generic cell rate algorithm) in one atomic; refill falls out of comparing that
+ * time with now, so taking a token is a read, some arithmetic and one CAS.
+ */
+class TokenBucket
+{
+    private final long intervalNanos;  // time to refill one token
+    private final long burstNanos;     // time to refill the whole bucket
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param ratePerSecond tokens added per second
+     * @param burst tokens the bucket holds, the most requests let through at once
+     */
+    public TokenBucket(final double ratePerSecond,
+                       final int burst)
+    {
+        if (ratePerSecond <= 0 || burst < 1)
+        {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and a burst of at least 1");
+        }
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000L / ratePerSecond));
+        this.burstNanos    = intervalNanos * burst;
+    }
+
+    /**
+     * Take a token, waiting for one to refill if need be
+     * @param maxDelayNanos longest acceptable wait; 0 takes a token only if one is there now
+     * @return nanoseconds to wait before proceeding, or -1 if that would exceed maxDelayNanos
+     *         (no token is taken then)
+     */
+    public long reserve(final long nowNanos,
+                        final long maxDelayNanos)
+    {
+        while (true)
+        {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+
+            // The token is usable once the bucket is within a burst of being full
+            long delay = Math.max(0, next - burstNanos - nowNanos);
+            if (delay > maxDelayNanos)
+            {
+                return -1;
+            }
+            if (fullAt.compareAndSet(current, next))
+            {
+                return delay;
+            }
+        }
+    }
+
+    /**
+     * Return a token taken by {@link #reserve}, when a later stage turned the request away
+     */
+    public void refund()
+    {
+        fullAt.addAndGet(-intervalNanos);
+    }
+}
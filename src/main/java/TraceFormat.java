@@ -0,0 +1,77 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary trace file layout shared by the recorder and the reader.
+ *
+ * Header: int magic "CSTR", byte version, then varints numResources,
+ * maxConcurrentAccess, shardsPerResource, a boolean sync flag, and a varint
+ * count of UTF key/value pairs holding the {@link #SETTINGS} of the run.
+ * Each record is seven unsigned varints: offsetMs since trace start,
+ * containerId, resourceIndex, shardIndex, acquireLatencyMs,
+ * processingTimeMs and releaseLatencyMs. Records end at EOF.
+ */
+final class TraceFormat
+{
+    static final int MAGIC   = 0x43535452;
+    static final int VERSION = 2;
+
+    // SimulationConfig fields that decide admission, so a replay grants and rejects like the run did
+    static final String[] SETTINGS = {
+            "acquireTimeoutMs", "leaseTimeoutMs", "tenants",
+            "maxQueueDepth", "queuePolicy", "codelTargetMs", "codelIntervalMs",
+            "rateLimitMode", "resourceRatePerSecond", "resourceBurst",
+            "containerRatePerSecond", "containerBurst", "rateLimitMaxDelayMs",
+            "coordinatorAddress", "sharedMemoryDirectory", "replicaNodes",
+            "crashProbability", "dropReleaseProbability", "extraNetworkDelayMs", "partitionNetwork"
+    };
+
+    // Recorded so a replay can say what it leaves out: it always uses in-JVM semaphores without faults
+    static final String[] NOT_REPLAYED = {
+            "coordinatorAddress", "sharedMemoryDirectory", "replicaNodes",
+            "crashProbability", "dropReleaseProbability", "extraNetworkDelayMs", "partitionNetwork"
+    };
+
+    private TraceFormat()
+    {
+    }
+
+    /**
+     * Write a non-negative value using 7 bits per byte
+     */
+    static void writeVarLong(final DataOutput out,
+                             long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(final DataInput in) throws IOException
+    {
+        long value = 0;
+        int shift  = 0;
+        int b;
+        do
+        {
+            if (shift > 63)
+            {
+                throw new IOException("Malformed varint in trace");
+            }
+            b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static int readVarInt(final DataInput in) throws IOException
+    {
+        return (int) readVarLong(in);
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads a binary trace written by {@link TraceRecorder}
+ */
+class TraceReader implements AutoCloseable
+{
+    private final DataInputStream in;
+
+    // Layout and admission settings of the traced run; everything else at its default
+    final SimulationConfig config = new SimulationConfig();
+
+    public TraceReader(final String filename) throws IOException
+    {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 64 * 1024));
+
+        if (in.readInt() != TraceFormat.MAGIC)
+        {
+            in.close();
+            throw new IOException("Not a simulation trace: " + filename);
+        }
+
+        int version = in.readUnsignedByte();
+        if (version != TraceFormat.VERSION)
+        {
+            in.close();
+            throw new IOException("Unsupported trace version " + version);
+        }
+
+        config.numResources          = TraceFormat.readVarInt(in);
+        config.maxConcurrentAccess   = TraceFormat.readVarInt(in);
+        config.shardsPerResource     = TraceFormat.readVarInt(in);
+        config.enableSynchronization = in.readBoolean();
+
+        int settings = TraceFormat.readVarInt(in);
+        for (int i = 0; i < settings; i++)
+        {
+            String key   = in.readUTF();
+            String value = in.readUTF();
+            try
+            {
+                ScenarioFile.set(config, key, value);
+            }
+            catch (final IllegalArgumentException e)
+            {
+                in.close();
+                throw new IOException("Invalid trace setting " + key + "=" + value + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read the next record
+     * @return the record, or null at the end of the trace
+     */
+    public TraceRecord next() throws IOException
+    {
+        final long offsetMs;
+        try
+        {
+            offsetMs = TraceFormat.readVarLong(in);
+        }
+        catch (final EOFException e)
+        {
+            return null;
+        }
+
+        return new TraceRecord(offsetMs,
+                TraceFormat.readVarInt(in),
+                TraceFormat.readVarInt(in),
+                TraceFormat.readVarInt(in),
+                TraceFormat.readVarInt(in),
+                TraceFormat.readVarInt(in),
+                TraceFormat.readVarInt(in));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Class representing one traced container request
+ */
+class TraceRecord
+{
+    final long offsetMs;
+    final int containerId;
+    final int resourceIndex;
+    final int shardIndex;
+    final int acquireLatencyMs;
+    final int processingTimeMs;
+    final int releaseLatencyMs;
+
+    public TraceRecord(final long offsetMs,
+                       final int containerId,
+                       final int resourceIndex,
+                       final int shardIndex,
+                       final int acquireLatencyMs,
+                       final int processingTimeMs,
+                       final int releaseLatencyMs)
+    {
+        this.offsetMs         = offsetMs;
+        this.containerId      = containerId;
+        this.resourceIndex    = resourceIndex;
+        this.shardIndex       = shardIndex;
+        this.acquireLatencyMs = acquireLatencyMs;
+        this.processingTimeMs = processingTimeMs;
+        this.releaseLatencyMs = releaseLatencyMs;
+    }
+}
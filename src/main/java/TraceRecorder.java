@@ -0,0 +1,78 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records every container request of a run into a compact binary trace
+ * (see {@link TraceFormat}) so the run can be replayed later
+ */
+class TraceRecorder implements AutoCloseable
+{
+    private final DataOutputStream out;
+    private final long startTime;
+    private boolean failed;
+
+    public TraceRecorder(final String filename,
+                         final SimulationConfig config) throws IOException
+    {
+        out       = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 64 * 1024));
+        startTime = System.currentTimeMillis();
+
+        out.writeInt(TraceFormat.MAGIC);
+        out.writeByte(TraceFormat.VERSION);
+        TraceFormat.writeVarLong(out, config.numResources);
+        TraceFormat.writeVarLong(out, config.maxConcurrentAccess);
+        TraceFormat.writeVarLong(out, config.shardsPerResource);
+        out.writeBoolean(config.enableSynchronization);
+        TraceFormat.writeVarLong(out, TraceFormat.SETTINGS.length);
+        for (final String key : TraceFormat.SETTINGS)
+        {
+            out.writeUTF(key);
+            out.writeUTF(ScenarioFile.get(config, key));
+        }
+    }
+
+    public synchronized void record(final int containerId,
+                                    final int resourceIndex,
+                                    final int shardIndex,
+                                    final int acquireLatencyMs,
+                                    final int processingTimeMs,
+                                    final int releaseLatencyMs)
+    {
+        if (failed)
+        {
+            return;
+        }
+
+        try
+        {
+            TraceFormat.writeVarLong(out, System.currentTimeMillis() - startTime);
+            TraceFormat.writeVarLong(out, containerId);
+            TraceFormat.writeVarLong(out, resourceIndex);
+            TraceFormat.writeVarLong(out, shardIndex);
+            TraceFormat.writeVarLong(out, acquireLatencyMs);
+            TraceFormat.writeVarLong(out, processingTimeMs);
+            TraceFormat.writeVarLong(out, releaseLatencyMs);
+        }
+        catch (final IOException e)
+        {
+            // Stop tracing rather than failing the container thread
+            failed = true;
+            System.err.println("Error writing trace: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        try
+        {
+            out.close();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error closing trace: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replays a recorded trace against fresh cloud resources. Each traced container
+ * gets its own thread that issues its requests at the recorded offsets with the
+ * recorded latency and processing samples, optionally sped up by a constant factor.
+ * Resources get the traced run's acquire timeout, leases, wait queue policy, rate
+ * limits and tenant quotas, but always in-JVM semaphores and no fault injection.
+ *
+ * Usage: TraceReplayer trace-file [speed-factor] [metrics-output-file]
+ */
+public class TraceReplayer
+{
+    private final TraceReader reader;
+    private final double speed;
+    private final MetricsCollector metrics = new MetricsCollector();
+    private final List<CloudResource> resources = new ArrayList<>();
+    private final Map<Integer, List<TraceRecord>> requestsByContainer = new TreeMap<>();
+    private long lastOffsetMs;
+
+    /**
+     * @throws IllegalArgumentException if a record names a resource or shard the traced layout does not have
+     */
+    public TraceReplayer(final TraceReader reader,
+                         final double speed) throws IOException
+    {
+        if (speed <= 0)
+        {
+            throw new IllegalArgumentException("Speed factor must be positive: " + speed);
+        }
+
+        this.reader = reader;
+        this.speed  = speed;
+
+        int numContainers = 0;
+        TraceRecord record;
+        while ((record = reader.next()) != null)
+        {
+            requestsByContainer.computeIfAbsent(record.containerId, id -> new ArrayList<>()).add(record);
+            lastOffsetMs  = Math.max(lastOffsetMs, record.offsetMs);
+            numContainers = Math.max(numContainers, record.containerId + 1);
+        }
+
+        // Same resources the traced run built, apart from where the permits live
+        SimulationConfig config = reader.config;
+        SimulationConfig defaults = new SimulationConfig();
+        for (final String key : TraceFormat.NOT_REPLAYED)
+        {
+            String value = ScenarioFile.get(config, key);
+            if (!value.equals(ScenarioFile.get(defaults, key)))
+            {
+                System.err.println("Trace was recorded with " + key + "=" + value
+                        + "; the replay uses in-JVM semaphores without faults");
+            }
+        }
+        SemaphoreFactory semaphoreFactory = WaitQueuePolicy.fromConfig(config).localFactory();
+        if (config.tenants != null)
+        {
+            TenantQuotas tenants = TenantQuotas.parse(config.tenants);
+            semaphoreFactory = TenantSemaphore.factory(semaphoreFactory, tenants);
+            metrics.setTenants(tenants);
+            numContainers = Math.max(numContainers, tenants.getTotalContainers());
+        }
+        RateLimiter rateLimiter = RateLimiter.fromConfig(config, numContainers);
+        for (int i = 0; i < config.numResources; i++)
+        {
+            resources.add(CloudSyncSimulation.createResource(config, i, null, semaphoreFactory, rateLimiter));
+        }
+
+        for (final List<TraceRecord> requests : requestsByContainer.values())
+        {
+            for (final TraceRecord request : requests)
+            {
+                checkIndexes(request);
+            }
+        }
+    }
+
+    /**
+     * Fail on load rather than mid-replay when a record does not fit the resources built for the trace
+     */
+    private void checkIndexes(final TraceRecord record)
+    {
+        if (record.resourceIndex < 0 || record.resourceIndex >= resources.size())
+        {
+            throw new IllegalArgumentException("Trace record at " + record.offsetMs + "ms uses resource "
+                    + record.resourceIndex + " but the replay has " + resources.size() + " resources");
+        }
+        int shards = resources.get(record.resourceIndex).getShardCount();
+        if (record.shardIndex < 0 || record.shardIndex >= shards)
+        {
+            throw new IllegalArgumentException("Trace record at " + record.offsetMs + "ms uses shard "
+                    + record.shardIndex + " of resource " + record.resourceIndex + " but the replay has "
+                    + shards + " shards per resource");
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: TraceReplayer <trace-file> [speed-factor] [metrics-output-file]");
+            return;
+        }
+
+        double speed      = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        String outputFile = args.length > 2 ? args[2] : "replay_simulation_metrics.csv";
+
+        try (TraceReader reader = new TraceReader(args[0]))
+        {
+            TraceReplayer replayer = new TraceReplayer(reader, speed);
+            replayer.run();
+            replayer.getMetrics().printSummary();
+            replayer.getMetrics().saveToFile(outputFile, replayer.toConfig());
+        }
+        catch (final IOException | IllegalArgumentException e)
+        {
+            System.err.println("Error replaying trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replay every traced request and wait until all containers have finished
+     */
+    public void run()
+    {
+        System.out.println("Replaying " + requestsByContainer.size() + " containers at " + speed + "x speed...");
+
+        List<Thread> threads = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+
+        for (final List<TraceRecord> requests : requestsByContainer.values())
+        {
+            Thread thread = new Thread(() -> replayContainer(requests, startTime));
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (final Thread thread : threads)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void replayContainer(final List<TraceRecord> requests,
+                                 final long startTime)
+    {
+        for (final TraceRecord request : requests)
+        {
+            long delay = startTime + (long)(request.offsetMs / speed) - System.currentTimeMillis();
+            if (delay > 0)
+            {
+                try
+                {
+                    Thread.sleep(delay);
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            CloudResource resource = resources.get(request.resourceIndex);
+            if (reader.config.enableSynchronization)
+            {
+                resource.accessWithSync(request.containerId, request.shardIndex,
+                        scale(request.acquireLatencyMs), scale(request.processingTimeMs),
+                        scale(request.releaseLatencyMs), metrics, VisualizerSink.NONE);
+            }
+            else
+            {
+                resource.accessWithoutSync(request.containerId, request.shardIndex,
+                        scale(request.acquireLatencyMs), scale(request.processingTimeMs),
+                        scale(request.releaseLatencyMs), metrics, VisualizerSink.NONE);
+            }
+        }
+    }
+
+    private int scale(final int durationMs)
+    {
+        return Math.max(1, (int) Math.round(durationMs / speed));
+    }
+
+    public MetricsCollector getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Build a configuration describing the traced run, for metrics output
+     */
+    SimulationConfig toConfig()
+    {
+        SimulationConfig config = new SimulationConfig();
+        config.numContainers         = requestsByContainer.size();
+        config.numResources          = reader.config.numResources;
+        config.simulationTimeSeconds = (int)(lastOffsetMs / speed / 1000);
+        config.maxConcurrentAccess   = reader.config.maxConcurrentAccess;
+        config.shardsPerResource     = reader.config.shardsPerResource;
+        config.enableSynchronization = reader.config.enableSynchronization;
+        return config;
+    }
+}
@@ -0,0 +1,131 @@
+import java.awt.GraphicsEnvironment;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures what the Swing visualizer costs by running the same seeded workload
+ * headless and with the visualizer attached. Without a display the second run
+ * updates the occupancy counters for a no-op sink, which measures the cost per
+ * request but not the painting.
+ */
+public class VisualizerBenchmark
+{
+    private static final int NUM_CONTAINERS   = 200;
+    private static final int DURATION_SECONDS = 15;
+
+    public static void main(String[] args)
+    {
+        System.out.println("Starting Visualizer Cost Benchmark");
+        System.out.println("==================================");
+
+        SimulationConfig config = new SimulationConfig();
+        config.numContainers          = NUM_CONTAINERS;
+        config.simulationTimeSeconds  = DURATION_SECONDS;
+        config.networkLatencyMeanMs   = 2;
+        config.networkLatencyStdDevMs = 1;
+        config.processingTimeMeanMs   = 5;
+        config.processingTimeStdDevMs = 2;
+
+        boolean display = !GraphicsEnvironment.isHeadless();
+        String visualLabel = display ? "Swing visualizer" : "Occupancy counters only (no display)";
+
+        Result headless = run(config, "Headless", VisualizerSink.NONE);
+        Result visual = run(config, visualLabel, new EventThreadSink(
+                display ? SimulationVisualizer::new : () -> VisualizerSink.NONE));
+
+        System.out.println("\n==== Visualizer Cost ====");
+        headless.print();
+        visual.print();
+        System.out.println("Throughput cost: "
+                + String.format("%.1f", 100 * (1 - visual.throughput / Math.max(1e-9, headless.throughput))) + "%");
+        System.out.println("CPU cost per request: "
+                + String.format("%.1f", visual.cpuMicrosPerRequest - headless.cpuMicrosPerRequest) + " us");
+
+        // The visualizer's frame and timers keep the EDT alive
+        System.exit(0);
+    }
+
+    private static final class Result
+    {
+        final String label;
+        final double throughput;
+        final double cpuMicrosPerRequest;
+
+        Result(final String label,
+               final double throughput,
+               final double cpuMicrosPerRequest)
+        {
+            this.label               = label;
+            this.throughput          = throughput;
+            this.cpuMicrosPerRequest = cpuMicrosPerRequest;
+        }
+
+        void print()
+        {
+            System.out.println(label + ": " + String.format("%.1f", throughput) + " requests/second, "
+                    + String.format("%.1f", cpuMicrosPerRequest) + " us CPU per request");
+        }
+    }
+
+    /**
+     * Run the workload against a visualizer sink, measuring throughput and process CPU time
+     */
+    private static Result run(final SimulationConfig config,
+                              final String label,
+                              final VisualizerSink visualizer)
+    {
+        System.out.println("\nRunning " + config.numContainers + " containers: " + label + "...");
+
+        MetricsCollector metrics = new MetricsCollector();
+        visualizer.attachMetrics(metrics);
+        List<CloudResource> resources = new ArrayList<>();
+        for (int i = 0; i < config.numResources; i++)
+        {
+            CloudResource resource = new CloudResource("resource_" + i, config.maxConcurrentAccess);
+            resources.add(resource);
+            visualizer.registerResource(resource.getIndex(), resource.getMaxPermits());
+        }
+
+        // Same seed for both runs so they see the same request stream
+        SplittableRandom runRandom = new SplittableRandom(config.randomSeed);
+        LatencyDistribution networkLatency = config.networkLatency();
+        LatencyDistribution processingTime = config.processingTime();
+        List<Container> containers = new ArrayList<>();
+        for (int i = 0; i < config.numContainers; i++)
+        {
+            containers.add(new Container(
+                    i, resources, true,
+                    networkLatency, processingTime,
+                    config.requestRateMeanMs, config.requestRateStdDevMs, config.minRequestIntervalMs,
+                    metrics, visualizer, null, runRandom.split()));
+        }
+
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+
+        for (final Container container : containers)
+        {
+            container.start();
+        }
+
+        try
+        {
+            Thread.sleep(config.simulationTimeSeconds * 1000L);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // Measure the window itself, then drain so no request spills into the next run
+        long cpuNanos = os.getProcessCpuTime() - cpuStart;
+        int completed = metrics.getSuccessfulRequests();
+        Container.stopAll(containers, config.drainTimeoutMs);
+
+        return new Result(label, (double) completed / config.simulationTimeSeconds,
+                cpuNanos / 1000.0 / Math.max(1, completed));
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Receives simulation events for display. Every method defaults to doing nothing,
+ * so {@link #NONE} runs headless with no Swing classes loaded and no EDT traffic.
+ */
+interface VisualizerSink
+{
+    /**
+     * Discards all events, for headless runs and benchmarks
+     */
+    VisualizerSink NONE = new VisualizerSink()
+    {
+    };
+
+    /**
+     * @param permits permits the resource has, for showing occupancy against capacity
+     */
+    default void registerResource(int resourceIndex, int permits)
+    {
+    }
+
+    default void accessResource(int containerId, int resourceIndex, boolean withSync)
+    {
+    }
+
+    default void releaseResource(int containerId, int resourceIndex)
+    {
+    }
+
+    default void recordConflict(int containerId, int resourceIndex)
+    {
+    }
+
+    /**
+     * Source of throughput, latency and conflict figures, which the visualizer
+     * samples on its own schedule instead of receiving an event per request
+     */
+    default void attachMetrics(MetricsCollector metrics)
+    {
+    }
+
+    /**
+     * Counters that callers update directly for each access, release and conflict,
+     * which the visualizer reads each frame instead of receiving an event
+     */
+    default void attachOccupancy(ResourceOccupancy occupancy)
+    {
+    }
+
+    default void setStatus(String message)
+    {
+    }
+
+    default void setSyncEnabled(boolean enabled)
+    {
+    }
+}
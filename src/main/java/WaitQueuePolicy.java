@@ -0,0 +1,72 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a {@link LocalSemaphore} bounds its queue of waiting holders, so that under
+ * overload requests are shed quickly instead of all waiting out their timeouts.
+ *
+ * <ul>
+ * <li>"reject": first come, first served; arrivals to a full queue are shed at once</li>
+ * <li>"lifo": newest waiter served first; a full queue sheds its oldest waiter, which is
+ *     the one most likely to time out anyway</li>
+ * <li>"codel": first come, first served, but once waiters have been queuing longer than
+ *     the target for a whole interval, those past the target are shed as they reach the
+ *     head; arrivals to a full queue are shed at once</li>
+ * </ul>
+ */
+class WaitQueuePolicy
+{
+    static final String REJECT = "reject";
+    static final String LIFO   = "lifo";
+    static final String CODEL  = "codel";
+
+    /**
+     * Unbounded first-come first-served queue, nothing shed
+     */
+    static final WaitQueuePolicy UNBOUNDED = new WaitQueuePolicy(0, REJECT, 0, 0);
+
+    final int maxDepth;  // 0 for no limit
+    final String mode;
+    final long targetNanos;
+    final long intervalNanos;
+
+    /**
+     * @param maxDepth waiters allowed before shedding (0 for no limit)
+     * @param targetMs CoDel: queuing time considered acceptable
+     * @param intervalMs CoDel: how long queuing must stay above the target before shedding starts
+     * @throws IllegalArgumentException on an unknown mode
+     */
+    public WaitQueuePolicy(final int maxDepth,
+                           final String mode,
+                           final long targetMs,
+                           final long intervalMs)
+    {
+        if (!mode.equals(REJECT) && !mode.equals(LIFO) && !mode.equals(CODEL))
+        {
+            throw new IllegalArgumentException("Unknown queue policy " + mode
+                    + "; expected " + REJECT + ", " + LIFO + " or " + CODEL);
+        }
+        this.maxDepth      = Math.max(0, maxDepth);
+        this.mode          = mode;
+        this.targetNanos   = TimeUnit.MILLISECONDS.toNanos(targetMs);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    }
+
+    static WaitQueuePolicy fromConfig(final SimulationConfig config)
+    {
+        return new WaitQueuePolicy(config.maxQueueDepth, config.queuePolicy,
+                config.codelTargetMs, config.codelIntervalMs);
+    }
+
+    /**
+     * Factory for in-JVM semaphores using this policy
+     */
+    SemaphoreFactory localFactory()
+    {
+        return (name, permits, leaseTimeoutMs) -> new LocalSemaphore(permits, name, leaseTimeoutMs, this);
+    }
+
+    boolean isFull(final int waiting)
+    {
+        return maxDepth > 0 && waiting >= maxDepth;
+    }
+}